@@ -0,0 +1,156 @@
+package model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Benchmarks of the rendering paths of {@link MandelbrotCalculator}. Every benchmark renders
+ * SIZE x SIZE pixels and declares them as operations, so scores are in nanoseconds per pixel.
+ * Run with {@code -prof gc} (the default of {@code make bench}) for allocation per pixel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalculatorBenchmark {
+
+    /** Edge length of the rendered images. */
+    static final int SIZE = 256;
+    /** Pixels per invocation. */
+    static final int PIXELS = SIZE * SIZE;
+
+    private static final BooleanSupplier NEVER_CANCELLED = () -> false;
+
+    /** View to render: the initial view, a seahorse valley zoom, or a view entirely inside the set. */
+    @Param({"initial", "seahorse", "interior"})
+    public String view;
+
+    /** Iteration cap. */
+    @Param({"50", "500", "5000"})
+    public int maxIterations;
+
+    /** Whether the cardioid and bulb shortcut is enabled; set to false to time the interior by iteration. */
+    @Param({"true"})
+    public boolean interiorCheck;
+
+    /**
+     * Whether the tiled paths use the Vector API kernel where the JVM has jdk.incubator.vector; set to false to
+     * time the interleaved scalar fallback.
+     */
+    @Param({"true"})
+    public boolean vectorKernel;
+
+    /**
+     * Whether views coarse enough for it are iterated in floats by the Vector API kernel: at SIZE the initial and
+     * interior views are, the seahorse zoom is always iterated in doubles.
+     */
+    @Param({"true", "false"})
+    public boolean floatPrecision;
+
+    /**
+     * Fractal kernel specification; other kernels than the Mandelbrot set render their whole fractal whatever
+     * the view, e.g. {@code -p kernel=julia:-0.8,0.156,multibrot:3,burning-ship} to compare their throughput.
+     */
+    @Param({"mandelbrot"})
+    public String kernel;
+
+    private MandelbrotCalculator calculator;
+    private MandelbrotState state;
+    private IterationFrame frame;
+
+    /**
+     * Prepares the calculator, view and destination frame.
+     */
+    @Setup
+    public void setUp() {
+        calculator = new MandelbrotCalculator();
+        calculator.setInteriorCheck(interiorCheck);
+        calculator.setVectorKernel(vectorKernel);
+        calculator.setFloatPrecision(floatPrecision);
+        FractalKernel fractal = FractalKernel.parse(kernel);
+        state = fractal == FractalKernel.MANDELBROT ? view(view, maxIterations) : fractal.initialState(maxIterations);
+        frame = new IterationFrame(SIZE, SIZE);
+    }
+
+    /**
+     * @param name benchmark view name
+     * @param maxIterations iteration cap
+     * @return the named view
+     */
+    static MandelbrotState view(String name, int maxIterations) {
+        switch (name) {
+            case "initial":
+                return new MandelbrotState(-2.0, 0.7, -1.25, 1.25, maxIterations);
+            case "seahorse":
+                // About 1e8 times the initial magnification, still within double precision
+                return new MandelbrotState(-0.743643900, -0.743643874, 0.131825891, 0.131825917, maxIterations);
+            case "interior":
+                return new MandelbrotState(-0.5, -0.1, -0.2, 0.2, maxIterations);
+            default:
+                throw new IllegalArgumentException("Unknown view: " + name);
+        }
+    }
+
+    /**
+     * The original sequential API, one calcMandel call per pixel into a new int[][].
+     *
+     * @return the rendered data, so that it is not optimised away
+     */
+    @Benchmark
+    @OperationsPerInvocation(PIXELS)
+    public int[][] calcMandelbrotSet() {
+        return calculator.calcMandelbrotSet(SIZE, SIZE, state.minReal, state.maxReal,
+                state.minImag, state.maxImag, state.maxIterations, 4.0);
+    }
+
+    /**
+     * The scalar kernel on one thread into a reused frame: calcMandel without allocation or threading.
+     *
+     * @return the rendered frame
+     */
+    @Benchmark
+    @OperationsPerInvocation(PIXELS)
+    public IterationFrame sequentialFrame() {
+        calculator.calcMandelbrotFrameSequential(frame, state, 4.0, NEVER_CANCELLED);
+        return frame;
+    }
+
+    /**
+     * The parallel tiled path used by the viewer.
+     *
+     * @return the rendered frame
+     */
+    @Benchmark
+    @OperationsPerInvocation(PIXELS)
+    public IterationFrame parallelFrame() {
+        calculator.calcMandelbrotFrame(frame, state, 4.0, NEVER_CANCELLED);
+        return frame;
+    }
+
+    /**
+     * The Mariani-Silver subdivision path.
+     *
+     * @return the rendered frame
+     */
+    @Benchmark
+    @OperationsPerInvocation(PIXELS)
+    public IterationFrame subdividedFrame() {
+        calculator.calcMandelbrotFrameSubdivided(frame, state, 4.0, NEVER_CANCELLED);
+        return frame;
+    }
+}
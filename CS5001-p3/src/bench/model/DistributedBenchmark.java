@@ -0,0 +1,98 @@
+package model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling of {@link TileCoordinator} with the number of workers. Each worker runs in this JVM on a
+ * single-thread pool, standing in for a one-core node, and is reached over localhost; on a machine
+ * with at least as many cores as workers, ns/pixel should fall nearly as 1/workers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DistributedBenchmark {
+
+    /** Edge length of the rendered image. */
+    static final int SIZE = 1024;
+    /** Pixels per invocation. */
+    static final int PIXELS = SIZE * SIZE;
+
+    /** Number of workers. */
+    @Param({"1", "2", "4"})
+    public int workers;
+
+    /** Edge length of the tiles. */
+    @Param({"128"})
+    public int tileSize;
+
+    private final List<TileWorker> running = new ArrayList<>();
+    private final List<ForkJoinPool> pools = new ArrayList<>();
+    private TileCoordinator coordinator;
+    private MandelbrotState state;
+    private IterationFrame frame;
+
+    /**
+     * Starts the workers and connects a coordinator to them.
+     *
+     * @throws IOException if a worker cannot listen
+     */
+    @Setup
+    public void setUp() throws IOException {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (int i = 0; i < workers; i++) {
+            ForkJoinPool pool = new ForkJoinPool(1);
+            TileWorker worker = new TileWorker(0, new MandelbrotCalculator(pool)).start();
+            pools.add(pool);
+            running.add(worker);
+            addresses.add(new InetSocketAddress("localhost", worker.getPort()));
+        }
+        coordinator = new TileCoordinator(addresses);
+        coordinator.setTileSize(tileSize);
+        state = CalculatorBenchmark.view("initial", 500);
+        frame = new IterationFrame(SIZE, SIZE);
+    }
+
+    /**
+     * Stops the workers.
+     */
+    @TearDown
+    public void tearDown() {
+        running.forEach(TileWorker::close);
+        pools.forEach(ForkJoinPool::shutdownNow);
+    }
+
+    /**
+     * Renders the initial view on the workers.
+     *
+     * @return the frame, so that it is not optimised away
+     * @throws IOException if every worker was lost
+     */
+    @Benchmark
+    @OperationsPerInvocation(PIXELS)
+    public IterationFrame render() throws IOException {
+        coordinator.render(frame, state, 4.0, () -> false);
+        return frame;
+    }
+}
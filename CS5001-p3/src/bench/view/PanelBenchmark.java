@@ -0,0 +1,97 @@
+package view;
+
+import model.ModelMandelbrot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of colouring and painting in {@link MandelbrotPanel}, in nanoseconds per pixel.
+ * The model renders once during setup; each invocation marks the image stale, as a new frame
+ * would, and paints the panel into an off-screen image.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PanelBenchmark {
+
+    /** Edge length of the panel. */
+    static final int SIZE = 512;
+    /** Pixels per invocation. */
+    static final int PIXELS = SIZE * SIZE;
+
+    /** Iteration cap, which sets the palette size. */
+    @Param({"50", "500", "5000"})
+    public int maxIterations;
+
+    /** Colour map name as shown in the UI. */
+    @Param({"Black & White", "Blue"})
+    public String colourMap;
+
+    private MandelbrotPanel panel;
+    private BufferedImage screen;
+    private Graphics2D graphics;
+
+    /**
+     * Renders the initial view and creates the panel and off-screen target.
+     */
+    @Setup
+    public void setUp() {
+        ModelMandelbrot model = new ModelMandelbrot(SIZE, SIZE);
+        model.setMaxIterations(maxIterations);
+        panel = new MandelbrotPanel(model);
+        panel.setColourMap(BatchRenderer.colourMapNamed(colourMap));
+        screen = new BufferedImage(SIZE, SIZE, BufferedImage.TYPE_INT_RGB);
+        graphics = screen.createGraphics();
+    }
+
+    /**
+     * Releases the off-screen graphics context.
+     */
+    @TearDown
+    public void tearDown() {
+        graphics.dispose();
+    }
+
+    /**
+     * Colours a new frame and paints it, as after every render.
+     *
+     * @return the painted image
+     */
+    @Benchmark
+    @OperationsPerInvocation(PIXELS)
+    public BufferedImage paintNewFrame() {
+        panel.modelChanged();
+        panel.paintComponent(graphics);
+        return screen;
+    }
+
+    /**
+     * Paints the cached image, as for repaints that do not follow a render.
+     *
+     * @return the painted image
+     */
+    @Benchmark
+    @OperationsPerInvocation(PIXELS)
+    public BufferedImage repaintCachedFrame() {
+        panel.paintComponent(graphics);
+        return screen;
+    }
+}
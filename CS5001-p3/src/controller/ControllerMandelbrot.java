@@ -1,10 +1,15 @@
 package controller;
 
+import model.FractalKernel;
+import model.JuliaKernel;
+import model.JuliaPreview;
 import model.ModelMandelbrot;
 import view.MandelbrotPanel;
 import view.BlackWhiteColourMap;
 import view.BlueColourMap;
 import view.ColourMap;
+import view.EqualisedColourMap;
+import view.SmoothColourMap;
 
 import java.awt.*;
 import java.awt.event.*;
@@ -45,6 +50,9 @@ public class ControllerMandelbrot implements MouseListener, MouseMotionListener,
 
     private boolean isPanning = false; 
 
+    // Julia set preview following the mouse, if any
+    private JuliaPreview juliaPreview;
+
 
     /**
      * Wires the model, view panel, and UI controls together and registers listeners.
@@ -93,6 +101,38 @@ public class ControllerMandelbrot implements MouseListener, MouseMotionListener,
 
     }
 
+    /**
+     * Makes mouse moves over the Mandelbrot set request a preview of the Julia set of the point under the cursor.
+     *
+     * @param juliaPreview preview to drive, or null to stop previewing
+     */
+    public void setJuliaPreview(JuliaPreview juliaPreview) {
+        if (this.juliaPreview != null) {
+            this.juliaPreview.clear();
+        }
+        this.juliaPreview = juliaPreview;
+    }
+
+    @Override
+    public void mouseMoved(MouseEvent e) {
+        if (juliaPreview == null) {
+            return;
+        }
+        // Julia sets of this kind belong to points of the Mandelbrot set only
+        if (model.getKernel() != FractalKernel.MANDELBROT) {
+            juliaPreview.clear();
+            return;
+        }
+        juliaPreview.request(realAt(e.getX()), imagAt(e.getY()));
+    }
+
+    @Override
+    public void mouseExited(MouseEvent e) {
+        if (juliaPreview != null) {
+            juliaPreview.clear();
+        }
+    }
+
     @Override
     public void mousePressed(MouseEvent e) {
         dragStart = e.getPoint();
@@ -120,9 +160,8 @@ public class ControllerMandelbrot implements MouseListener, MouseMotionListener,
             // Live redraw optional — normally no rectangle for pan
             panel.repaint();
         } else {
-            // Zoom rectangle feedback
+            // Zoom rectangle feedback; the panel repaints only the rectangle's area
             panel.setDragEnd(dragEnd);
-            panel.repaint();
         }
     }
 
@@ -148,6 +187,28 @@ public class ControllerMandelbrot implements MouseListener, MouseMotionListener,
         panel.repaint();
     }
 
+    /**
+     * Ctrl-click on the Mandelbrot set opens the Julia set of the point clicked; undo or reset returns to it.
+     */
+    @Override
+    public void mouseClicked(MouseEvent e) {
+        if (!e.isControlDown() || !SwingUtilities.isLeftMouseButton(e)
+                || model.getKernel() != FractalKernel.MANDELBROT) {
+            return;
+        }
+        model.setKernel(new JuliaKernel(realAt(e.getX()), imagAt(e.getY())));
+    }
+
+    /** Real coordinate of a panel column, the point its pixels are sampled at. */
+    private double realAt(int x) {
+        return model.getMinReal() + x * model.getRealSpan() / model.getWidth();
+    }
+
+    /** Imaginary coordinate of a panel row. */
+    private double imagAt(int y) {
+        return model.getMinImag() + y * model.getImagSpan() / model.getHeight();
+    }
+
     /** Build a rectangle regardless of drag direction (drag can be left to right or right to left). */
     private Rectangle createRectangle(Point p1, Point p2) {
         int x = Math.min(p1.x, p2.x);
@@ -160,33 +221,14 @@ public class ControllerMandelbrot implements MouseListener, MouseMotionListener,
     
 
     /**
-     * Converts a rectangle in pixel coordinates into complex-plane coordinates
-     * and updates the model's viewport.
+     * Zooms the model's viewport into a rectangle in pixel coordinates; the model converts it into
+     * complex-plane coordinates, keeping deep views by their exact centre.
      */
     private void applyZoom(Rectangle r) {
         if (r.width <= 0 || r.height <= 0) {
             return; // Ignore degenerate selections
         }
-        int width = model.getWidth();
-        int height = model.getHeight();
-
-        double minReal = model.getMinReal();
-        double maxReal = model.getMaxReal();
-        double minImag = model.getMinImag();
-        double maxImag = model.getMaxImag();
-
-        double realPerPixel = (maxReal - minReal) / width;
-        double imagPerPixel = (maxImag - minImag) / height;
-
-        // New complex bounds
-        double newMinReal = minReal + r.x * realPerPixel;
-        double newMaxReal = minReal + (r.x + r.width) * realPerPixel;
-
-        double newMinImag = minImag + r.y * imagPerPixel;
-        double newMaxImag = minImag + (r.y + r.height) * imagPerPixel;
-
-        // Apply new viewing window
-        model.setViewWindow(newMinReal, newMaxReal, newMinImag, newMaxImag);
+        model.zoomToPixels(r.x, r.y, r.width, r.height);
     }
 
     /**
@@ -199,8 +241,9 @@ public class ControllerMandelbrot implements MouseListener, MouseMotionListener,
         int width = model.getWidth();
         int height = model.getHeight();
 
-        double realPerPixel = (model.getMaxReal() - model.getMinReal()) / width;
-        double imagPerPixel = (model.getMaxImag() - model.getMinImag()) / height;
+        // The spans, unlike the bounds, still resolve views past a magnification of 1e16
+        double realPerPixel = model.getRealSpan() / width;
+        double imagPerPixel = model.getImagSpan() / height;
 
         // Movement in opposite direction: dragging right means view moves left in the complex plane
         double deltaReal = -dx * realPerPixel;
@@ -298,6 +341,8 @@ public class ControllerMandelbrot implements MouseListener, MouseMotionListener,
         colourMaps.clear();
         addColourMap(new BlackWhiteColourMap());
         addColourMap(new BlueColourMap());
+        addColourMap(new SmoothColourMap(new BlueColourMap()));
+        addColourMap(new EqualisedColourMap(new BlueColourMap()));
     }
 
     private void addColourMap(ColourMap colourMap) {
@@ -328,6 +373,7 @@ public class ControllerMandelbrot implements MouseListener, MouseMotionListener,
         } finally {
             updatingColourMapSelection = false;
         }
+        model.setFractionalCounts(map.usesFractions());
         panel.setColourMap(map);
         model.setColorMapName(name);
     }
@@ -342,8 +388,5 @@ public class ControllerMandelbrot implements MouseListener, MouseMotionListener,
     }
 
     // Unused interface methods (required to compile)
-    @Override public void mouseMoved(MouseEvent e) {}
-    @Override public void mouseClicked(MouseEvent e) {}
     @Override public void mouseEntered(MouseEvent e) {}
-    @Override public void mouseExited(MouseEvent e) {}
 }
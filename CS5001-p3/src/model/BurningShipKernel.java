@@ -0,0 +1,74 @@
+package model;
+
+/**
+ * The Burning Ship fractal, (|Re z| + i|Im z|)^2 + c with z starting at 0 and c the pixel.
+ * Imaginary coordinates grow downwards on screen, so the ship is drawn upright.
+ */
+final class BurningShipKernel implements FractalKernel {
+
+    /** The only instance, {@link FractalKernel#BURNING_SHIP}. */
+    static final BurningShipKernel INSTANCE = new BurningShipKernel();
+
+    private BurningShipKernel() {
+    }
+
+    @Override
+    public String getName() {
+        return "Burning Ship";
+    }
+
+    @Override
+    public String getSpec() {
+        return "burning-ship";
+    }
+
+    @Override
+    public int escape(double x, double y, int maxIterations, double radiusSquared) {
+        int iterations = 0;
+        double zr = 0;
+        double zi = 0;
+        while (iterations < maxIterations) {
+            double zr2 = zr * zr;
+            double zi2 = zi * zi;
+            double nzi = Math.abs(2 * zr * zi) + y;
+            zr = zr2 - zi2 + x;
+            zi = nzi;
+            iterations++;
+            if (zr2 + zi2 > radiusSquared) {
+                break;
+            }
+        }
+        return iterations;
+    }
+
+    @Override
+    public int resume(double x, double y, double zr, double zi, int iterations, int maxIterations,
+                      double radiusSquared, double[] z) {
+        while (iterations < maxIterations) {
+            double zr2 = zr * zr;
+            double zi2 = zi * zi;
+            double nzi = Math.abs(2 * zr * zi) + y;
+            zr = zr2 - zi2 + x;
+            zi = nzi;
+            iterations++;
+            if (zr2 + zi2 > radiusSquared) {
+                z[0] = Double.POSITIVE_INFINITY;
+                z[1] = zr2 + zi2;
+                return iterations;
+            }
+        }
+        z[0] = zr;
+        z[1] = zi;
+        return iterations;
+    }
+
+    @Override
+    public MandelbrotState initialState(int maxIterations) {
+        return new MandelbrotState(-2.2, 1.3, -2.0, 1.0, maxIterations, this);
+    }
+
+    @Override
+    public String toString() {
+        return getSpec();
+    }
+}
@@ -0,0 +1,360 @@
+package model;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Renders views too deep for plain double arithmetic using perturbation theory.
+ * A single reference orbit at the centre of the view is iterated in {@link BigDecimal}
+ * and every pixel only iterates its small difference from that orbit in doubles:
+ * with Z the reference and C + dc the pixel,
+ * {@code dz_{n+1} = 2 Z_n dz_n + dz_n^2 + dc}.
+ *
+ * A pixel whose orbit becomes smaller than its difference from the reference has lost
+ * precision (a "glitch"); it is rebased onto the start of the reference orbit, which
+ * makes the same reference usable for every pixel in the view. Pixel deltas are plain
+ * doubles, so views are limited to pixel sizes above the smallest normal double.
+ *
+ * Counts are those of calcMandel for most pixels but not all: the delta is rounded differently
+ * from a plain double orbit, and a rebase restarts the orbit from a rounded value, so a pixel whose
+ * orbit lingers near the bailout or the boundary may escape at another iteration. The tests bound
+ * the share of such pixels at depths where doubles still resolve the view.
+ *
+ * The state overload takes the exact centre and extent of the window from {@link MandelbrotState}, as
+ * {@link ModelMandelbrot} keeps them, so the model reaches any depth the deltas resolve.
+ */
+public class DeepZoomCalculator {
+
+    /** Fewest significant digits used for the reference orbit. */
+    protected static final int MIN_PRECISION = 20;
+    /** Digits kept for the reference orbit beyond those needed to tell neighbouring pixels apart. */
+    protected static final int GUARD_DIGITS = 12;
+
+    private static final BigDecimal TWO = BigDecimal.valueOf(2);
+
+    /** Pool used to render tiles; the common pool unless one is supplied. */
+    private final ForkJoinPool pool;
+
+    /** Number of pixels whose orbit had to be rebased after a glitch, since the last reset. */
+    private final LongAdder glitchCorrections = new LongAdder();
+    /** Number of iterations executed since the last reset, reference orbit excluded. */
+    private final LongAdder iterations = new LongAdder();
+    /** CPU time of the threads that rendered, per thread. */
+    private final WorkerCpuTimes workerCpu = new WorkerCpuTimes();
+
+    /**
+     * Creates a calculator whose renders run on the common fork-join pool.
+     */
+    public DeepZoomCalculator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a calculator whose renders run on the given pool.
+     *
+     * @param pool fork-join pool used for the per-pixel work
+     */
+    public DeepZoomCalculator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * @return number of pixels rebased onto the reference orbit after a glitch since the last reset
+     */
+    public long getGlitchCorrectionCount() {
+        return glitchCorrections.sum();
+    }
+
+    /**
+     * Clears the glitch correction counter.
+     */
+    public void resetGlitchCorrectionCount() {
+        glitchCorrections.reset();
+    }
+
+    /**
+     * @return number of per-pixel iterations executed since the last reset, not counting the reference orbit
+     */
+    public long getIterationCount() {
+        return iterations.sum();
+    }
+
+    /**
+     * Sets the iteration counter back to zero.
+     */
+    public void resetIterationCount() {
+        iterations.reset();
+    }
+
+    /**
+     * Enables or disables measuring the CPU time each thread spends on pixels, as
+     * {@link MandelbrotCalculator#setWorkerCpuTiming} does.
+     *
+     * @param workerCpuTiming true to measure CPU time per thread
+     */
+    public void setWorkerCpuTiming(boolean workerCpuTiming) {
+        workerCpu.setEnabled(workerCpuTiming);
+    }
+
+    /**
+     * @return CPU nanoseconds spent on pixels per thread name, since the last reset, while timing was enabled
+     */
+    public Map<String, Long> getWorkerCpuNanos() {
+        return workerCpu.snapshot();
+    }
+
+    /**
+     * Clears the CPU times measured per thread.
+     */
+    public void resetWorkerCpuNanos() {
+        workerCpu.reset();
+    }
+
+    /**
+     * Renders the given view into frame around the state's exact centre, with steps of its span over the frame
+     * size. For windows given by their bounds this is the pixel grid of {@link MandelbrotCalculator#calcMandelbrotSet}:
+     * pixel (x, y) is the point {@code (minReal + x * realStep, minImag + y * imaginaryStep)}. Windows given by
+     * their centre keep their full precision however deep they are.
+     *
+     * @param frame frame to fill; its size sets the resolution
+     * @param state view window and iteration cap
+     * @param radiusSquared the squared bailout radius
+     * @param cancelled polled once per row; when it returns true the render stops with a CancellationException
+     */
+    public void calcMandelbrotFrame(IterationFrame frame, MandelbrotState state, double radiusSquared,
+                                    BooleanSupplier cancelled) {
+        if (state.centreReal == null || state.centreImag == null) {
+            throw new IllegalArgumentException("View window must be finite");
+        }
+        double realStep = state.realSpan / frame.getWidth();
+        double imaginaryStep = state.imagSpan / frame.getHeight();
+        calcMandelbrotFrame(frame, state.centreReal, state.centreImag, realStep, imaginaryStep,
+                state.maxIterations, radiusSquared, cancelled);
+    }
+
+    /**
+     * Renders a view given by its centre in arbitrary precision, so that the view can be
+     * deeper than a double-precision window allows. Pixel (x, y) is the point
+     * {@code centre + ((x - width / 2) * realStep, (y - height / 2) * imaginaryStep)}.
+     *
+     * @param frame frame to fill; its size sets the resolution
+     * @param centreReal real coordinate of the centre of the view
+     * @param centreImaginary imaginary coordinate of the centre of the view
+     * @param realStep distance between neighbouring pixels along the real axis
+     * @param imaginaryStep distance between neighbouring pixels along the imaginary axis
+     * @param maxIterations the maximum number of iterations over which to iterate the equation.
+     * @param radiusSquared the squared bailout radius.
+     * @param cancelled polled once per row; when it returns true the render stops with a CancellationException
+     */
+    public void calcMandelbrotFrame(IterationFrame frame, BigDecimal centreReal, BigDecimal centreImaginary,
+                                    double realStep, double imaginaryStep, int maxIterations,
+                                    double radiusSquared, BooleanSupplier cancelled) {
+        if (!(realStep > 0) || !(imaginaryStep > 0)) {
+            throw new IllegalArgumentException("Pixel steps must be positive");
+        }
+        MathContext precision = precisionFor(Math.min(realStep, imaginaryStep));
+        ReferenceOrbit reference = referenceOrbit(centreReal, centreImaginary, maxIterations, radiusSquared,
+                precision, cancelled);
+        pool.invoke(new DeepTileTask(frame, 0, 0, frame.getWidth(), frame.getHeight(), reference,
+                realStep, imaginaryStep, maxIterations, radiusSquared, cancelled));
+    }
+
+    /**
+     * @return enough significant digits to resolve steps of the given size around coordinates of order one
+     */
+    static MathContext precisionFor(double step) {
+        int digits = (int) Math.ceil(-Math.log10(step)) + GUARD_DIGITS;
+        return new MathContext(Math.max(MIN_PRECISION, digits), RoundingMode.HALF_EVEN);
+    }
+
+    /**
+     * Iterates Z from zero at C = (cReal, cImaginary) in arbitrary precision, keeping each
+     * value rounded to double, until Z escapes or maxIterations is reached.
+     */
+    static ReferenceOrbit referenceOrbit(BigDecimal cReal, BigDecimal cImaginary, int maxIterations,
+                                         double radiusSquared, MathContext precision, BooleanSupplier cancelled) {
+        double[] real = new double[maxIterations + 1];
+        double[] imaginary = new double[maxIterations + 1];
+        BigDecimal zr = BigDecimal.ZERO;
+        BigDecimal zi = BigDecimal.ZERO;
+        int length = 1;
+        while (length <= maxIterations) {
+            if ((length & 0xFF) == 0 && cancelled.getAsBoolean()) {
+                throw new CancellationException("Mandelbrot render cancelled");
+            }
+            BigDecimal zr2 = zr.multiply(zr, precision);
+            BigDecimal zi2 = zi.multiply(zi, precision);
+            BigDecimal nzi = TWO.multiply(zr).multiply(zi, precision).add(cImaginary, precision);
+            zr = withoutScale(zr2.subtract(zi2).add(cReal, precision));
+            zi = withoutScale(nzi);
+            real[length] = zr.doubleValue();
+            imaginary[length] = zi.doubleValue();
+            length++;
+            if (real[length - 1] * real[length - 1] + imaginary[length - 1] * imaginary[length - 1] > radiusSquared) {
+                break;
+            }
+        }
+        return new ReferenceOrbit(real, imaginary, length);
+    }
+
+    /**
+     * Zero keeps growing its scale under multiplication, which slows every later operation, so it is replaced
+     * by the plain constant. Non-zero values are bounded by the precision already.
+     */
+    private static BigDecimal withoutScale(BigDecimal value) {
+        return value.signum() == 0 ? BigDecimal.ZERO : value;
+    }
+
+    /**
+     * Iteration count of the pixel C + (dcReal, dcImaginary), counted as calcMandel counts them.
+     * If fractions is not null, the pixel's escape fraction is stored in it at index.
+     */
+    private int calcPerturbed(ReferenceOrbit reference, double dcReal, double dcImaginary,
+                              int maxIterations, double radiusSquared, float[] fractions, int index) {
+        double[] refReal = reference.real;
+        double[] refImaginary = reference.imaginary;
+        int last = reference.length - 1;
+        double dzr = 0;
+        double dzi = 0;
+        int m = 0;
+        boolean glitched = false;
+        double escapedMagnitude = 0;
+        int iterations = 0;
+        while (iterations < maxIterations) {
+            // Full orbit value Z_m + dz
+            double zr = refReal[m] + dzr;
+            double zi = refImaginary[m] + dzi;
+            double magnitude = zr * zr + zi * zi;
+            iterations++;
+            if (magnitude > radiusSquared) {
+                escapedMagnitude = magnitude;
+                break;
+            }
+            boolean glitch = magnitude < dzr * dzr + dzi * dzi;
+            if (glitch || m == last) {
+                // Rebase onto Z_0 = 0: the delta becomes the full value, which is exact
+                glitched |= glitch;
+                dzr = zr;
+                dzi = zi;
+                m = 0;
+            }
+            double Zr = refReal[m];
+            double Zi = refImaginary[m];
+            double ndzr = 2 * (Zr * dzr - Zi * dzi) + dzr * dzr - dzi * dzi + dcReal;
+            double ndzi = 2 * (Zr * dzi + Zi * dzr) + 2 * dzr * dzi + dcImaginary;
+            dzr = ndzr;
+            dzi = ndzi;
+            m++;
+        }
+        if (glitched) {
+            glitchCorrections.increment();
+        }
+        if (fractions != null) {
+            fractions[index] = escapedMagnitude > 0 ? MandelbrotCalculator.escapeFraction(escapedMagnitude, radiusSquared) : 0f;
+        }
+        return iterations;
+    }
+
+    /** Reference orbit Z_0 .. Z_(length-1) rounded to doubles; the last value may have escaped. */
+    static final class ReferenceOrbit {
+        final double[] real;
+        final double[] imaginary;
+        final int length;
+
+        ReferenceOrbit(double[] real, double[] imaginary, int length) {
+            this.real = real;
+            this.imaginary = imaginary;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Fork-join task rendering the pixels in [x0, x1) x [y0, y1) as perturbations of the reference orbit.
+     */
+    private final class DeepTileTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final IterationFrame target;
+        private final int x0;
+        private final int y0;
+        private final int x1;
+        private final int y1;
+        private final ReferenceOrbit reference;
+        private final double realStep;
+        private final double imaginaryStep;
+        private final int maxIterations;
+        private final double radiusSquared;
+        private final BooleanSupplier cancelled;
+
+        DeepTileTask(IterationFrame target, int x0, int y0, int x1, int y1, ReferenceOrbit reference,
+                     double realStep, double imaginaryStep, int maxIterations, double radiusSquared,
+                     BooleanSupplier cancelled) {
+            this.target = target;
+            this.x0 = x0;
+            this.y0 = y0;
+            this.x1 = x1;
+            this.y1 = y1;
+            this.reference = reference;
+            this.realStep = realStep;
+            this.imaginaryStep = imaginaryStep;
+            this.maxIterations = maxIterations;
+            this.radiusSquared = radiusSquared;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected void compute() {
+            int w = x1 - x0;
+            int h = y1 - y0;
+            if (w <= MandelbrotCalculator.TILE_SIZE && h <= MandelbrotCalculator.TILE_SIZE) {
+                renderTile();
+                return;
+            }
+            if (w >= h) {
+                int mid = x0 + w / 2;
+                invokeAll(split(x0, y0, mid, y1), split(mid, y0, x1, y1));
+            } else {
+                int mid = y0 + h / 2;
+                invokeAll(split(x0, y0, x1, mid), split(x0, mid, x1, y1));
+            }
+        }
+
+        private void renderTile() {
+            int width = target.getWidth();
+            int[] pixels = target.getPixels();
+            float[] fractions = target.getFractions();
+            double halfWidth = width / 2.0;
+            double halfHeight = target.getHeight() / 2.0;
+            long cpuStart = workerCpu.start();
+            long executed = 0;
+            for (int y = y0; y < y1; y++) {
+                if (cancelled.getAsBoolean()) {
+                    throw new CancellationException("Mandelbrot render cancelled");
+                }
+                double dcImaginary = (y - halfHeight) * imaginaryStep;
+                int row = y * width;
+                for (int x = x0; x < x1; x++) {
+                    double dcReal = (x - halfWidth) * realStep;
+                    pixels[row + x] = calcPerturbed(reference, dcReal, dcImaginary, maxIterations, radiusSquared,
+                            fractions, row + x);
+                    executed += pixels[row + x];
+                }
+            }
+            iterations.add(executed);
+            workerCpu.stop(cpuStart);
+        }
+
+        private DeepTileTask split(int nx0, int ny0, int nx1, int ny1) {
+            return new DeepTileTask(target, nx0, ny0, nx1, ny1, reference, realStep, imaginaryStep,
+                    maxIterations, radiusSquared, cancelled);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package model;
+
+/**
+ * Sub-samples of the pixels of a frame that lie on an edge between iteration counts, produced by
+ * {@link MandelbrotCalculator#calcEdgeSamples} for adaptive anti-aliasing. Row i of the samples frame
+ * holds the grid x grid sub-samples of refined pixel i, row by row; they are spread evenly over the
+ * pixel's area, centred on the point the pixel itself was sampled at.
+ */
+public final class EdgeSamples {
+
+    private final int grid;
+    private final int[] pixels;
+    private final IterationFrame samples;
+
+    EdgeSamples(int grid, int[] pixels, IterationFrame samples) {
+        this.grid = grid;
+        this.pixels = pixels;
+        this.samples = samples;
+    }
+
+    /**
+     * @return sub-samples per pixel along each axis
+     */
+    public int getGrid() {
+        return grid;
+    }
+
+    /**
+     * @return number of refined pixels
+     */
+    public int size() {
+        return pixels.length;
+    }
+
+    /**
+     * @return frame indices of the refined pixels, in row-major order
+     */
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    /**
+     * @return iteration counts of the sub-samples, grid * grid per row and one row per refined pixel,
+     *         with fractions if the source frame had them; null if no pixel was refined
+     */
+    public IterationFrame getSamples() {
+        return samples;
+    }
+}
@@ -0,0 +1,146 @@
+package model;
+
+/**
+ * Iteration formula of an escape-time fractal, rendered by {@link MandelbrotCalculator} for the kernel
+ * of a {@link MandelbrotState}. Kernels are handed one point at a time and run the whole orbit in their
+ * own loop, so the loop of every kernel is as specialised as the hard-coded Mandelbrot loop was: no calls,
+ * no boxing and no branching on the kind of fractal inside it. Kernels are immutable values; two kernels
+ * that render the same fractal are equal, so cached frames are found again.
+ *
+ * Kernels are written and read as short specifications, see {@link #getSpec} and {@link #parse}.
+ */
+public interface FractalKernel {
+
+    /** z^2 + c with z starting at 0; the calculator renders it with its own optimised loops. */
+    FractalKernel MANDELBROT = MandelbrotKernel.INSTANCE;
+
+    /** (|Re z| + i|Im z|)^2 + c with z starting at 0. */
+    FractalKernel BURNING_SHIP = BurningShipKernel.INSTANCE;
+
+    /**
+     * @return name to show in the UI
+     */
+    String getName();
+
+    /**
+     * @return specification read back by {@link #parse}, e.g. {@code julia:-0.8,0.156}
+     */
+    String getSpec();
+
+    /**
+     * Iterates the point until it escapes or the cap is reached.
+     *
+     * @param x real coordinate of the pixel
+     * @param y imaginary coordinate of the pixel
+     * @param maxIterations the maximum number of iterations
+     * @param radiusSquared the squared bailout radius
+     * @return the number of iterations for Z to escape, or maxIterations if it never escaped
+     */
+    int escape(double x, double y, int maxIterations, double radiusSquared);
+
+    /**
+     * Continues the orbit of a point from a given Z and reports where it stopped, like
+     * {@link MandelbrotCalculator}'s orbit loop: resuming an orbit stopped at one cap gives the same result as
+     * iterating from the start to a higher cap.
+     *
+     * @param x real coordinate of the pixel
+     * @param y imaginary coordinate of the pixel
+     * @param zr real part of Z to start from
+     * @param zi imaginary part of Z to start from
+     * @param iterations number of iterations already performed to reach Z
+     * @param maxIterations the maximum number of iterations
+     * @param radiusSquared the squared bailout radius
+     * @param z receives the final Z as {real, imaginary}, or if the orbit escaped positive infinity as the real
+     *          part and |z|^2 of the first Z outside the radius as the imaginary part
+     * @return the number of iterations for Z to escape, or maxIterations if it never escaped
+     */
+    int resume(double x, double y, double zr, double zi, int iterations, int maxIterations, double radiusSquared,
+               double[] z);
+
+    /**
+     * Iterates the point from its first Z, reporting where it stopped as {@link #resume} does.
+     * The default starts at Z = 0.
+     *
+     * @param x real coordinate of the pixel
+     * @param y imaginary coordinate of the pixel
+     * @param maxIterations the maximum number of iterations
+     * @param radiusSquared the squared bailout radius
+     * @param z receives the final Z, as for resume
+     * @return the number of iterations for Z to escape, or maxIterations if it never escaped
+     */
+    default int orbit(double x, double y, int maxIterations, double radiusSquared, double[] z) {
+        return resume(x, y, 0, 0, 0, maxIterations, radiusSquared, z);
+    }
+
+    /**
+     * Fraction of an iteration by which a point escaped, for smooth colouring. The default is that of
+     * a degree 2 formula; see {@link MandelbrotCalculator#escapeFraction}.
+     *
+     * @param magnitudeSquared |z|^2 of the first Z outside the bailout radius
+     * @param radiusSquared the squared bailout radius
+     * @return the fraction, in [0, 1]
+     */
+    default float escapeFraction(double magnitudeSquared, double radiusSquared) {
+        return MandelbrotCalculator.escapeFraction(magnitudeSquared, radiusSquared);
+    }
+
+    /**
+     * Tells whether the set is connected and the regions inside its escape-count level curves are simply
+     * connected, so that a region enclosed by points of one count holds only that count. The subdivision
+     * renderer fills rectangles only for such kernels. The default is false.
+     *
+     * @return true if enclosed regions may be filled
+     */
+    default boolean isSimplyConnected() {
+        return false;
+    }
+
+    /**
+     * @param maxIterations iteration cap of the view
+     * @return view showing the whole fractal
+     */
+    MandelbrotState initialState(int maxIterations);
+
+    /**
+     * Reads a kernel specification: {@code mandelbrot}, {@code julia:<real>,<imaginary>},
+     * {@code multibrot:<degree>} or {@code burning-ship}.
+     *
+     * @param spec specification, case-insensitive
+     * @return the kernel it describes
+     * @throws IllegalArgumentException if the specification is not understood
+     */
+    static FractalKernel parse(String spec) {
+        String trimmed = spec.trim().toLowerCase();
+        int colon = trimmed.indexOf(':');
+        String kind = colon < 0 ? trimmed : trimmed.substring(0, colon);
+        String arguments = colon < 0 ? "" : trimmed.substring(colon + 1);
+        try {
+            switch (kind) {
+                case "mandelbrot":
+                    if (colon < 0) {
+                        return MANDELBROT;
+                    }
+                    break;
+                case "burning-ship":
+                    if (colon < 0) {
+                        return BURNING_SHIP;
+                    }
+                    break;
+                case "multibrot":
+                    return new MultibrotKernel(Integer.parseInt(arguments.trim()));
+                case "julia": {
+                    String[] c = arguments.split(",");
+                    if (c.length == 2) {
+                        return new JuliaKernel(Double.parseDouble(c[0].trim()), Double.parseDouble(c[1].trim()));
+                    }
+                    break;
+                }
+                default:
+                    break;
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid fractal kernel: " + spec, e);
+        }
+        throw new IllegalArgumentException("Invalid fractal kernel: " + spec);
+    }
+}
@@ -0,0 +1,161 @@
+package model;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Iteration counts for one rendered image, stored row-major in a single flat array.
+ * Pixel (x, y) lives at index {@code y * width + x}. Frames are meant to be reused
+ * between renders, so callers should not hold on to the pixel array of a frame they do not own.
+ *
+ * A frame can also carry a fraction per pixel for smooth colouring. The fraction of a pixel that
+ * escaped is {@code log2(ln |z|^2 / ln radiusSquared)}, between 0 and 1, taken from the first Z outside
+ * the bailout radius, and {@code count - fraction} is its continuous (normalised) iteration count.
+ * Pixels that did not escape have fraction 0. Calculators fill fractions only for frames that have them.
+ */
+public class IterationFrame {
+
+    /** Pixels counted by one parallel band of {@link #histogram}. */
+    private static final int HISTOGRAM_BAND_PIXELS = 1 << 16;
+
+    private final int width;
+    private final int height;
+    private final int[] pixels;
+    private float[] fractions;
+
+    /**
+     * Allocates a frame of the given size with every pixel set to zero.
+     *
+     * @param width frame width in pixels
+     * @param height frame height in pixels
+     */
+    public IterationFrame(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Frame dimensions must be positive");
+        }
+        this.width = width;
+        this.height = height;
+        this.pixels = new int[width * height];
+    }
+
+    /**
+     * @return frame width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return frame height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return the backing row-major array of iteration counts
+     */
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Gives the frame a fraction per pixel, all zero, so that renders into it record them.
+     * Has no effect if the frame has fractions already.
+     */
+    public void enableFractions() {
+        if (fractions == null) {
+            fractions = new float[pixels.length];
+        }
+    }
+
+    /**
+     * Drops the fractions, so that renders into the frame no longer record them.
+     */
+    public void disableFractions() {
+        fractions = null;
+    }
+
+    /**
+     * @return the backing row-major array of fractions, or null if the frame does not record them
+     */
+    public float[] getFractions() {
+        return fractions;
+    }
+
+    /**
+     * @param x column of the pixel
+     * @param y row of the pixel
+     * @return iteration count stored for the pixel
+     */
+    public int get(int x, int y) {
+        return pixels[y * width + x];
+    }
+
+    /**
+     * @param x column of the pixel
+     * @param y row of the pixel
+     * @param iterations iteration count to store
+     */
+    public void set(int x, int y, int iterations) {
+        pixels[y * width + x] = iterations;
+    }
+
+    /**
+     * Copies every pixel of another frame of the same size into this one, with its fractions if both
+     * frames have them. If only this frame has fractions, they are set to zero.
+     *
+     * @param other frame to copy from
+     */
+    public void copyFrom(IterationFrame other) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException("Frame dimensions differ");
+        }
+        System.arraycopy(other.pixels, 0, pixels, 0, pixels.length);
+        if (fractions != null) {
+            if (other.fractions != null) {
+                System.arraycopy(other.fractions, 0, fractions, 0, fractions.length);
+            } else {
+                Arrays.fill(fractions, 0f);
+            }
+        }
+    }
+
+    /**
+     * Counts the pixels per iteration count, in parallel bands of rows each with its own counts,
+     * which are added up at the end.
+     *
+     * @param maxIterations iteration cap of the render; larger counts are counted as this
+     * @return histogram with maxIterations + 1 entries, indexed by iteration count
+     */
+    public long[] histogram(int maxIterations) {
+        int bands = Math.max(1, Math.min(height, pixels.length / HISTOGRAM_BAND_PIXELS));
+        return IntStream.range(0, bands).parallel().mapToObj(band -> {
+            long[] counts = new long[maxIterations + 1];
+            int end = (int) ((long) height * (band + 1) / bands) * width;
+            for (int i = (int) ((long) height * band / bands) * width; i < end; i++) {
+                counts[Math.max(0, Math.min(maxIterations, pixels[i]))]++;
+            }
+            return counts;
+        }).reduce((a, b) -> {
+            for (int i = 0; i < a.length; i++) {
+                a[i] += b[i];
+            }
+            return a;
+        }).get();
+    }
+
+    /**
+     * Copies the frame into a newly allocated [y][x] array, the layout used by
+     * {@link MandelbrotCalculator#calcMandelbrotSet}.
+     *
+     * @return the iteration counts as a 2-D array
+     */
+    public int[][] toArray() {
+        int[][] data = new int[height][width];
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(pixels, y * width, data[y], 0, width);
+        }
+        return data;
+    }
+}
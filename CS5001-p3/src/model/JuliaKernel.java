@@ -0,0 +1,135 @@
+package model;
+
+/**
+ * The Julia set of a constant c, z^2 + c with z starting at the pixel.
+ */
+public final class JuliaKernel implements FractalKernel {
+
+    /** Iterations after which C is taken to be in the Mandelbrot set, see {@link #isSimplyConnected}. */
+    static final int CONNECTED_ITERATIONS = 1000;
+
+    private final double cReal;
+    private final double cImaginary;
+
+    /**
+     * @param cReal real component of the constant C
+     * @param cImaginary imaginary component of the constant C
+     */
+    public JuliaKernel(double cReal, double cImaginary) {
+        if (!Double.isFinite(cReal) || !Double.isFinite(cImaginary)) {
+            throw new IllegalArgumentException("Julia constant must be finite");
+        }
+        this.cReal = cReal;
+        this.cImaginary = cImaginary;
+    }
+
+    /**
+     * @return real component of the constant C
+     */
+    public double getReal() {
+        return cReal;
+    }
+
+    /**
+     * @return imaginary component of the constant C
+     */
+    public double getImaginary() {
+        return cImaginary;
+    }
+
+    @Override
+    public String getName() {
+        return String.format("Julia (%.4g, %.4g)", cReal, cImaginary);
+    }
+
+    @Override
+    public String getSpec() {
+        return "julia:" + cReal + "," + cImaginary;
+    }
+
+    @Override
+    public int escape(double x, double y, int maxIterations, double radiusSquared) {
+        double cr = cReal;
+        double ci = cImaginary;
+        int iterations = 0;
+        double zr = x;
+        double zi = y;
+        while (iterations < maxIterations) {
+            double zr2 = zr * zr;
+            double zi2 = zi * zi;
+            double nzi = 2 * zr * zi + ci;
+            zr = zr2 - zi2 + cr;
+            zi = nzi;
+            iterations++;
+            if (zr2 + zi2 > radiusSquared) {
+                break;
+            }
+        }
+        return iterations;
+    }
+
+    @Override
+    public int resume(double x, double y, double zr, double zi, int iterations, int maxIterations,
+                      double radiusSquared, double[] z) {
+        double cr = cReal;
+        double ci = cImaginary;
+        while (iterations < maxIterations) {
+            double zr2 = zr * zr;
+            double zi2 = zi * zi;
+            double nzi = 2 * zr * zi + ci;
+            zr = zr2 - zi2 + cr;
+            zi = nzi;
+            iterations++;
+            if (zr2 + zi2 > radiusSquared) {
+                z[0] = Double.POSITIVE_INFINITY;
+                z[1] = zr2 + zi2;
+                return iterations;
+            }
+        }
+        z[0] = zr;
+        z[1] = zi;
+        return iterations;
+    }
+
+    @Override
+    public int orbit(double x, double y, int maxIterations, double radiusSquared, double[] z) {
+        return resume(x, y, x, y, 0, maxIterations, radiusSquared, z);
+    }
+
+    /**
+     * {@inheritDoc} A Julia set is connected exactly when C lies in the Mandelbrot set, which is tested
+     * to CONNECTED_ITERATIONS; for C outside it the set is dust and is never filled.
+     */
+    @Override
+    public boolean isSimplyConnected() {
+        return FractalKernel.MANDELBROT.escape(cReal, cImaginary, CONNECTED_ITERATIONS,
+                MandelbrotCalculator.DEFAULT_RADIUS_SQUARED) == CONNECTED_ITERATIONS;
+    }
+
+    @Override
+    public MandelbrotState initialState(int maxIterations) {
+        return new MandelbrotState(-1.75, 1.75, -1.75, 1.75, maxIterations, this);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof JuliaKernel)) {
+            return false;
+        }
+        JuliaKernel other = (JuliaKernel) o;
+        return Double.compare(cReal, other.cReal) == 0 && Double.compare(cImaginary, other.cImaginary) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Double.hashCode(cReal) + Double.hashCode(cImaginary);
+    }
+
+    @Override
+    public String toString() {
+        return getSpec();
+    }
+}
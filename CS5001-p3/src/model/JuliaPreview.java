@@ -0,0 +1,268 @@
+package model;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Small Julia set image for the point under the mouse, re-rendered on every move.
+ *
+ * Previews render on a render lane of their own: one thread with room for one waiting request,
+ * separate from the model's render thread and from the fork-join pool its renders use, so a burst
+ * of mouse moves never delays the main view. A new request replaces the one waiting and stops the
+ * one rendering at its next row; only the latest point is ever published. Frames are double
+ * buffered: renders write the back frame, and the front frame is only read through
+ * {@link #readFrame}, which holds the swap off until the reader is done.
+ */
+public class JuliaPreview implements AutoCloseable {
+
+    /** Default edge length of the preview in pixels. */
+    public static final int DEFAULT_SIZE = 200;
+    /** Default iteration cap; enough for the shape of a Julia set, and cheap enough for every frame. */
+    public static final int DEFAULT_MAX_ITERATIONS = 150;
+
+    private final int width;
+    private final int height;
+    private final ThreadPoolExecutor lane;
+    // Sequential renders only, so the shared fork-join pool is never used
+    private final MandelbrotCalculator calculator = new MandelbrotCalculator();
+    private final AtomicLong requestedGeneration = new AtomicLong();
+    private final LongAdder rendered = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final List<ModelListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile Executor notificationExecutor = Runnable::run;
+    private volatile int maxIterations = DEFAULT_MAX_ITERATIONS;
+    private volatile long lastRenderNanos;
+
+    private IterationFrame frontFrame;
+    private IterationFrame backFrame;
+    /** Kernel shown by the front frame, or null while nothing is shown. */
+    private JuliaKernel shown;
+    private int shownIterations;
+
+    /**
+     * Creates a preview of the default size.
+     */
+    public JuliaPreview() {
+        this(DEFAULT_SIZE, DEFAULT_SIZE);
+    }
+
+    /**
+     * @param width preview width in pixels
+     * @param height preview height in pixels
+     */
+    public JuliaPreview(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Preview dimensions must be positive");
+        }
+        this.width = width;
+        this.height = height;
+        this.frontFrame = new IterationFrame(width, height);
+        this.backFrame = new IterationFrame(width, height);
+        // One thread, one waiting request: a newer request takes the place of the waiting one
+        this.lane = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(1), r -> {
+            Thread t = new Thread(r, "julia-preview");
+            t.setDaemon(true);
+            // A hint that the main view's render threads come first
+            t.setPriority(Thread.NORM_PRIORITY - 1);
+            return t;
+        }, (r, executor) -> {
+            if (!executor.isShutdown()) {
+                if (executor.getQueue().poll() != null) {
+                    dropped.increment();
+                }
+                executor.execute(r);
+            }
+        });
+    }
+
+    /**
+     * Asks for the Julia set of a point. Returns immediately; a request still waiting or rendering
+     * is abandoned in favour of this one.
+     *
+     * @param cReal real component of the constant C
+     * @param cImaginary imaginary component of the constant C
+     */
+    public void request(double cReal, double cImaginary) {
+        JuliaKernel kernel = new JuliaKernel(cReal, cImaginary);
+        long generation = requestedGeneration.incrementAndGet();
+        MandelbrotState state = kernel.initialState(maxIterations);
+        lane.execute(() -> render(state, generation));
+    }
+
+    /**
+     * Abandons any pending request and stops showing a preview.
+     */
+    public void clear() {
+        requestedGeneration.incrementAndGet();
+        synchronized (this) {
+            if (shown == null) {
+                return;
+            }
+            shown = null;
+        }
+        notifyListeners();
+    }
+
+    private void render(MandelbrotState state, long generation) {
+        if (requestedGeneration.get() != generation) {
+            dropped.increment();
+            return;
+        }
+        IterationFrame target;
+        synchronized (this) {
+            target = backFrame;
+        }
+        long start = System.nanoTime();
+        try {
+            calculator.calcMandelbrotFrameSequential(target, state, MandelbrotCalculator.DEFAULT_RADIUS_SQUARED,
+                    () -> requestedGeneration.get() != generation);
+        } catch (CancellationException e) {
+            dropped.increment();
+            return;
+        }
+        lastRenderNanos = System.nanoTime() - start;
+        synchronized (this) {
+            if (requestedGeneration.get() != generation) {
+                dropped.increment();
+                return;
+            }
+            backFrame = frontFrame;
+            frontFrame = target;
+            shown = (JuliaKernel) state.kernel;
+            shownIterations = state.maxIterations;
+        }
+        rendered.increment();
+        notifyListeners();
+    }
+
+    private void notifyListeners() {
+        notificationExecutor.execute(() -> {
+            for (ModelListener listener : listeners) {
+                listener.modelChanged();
+            }
+        });
+    }
+
+    /**
+     * Lets a reader use the front frame, e.g. to colour it, without a render swapping it out meanwhile.
+     * The reader must not keep the frame.
+     *
+     * @param reader receives the front frame if a preview is shown
+     * @return false if no preview is shown
+     */
+    public synchronized boolean readFrame(Consumer<IterationFrame> reader) {
+        if (shown == null) {
+            return false;
+        }
+        reader.accept(frontFrame);
+        return true;
+    }
+
+    /**
+     * @return Julia set shown, or null while no preview is shown
+     */
+    public synchronized JuliaKernel getKernel() {
+        return shown;
+    }
+
+    /**
+     * @return iteration cap of the preview shown
+     */
+    public synchronized int getShownIterations() {
+        return shownIterations;
+    }
+
+    /**
+     * Sets the iteration cap of later previews.
+     *
+     * @param maxIterations iteration cap
+     */
+    public void setMaxIterations(int maxIterations) {
+        if (maxIterations <= 0) {
+            throw new IllegalArgumentException("Iteration cap must be positive");
+        }
+        this.maxIterations = maxIterations;
+    }
+
+    /**
+     * @return iteration cap of later previews
+     */
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    /**
+     * Sets the executor that delivers change notifications, e.g. the event dispatch thread.
+     *
+     * @param notificationExecutor executor for listener calls; they run on the preview thread by default
+     */
+    public void setNotificationExecutor(Executor notificationExecutor) {
+        this.notificationExecutor = notificationExecutor;
+    }
+
+    /**
+     * @param listener notified whenever a preview is published or cleared
+     */
+    public void addListener(ModelListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * @param listener listener to remove
+     */
+    public void removeListener(ModelListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * @return preview width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return preview height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return previews published so far
+     */
+    public long getRenderedCount() {
+        return rendered.sum();
+    }
+
+    /**
+     * @return requests abandoned for a newer one, whether still waiting or part rendered
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * @return time the last published preview took to render, in nanoseconds
+     */
+    public long getLastRenderNanos() {
+        return lastRenderNanos;
+    }
+
+    /**
+     * Stops the render lane; requests made afterwards are ignored.
+     */
+    @Override
+    public void close() {
+        requestedGeneration.incrementAndGet();
+        lane.shutdownNow();
+    }
+}
@@ -0,0 +1,27 @@
+package model;
+
+/**
+ * Iterates the Mandelbrot formula for several adjacent points of one row together, for the tiled renderers of
+ * {@link MandelbrotCalculator}. Every lane performs exactly the arithmetic of calcMandel without the interior
+ * test, so the counts are identical to it; callers answer interior points themselves.
+ */
+interface LaneKernel {
+
+    /**
+     * @return number of points iterated together
+     */
+    int lanes();
+
+    /**
+     * @param cReal the real components of the points, one per lane
+     * @param cImaginary the shared imaginary component
+     * @param maxIterations the maximum number of iterations over which to iterate the equation.
+     * @param radiusSquared the squared bailout radius.
+     * @param result receives the iteration count of each lane
+     * @param laneZ if not null, receives the final Z of each lane as (real, imaginary) pairs, and for lanes that
+     *              escaped positive infinity as the real part and |z|^2 of the first Z outside the radius as the
+     *              imaginary part
+     */
+    void iterate(double[] cReal, double cImaginary, int maxIterations, double radiusSquared, int[] result,
+                 double[] laneZ);
+}
@@ -44,8 +44,19 @@ either expressed or implied, of the FreeBSD Project.
 
 package model;
 
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
 /**
- * Performs Mandelbrot set calculations given viewport parameters.
+ * Performs Mandelbrot set calculations given viewport parameters. Views described by a {@link MandelbrotState}
+ * are rendered with the state's {@link FractalKernel}, so the same renderers also draw Julia sets and other fractals.
  */
 public class MandelbrotCalculator {
 
@@ -64,6 +75,399 @@ public class MandelbrotCalculator {
     // Default parameter values
     /** Default bailout radius squared. */
     protected static final double DEFAULT_RADIUS_SQUARED = 4.0;
+
+    /** Edge length in pixels below which a tile is rendered directly instead of being split. */
+    protected static final int TILE_SIZE = 32;
+
+    /** Natural logarithm of 2, for base-2 logarithms. */
+    private static final double LN2 = Math.log(2);
+
+    /** Cancellation check used by the public methods that cannot be cancelled. */
+    private static final BooleanSupplier NEVER_CANCELLED = () -> false;
+
+    /** Distance within which two orbit values are treated as the same point by periodicity checking. */
+    protected static final double PERIODICITY_TOLERANCE = 1e-13;
+
+    /** Rectangles with fewer pixels than this along either side are evaluated in full by the subdivision renderer. */
+    protected static final int MIN_SUBDIVISION = 8;
+
+    /**
+     * Rectangles whose border lies in the set are evaluated in full by the subdivision renderer when either side is
+     * shorter than this: filaments pinched between two bulbs slip between their border samples.
+     */
+    protected static final int MIN_SET_FILL = 16;
+
+    /** Number of points iterated together, in scalar arithmetic, by the interleaved kernel. */
+    protected static final int INTERLEAVED = 4;
+
+    /** The interleaved kernel as a lane kernel, see calcMandelInterleaved. */
+    private static final LaneKernel INTERLEAVED_KERNEL = new LaneKernel() {
+        @Override
+        public int lanes() {
+            return INTERLEAVED;
+        }
+
+        @Override
+        public void iterate(double[] cReal, double cImaginary, int maxIterations, double radiusSquared, int[] result,
+                            double[] laneZ) {
+            calcMandelInterleaved(cReal, cImaginary, maxIterations, radiusSquared, result, laneZ);
+        }
+    };
+
+    /** Lane kernel on the Vector API, or null if it was not compiled or jdk.incubator.vector was not added. */
+    private static final LaneKernel VECTOR_KERNEL = loadVectorKernel("model.VectorLaneKernel");
+    /** Float lane kernel on the Vector API, likewise. */
+    private static final LaneKernel FLOAT_KERNEL = loadVectorKernel("model.VectorFloatLaneKernel");
+
+    /**
+     * Float units in the last place a pixel step must span for a view to be rendered in floats: about ten bits
+     * of the float are left to tell neighbouring pixels apart.
+     */
+    protected static final double FLOAT_STEP_MARGIN = 1024;
+
+    /** Highest iteration cap for float renders: float lanes count iterations exactly up to 2^24. */
+    protected static final int FLOAT_MAX_ITERATIONS = 1 << 24;
+
+    /** Sampling strides of the progressive passes, coarsest first; the last pass samples every pixel. */
+    protected static final int[] PROGRESSIVE_STRIDES = {8, 4, 2, 1};
+
+    /** Pool used by the parallel renderer; the common pool unless one is supplied. */
+    private final ForkJoinPool pool;
+
+    /** Whether points in the main cardioid and period-2 bulb skip iteration altogether. */
+    private volatile boolean interiorCheck = true;
+    /** Number of points answered by the interior check since the last reset. */
+    private final LongAdder interiorShortcuts = new LongAdder();
+    /** Whether bounded orbits are detected by looking for a repeated value of Z. */
+    private volatile boolean periodicityChecking = false;
+    /** Number of points declared inside by periodicity checking since the last reset. */
+    private final LongAdder periodicShortcuts = new LongAdder();
+    /** Number of pixels filled by the subdivision renderer without being evaluated, since the last reset. */
+    private final LongAdder subdivisionFills = new LongAdder();
+    /** Sum of the iteration counts of the points evaluated since the last reset, including those answered by a shortcut. */
+    private final LongAdder evaluatedIterations = new LongAdder();
+    /** Iterations that the shortcuts avoided, within evaluatedIterations. */
+    private final LongAdder skippedIterations = new LongAdder();
+    /** CPU time of the threads that rendered, per thread. */
+    private final WorkerCpuTimes workerCpu = new WorkerCpuTimes();
+    /** Whether tiles iterate adjacent points together instead of one at a time. */
+    private volatile boolean interleavedKernel = true;
+    /** Whether points iterated together use the Vector API kernel, where it is available. */
+    private volatile boolean vectorKernel = true;
+    /** Whether views coarse enough for it are iterated in floats, where the Vector API is available. */
+    private volatile boolean floatPrecision = true;
+
+    /**
+     * Creates a calculator whose parallel renders run on the common fork-join pool.
+     */
+    public MandelbrotCalculator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates a calculator whose parallel renders run on the given pool.
+     *
+     * @param pool fork-join pool used by {@link #calcMandelbrotSetParallel}
+     */
+    public MandelbrotCalculator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Enables or disables the analytic interior test in calcMandel.
+     * The output is identical either way; disabling it is only useful for timing comparisons.
+     *
+     * @param interiorCheck true to short-circuit points in the main cardioid and period-2 bulb
+     */
+    public void setInteriorCheck(boolean interiorCheck) {
+        this.interiorCheck = interiorCheck;
+    }
+
+    /**
+     * @return whether the analytic interior test is enabled
+     */
+    public boolean isInteriorCheck() {
+        return interiorCheck;
+    }
+
+    /**
+     * @return number of points returned as maxIterations by the interior test since the last reset
+     */
+    public long getInteriorShortcutCount() {
+        return interiorShortcuts.sum();
+    }
+
+    /**
+     * Sets the interior shortcut counter back to zero.
+     */
+    public void resetInteriorShortcutCount() {
+        interiorShortcuts.reset();
+    }
+
+    /**
+     * Enables or disables periodicity checking in calcMandel. When enabled, an orbit that returns to within
+     * PERIODICITY_TOLERANCE of an earlier value is cycling and is reported as inside the set straight away.
+     * This is much faster for deep views at high iteration caps but may classify a few points right on the
+     * boundary differently from the exact loop, so it is off by default. Frames that record fractions are always
+     * evaluated with the exact loop.
+     *
+     * @param periodicityChecking true to detect cycling orbits
+     */
+    public void setPeriodicityChecking(boolean periodicityChecking) {
+        this.periodicityChecking = periodicityChecking;
+    }
+
+    /**
+     * @return whether periodicity checking is enabled
+     */
+    public boolean isPeriodicityChecking() {
+        return periodicityChecking;
+    }
+
+    /**
+     * @return number of points declared inside by periodicity checking since the last reset
+     */
+    public long getPeriodicityShortcutCount() {
+        return periodicShortcuts.sum();
+    }
+
+    /**
+     * Sets the periodicity shortcut counter back to zero.
+     */
+    public void resetPeriodicityShortcutCount() {
+        periodicShortcuts.reset();
+    }
+
+    /**
+     * Chooses the kernel used by the tiled renderers. The interleaved kernel iterates several points of a row
+     * together: on the Vector API if it is available and chosen (see {@link #setVectorKernel}), otherwise INTERLEAVED
+     * points in one scalar loop, giving the CPU independent chains of arithmetic to overlap; the scalar kernel is
+     * calcMandel itself. All produce identical output in doubles; coarse views may be iterated in floats instead,
+     * see {@link #setFloatPrecision}. Periodicity checking always uses the scalar kernel.
+     *
+     * @param interleavedKernel true to use the interleaved kernel
+     */
+    public void setInterleavedKernel(boolean interleavedKernel) {
+        this.interleavedKernel = interleavedKernel;
+    }
+
+    /**
+     * @return whether the tiled renderers use the interleaved kernel
+     */
+    public boolean isInterleavedKernel() {
+        return interleavedKernel;
+    }
+
+    /**
+     * Chooses how the interleaved kernel iterates its points: one lane of a Vector API register each, as many as
+     * the CPU's widest vectors hold (eight doubles with AVX-512), or INTERLEAVED at a time in scalar code. The
+     * Vector API kernel is used only where {@link #isVectorKernelAvailable()}; otherwise this setting has no effect.
+     *
+     * @param vectorKernel true to use the Vector API kernel where available
+     */
+    public void setVectorKernel(boolean vectorKernel) {
+        this.vectorKernel = vectorKernel;
+    }
+
+    /**
+     * @return whether the interleaved kernel uses the Vector API where available
+     */
+    public boolean isVectorKernel() {
+        return vectorKernel;
+    }
+
+    /**
+     * The Vector API kernel lives in the optional incubating module jdk.incubator.vector. It is available if it was
+     * compiled, which the makefile does on JDKs that ship the module, and the JVM was started with
+     * {@code --add-modules jdk.incubator.vector}, as the makefile's run targets do.
+     *
+     * @return whether the Vector API kernel can be used
+     */
+    public static boolean isVectorKernelAvailable() {
+        return VECTOR_KERNEL != null;
+    }
+
+    /**
+     * Lets the Vector API kernel iterate Mandelbrot views in floats, twice as many points at a time as in doubles,
+     * while the pixel step is far above float resolution, see {@link #isFloatPrecisionSufficient}. Deeper views are
+     * iterated in doubles, so the switch follows the magnification by itself. Float counts match the double loop
+     * except on a small share of pixels right on the boundary, where the orbit is chaotic; orbits of float renders
+     * are not recorded, since resuming them would not reproduce a render at the higher cap. Without the Vector API
+     * every view is iterated in doubles, whatever this setting.
+     *
+     * @param floatPrecision true to render coarse views in floats
+     */
+    public void setFloatPrecision(boolean floatPrecision) {
+        this.floatPrecision = floatPrecision;
+    }
+
+    /**
+     * @return whether coarse views are rendered in floats where the Vector API is available
+     */
+    public boolean isFloatPrecision() {
+        return floatPrecision;
+    }
+
+    /**
+     * Tells whether floats resolve the pixels of a view: the cap must be below FLOAT_MAX_ITERATIONS and the
+     * smaller pixel step must span at least FLOAT_STEP_MARGIN float units in the last place at the largest
+     * coordinate an orbit takes before escaping.
+     *
+     * @param state view to render
+     * @param imageWidth width of the whole image in pixels
+     * @param imageHeight height of the whole image in pixels
+     * @param radiusSquared the squared bailout radius
+     * @return true if the view may be iterated in floats
+     */
+    public static boolean isFloatPrecisionSufficient(MandelbrotState state, int imageWidth, int imageHeight, double radiusSquared) {
+        double step = Math.min((state.maxReal - state.minReal) / imageWidth, (state.maxImag - state.minImag) / imageHeight);
+        double extent = Math.max(Math.max(Math.abs(state.minReal), Math.abs(state.maxReal)),
+                Math.max(Math.abs(state.minImag), Math.abs(state.maxImag)));
+        extent = Math.max(extent, Math.sqrt(radiusSquared));
+        return state.maxIterations < FLOAT_MAX_ITERATIONS && step >= FLOAT_STEP_MARGIN * Math.ulp((float) extent);
+    }
+
+    /**
+     * Tells whether the tiled renderers iterate a view in floats: float precision and the Vector API kernel are
+     * on and available, the view is a Mandelbrot view without periodicity checking, and floats resolve its pixels.
+     *
+     * @param state view to render
+     * @param imageWidth width of the whole image in pixels
+     * @param imageHeight height of the whole image in pixels
+     * @param radiusSquared the squared bailout radius
+     * @return true if tiles of the view are iterated in floats
+     */
+    public boolean usesFloatPrecision(MandelbrotState state, int imageWidth, int imageHeight, double radiusSquared) {
+        return floatPrecision && FLOAT_KERNEL != null && vectorKernel && interleavedKernel && !periodicityChecking
+                && state.kernel == FractalKernel.MANDELBROT
+                && isFloatPrecisionSufficient(state, imageWidth, imageHeight, radiusSquared);
+    }
+
+    private static LaneKernel loadVectorKernel(String className) {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return (LaneKernel) Class.forName(className).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null; // not compiled, or compiled against another version of the module
+        }
+    }
+
+    private LaneKernel laneKernel() {
+        return vectorKernel && VECTOR_KERNEL != null ? VECTOR_KERNEL : INTERLEAVED_KERNEL;
+    }
+
+    /**
+     * @return number of pixels filled by the subdivision renderer without evaluating them, since the last reset
+     */
+    public long getSubdivisionFillCount() {
+        return subdivisionFills.sum();
+    }
+
+    /**
+     * Sets the subdivision fill counter back to zero.
+     */
+    public void resetSubdivisionFillCount() {
+        subdivisionFills.reset();
+    }
+
+    /**
+     * Counts the iterations actually executed: points answered by the interior test count none, and points
+     * declared inside by periodicity checking count only the iterations performed before the cycle was found.
+     * Pixels copied from another frame or filled by subdivision are not evaluated and count none either.
+     *
+     * @return number of iterations executed since the last reset
+     */
+    public long getIterationCount() {
+        return evaluatedIterations.sum() - skippedIterations.sum();
+    }
+
+    /**
+     * Sets the iteration counter back to zero.
+     */
+    public void resetIterationCount() {
+        evaluatedIterations.reset();
+        skippedIterations.reset();
+    }
+
+    /**
+     * Enables or disables measuring the CPU time each thread spends rendering. Reading a thread's CPU clock
+     * costs about a microsecond per tile, so it is off by default.
+     *
+     * @param workerCpuTiming true to measure CPU time per thread
+     */
+    public void setWorkerCpuTiming(boolean workerCpuTiming) {
+        workerCpu.setEnabled(workerCpuTiming);
+    }
+
+    /**
+     * @return whether CPU time is being measured per thread
+     */
+    public boolean isWorkerCpuTiming() {
+        return workerCpu.isEnabled();
+    }
+
+    /**
+     * @return CPU nanoseconds spent rendering per thread name, since the last reset, while timing was enabled
+     */
+    public Map<String, Long> getWorkerCpuNanos() {
+        return workerCpu.snapshot();
+    }
+
+    /**
+     * Clears the CPU times measured per thread.
+     */
+    public void resetWorkerCpuNanos() {
+        workerCpu.reset();
+    }
+
+    /**
+     * Adds the work of a finished leaf task to the iteration counter and its thread's CPU time.
+     */
+    private void recordWork(long cpuStart, long iterations) {
+        evaluatedIterations.add(iterations);
+        workerCpu.stop(cpuStart);
+    }
+
+    /**
+     * Tests whether C lies strictly inside the main cardioid or the period-2 bulb centred on -1.
+     * Both regions belong to the Mandelbrot set, and since every orbit of a point in the set stays within
+     * radius 2, such points can never escape a bailout radius of at least 2.
+     *
+     * @param cReal the real component of the constant C.
+     * @param cImaginary the imaginary component of the constant C.
+     * @return true if C is known to be in the set without iterating
+     */
+    static boolean isInMainCardioidOrBulb(double cReal, double cImaginary) {
+        double ci2 = cImaginary * cImaginary;
+        // Period-2 bulb: |C + 1| < 1/4
+        double bulbReal = cReal + 1;
+        if (bulbReal * bulbReal + ci2 < 0.0625) {
+            return true;
+        }
+        // Main cardioid: q * (q + (cr - 1/4)) < ci^2 / 4, with q = (cr - 1/4)^2 + ci^2
+        double shifted = cReal - 0.25;
+        double q = shifted * shifted + ci2;
+        return q * (q + shifted) < 0.25 * ci2;
+    }
+
+    /**
+     * Fraction of an iteration by which a point escaped, for smooth colouring: {@code log2(ln |z|^2 / ln radiusSquared)}
+     * for the first Z outside the bailout radius. It is 0 for a Z just outside the radius and 1 for a Z on the square of
+     * the radius, where the point would have escaped one iteration earlier, so {@code count - fraction} is continuous.
+     *
+     * @param magnitudeSquared |z|^2 of the first Z outside the bailout radius
+     * @param radiusSquared the squared bailout radius
+     * @return the fraction, clamped to [0, 1]
+     */
+    static float escapeFraction(double magnitudeSquared, double radiusSquared) {
+        if (!(radiusSquared > 1)) {
+            return 0f;
+        }
+        double fraction = Math.log(Math.log(magnitudeSquared) / Math.log(radiusSquared)) / LN2;
+        return fraction > 0 ? (float) Math.min(1, fraction) : 0f;
+    }
 
 
 
@@ -88,6 +492,14 @@ public class MandelbrotCalculator {
         // Z = zr + i*zi
         // C = cr + i*ci
         // Z^2 = zr^2 + 2zr*i*zi + i^2*zi^2 = (zr^2 - zi^2) + i*2zr*zi
+        if (interiorCheck && radiusSquared >= DEFAULT_RADIUS_SQUARED && isInMainCardioidOrBulb(cReal, cImaginary)) {
+            interiorShortcuts.increment();
+            skippedIterations.add(maxIterations);
+            return maxIterations;
+        }
+        if (periodicityChecking) {
+            return calcMandelPeriodic(cReal, cImaginary, maxIterations, radiusSquared);
+        }
         int iterations = 0;
         double zr = 0;
         double zi = 0;
@@ -109,6 +521,229 @@ public class MandelbrotCalculator {
 
 
     /**
+     * Variant of calcMandel that also watches for cycles, using Brent's method: Z is saved at iterations
+     * that double in spacing (8, 16, 32, ...) and each new value is compared against the saved one.
+     * A match means the orbit has entered a cycle no longer than the current spacing and will never escape.
+     *
+     * @param cReal the real component of the constant C.
+     * @param cImaginary the imaginary component of the constant C.
+     * @param maxIterations the maximum number of iterations over which to iterate the equation.
+     * @param radiusSquared the squared bailout radius.
+     * @return the number iterations for Z to escape, or maxIterations if it never escaped or was found to cycle.
+     */
+    private int calcMandelPeriodic(double cReal, double cImaginary, int maxIterations, double radiusSquared){
+        int iterations = 0;
+        double zr = 0;
+        double zi = 0;
+        double savedZr = 0;
+        double savedZi = 0;
+        int checkSpacing = 8;
+        int sinceSaved = 0;
+        while (iterations < maxIterations) {
+            double zr2 = zr * zr;
+            double zi2 = zi * zi;
+            double nzr = zr2 - zi2 + cReal;
+            double nzi = 2 * zr * zi + cImaginary;
+            zr = nzr;
+            zi = nzi;
+            iterations++;
+            if ((zr2 + zi2) > radiusSquared) {
+                return iterations;
+            }
+            if (Math.abs(zr - savedZr) < PERIODICITY_TOLERANCE && Math.abs(zi - savedZi) < PERIODICITY_TOLERANCE) {
+                periodicShortcuts.increment();
+                skippedIterations.add(maxIterations - iterations);
+                return maxIterations;
+            }
+            if (++sinceSaved == checkSpacing) {
+                savedZr = zr;
+                savedZi = zi;
+                sinceSaved = 0;
+                checkSpacing *= 2;
+            }
+        }
+        return iterations;
+    }
+
+
+
+    /**
+     * Interleaved version of calcMandel: iterates four values of C that share an imaginary component in one loop.
+     * This is plain scalar code, not SIMD; the four independent chains of multiplications give the CPU's
+     * out-of-order core work to overlap while each chain waits on its own latency. Each lane (one of the four
+     * points) performs exactly the same arithmetic as calcMandel without the interior test, so the results are
+     * identical; a lane that has escaped keeps iterating harmlessly until every lane is done, and only its first
+     * escape is recorded. It is the fallback of the Vector API kernel.
+     *
+     * @param cReal the real components of the four constants
+     * @param cImaginary the shared imaginary component
+     * @param maxIterations the maximum number of iterations over which to iterate the equation.
+     * @param radiusSquared the squared bailout radius.
+     * @param result receives the iteration count of each lane
+     * @param laneZ if not null, receives the final Z of each lane as (real, imaginary) pairs, and for lanes that
+     *              escaped positive infinity as the real part and |z|^2 of the first Z outside the radius as the
+     *              imaginary part
+     */
+    private static void calcMandelInterleaved(double[] cReal, double cImaginary, int maxIterations, double radiusSquared, int[] result, double[] laneZ){
+        double cr0 = cReal[0];
+        double cr1 = cReal[1];
+        double cr2 = cReal[2];
+        double cr3 = cReal[3];
+        int n0 = 0;
+        int n1 = 0;
+        int n2 = 0;
+        int n3 = 0;
+        // Bit i is set while lane i is still iterating
+        int active = (1 << INTERLEAVED) - 1;
+        double zr0 = 0, zi0 = 0, zr1 = 0, zi1 = 0, zr2 = 0, zi2 = 0, zr3 = 0, zi3 = 0;
+        // |z|^2 at escape of each lane
+        double m0 = 0, m1 = 0, m2 = 0, m3 = 0;
+        int iterations = 0;
+        while (active != 0 && iterations < maxIterations) {
+            iterations++;
+            double zr0s = zr0 * zr0, zi0s = zi0 * zi0;
+            double zr1s = zr1 * zr1, zi1s = zi1 * zi1;
+            double zr2s = zr2 * zr2, zi2s = zi2 * zi2;
+            double zr3s = zr3 * zr3, zi3s = zi3 * zi3;
+            double nzi0 = 2 * zr0 * zi0 + cImaginary;
+            double nzi1 = 2 * zr1 * zi1 + cImaginary;
+            double nzi2 = 2 * zr2 * zi2 + cImaginary;
+            double nzi3 = 2 * zr3 * zi3 + cImaginary;
+            zr0 = zr0s - zi0s + cr0;
+            zr1 = zr1s - zi1s + cr1;
+            zr2 = zr2s - zi2s + cr2;
+            zr3 = zr3s - zi3s + cr3;
+            zi0 = nzi0;
+            zi1 = nzi1;
+            zi2 = nzi2;
+            zi3 = nzi3;
+            if ((active & 1) != 0 && zr0s + zi0s > radiusSquared) { n0 = iterations; m0 = zr0s + zi0s; active &= ~1; }
+            if ((active & 2) != 0 && zr1s + zi1s > radiusSquared) { n1 = iterations; m1 = zr1s + zi1s; active &= ~2; }
+            if ((active & 4) != 0 && zr2s + zi2s > radiusSquared) { n2 = iterations; m2 = zr2s + zi2s; active &= ~4; }
+            if ((active & 8) != 0 && zr3s + zi3s > radiusSquared) { n3 = iterations; m3 = zr3s + zi3s; active &= ~8; }
+        }
+        // Lanes still active reached the cap
+        result[0] = (n0 == 0) ? maxIterations : n0;
+        result[1] = (n1 == 0) ? maxIterations : n1;
+        result[2] = (n2 == 0) ? maxIterations : n2;
+        result[3] = (n3 == 0) ? maxIterations : n3;
+        if (laneZ != null) {
+            laneZ[0] = zr0;
+            laneZ[1] = (active & 1) != 0 ? zi0 : m0;
+            laneZ[2] = zr1;
+            laneZ[3] = (active & 2) != 0 ? zi1 : m1;
+            laneZ[4] = zr2;
+            laneZ[5] = (active & 4) != 0 ? zi2 : m2;
+            laneZ[6] = zr3;
+            laneZ[7] = (active & 8) != 0 ? zi3 : m3;
+            for (int lane = 0; lane < INTERLEAVED; lane++) {
+                if ((active & (1 << lane)) == 0) {
+                    laneZ[2 * lane] = Double.POSITIVE_INFINITY; // escaped, possibly on the last iteration
+                }
+            }
+        }
+    }
+
+    /**
+     * Version of calcMandel that continues an orbit from a given point instead of starting at zero, and reports
+     * where it stopped. Iterating from zero with iterations = 0 performs exactly the same arithmetic as calcMandel
+     * (without the interior test), and resuming an orbit saved at the old cap gives the same result as iterating
+     * from zero to the new cap.
+     *
+     * @param cReal the real component of the constant C.
+     * @param cImaginary the imaginary component of the constant C.
+     * @param zr real part of Z to start from
+     * @param zi imaginary part of Z to start from
+     * @param iterations number of iterations already performed to reach Z
+     * @param maxIterations the maximum number of iterations over which to iterate the equation.
+     * @param radiusSquared the squared bailout radius.
+     * @param z receives the final Z as {real, imaginary}, or if the orbit escaped positive infinity as the real part and
+     *          |z|^2 of the first Z outside the radius as the imaginary part. An orbit can escape on the last iteration and
+     *          still report maxIterations, so only a finite real part means the orbit may be resumed.
+     * @return the number iterations for Z to escape, or maxIterations if it never escaped.
+     */
+    static int calcMandelOrbit(double cReal, double cImaginary, double zr, double zi, int iterations, int maxIterations, double radiusSquared, double[] z){
+        while (iterations < maxIterations) {
+            double zr2 = zr * zr;
+            double zi2 = zi * zi;
+            double nzr = zr2 - zi2 + cReal;
+            double nzi = 2 * zr * zi + cImaginary;
+            zr = nzr;
+            zi = nzi;
+            iterations++;
+            if ((zr2 + zi2) > radiusSquared) {
+                z[0] = Double.POSITIVE_INFINITY;
+                z[1] = zr2 + zi2;
+                return iterations;
+            }
+        }
+        z[0] = zr;
+        z[1] = zi;
+        return iterations;
+    }
+
+
+
+    /**
+     * Evaluates one point of the given fractal: with calcMandel for the Mandelbrot set, otherwise with the kernel's
+     * own loop. Only the call is dispatched, once per point; the iterations run in a loop specialised for the kernel.
+     *
+     * @param kernel fractal to evaluate
+     * @param x real coordinate of the pixel
+     * @param y imaginary coordinate of the pixel
+     * @param maxIterations the maximum number of iterations
+     * @param radiusSquared the squared bailout radius
+     * @return the number iterations for Z to escape, or maxIterations if it never escaped.
+     */
+    private int calcPoint(FractalKernel kernel, double x, double y, int maxIterations, double radiusSquared) {
+        return kernel == FractalKernel.MANDELBROT
+                ? calcMandel(x, y, maxIterations, radiusSquared)
+                : kernel.escape(x, y, maxIterations, radiusSquared);
+    }
+
+    /**
+     * Evaluates one point like calcPoint (without periodicity checking) and records how it ended: the final Z in
+     * orbits if it reaches the cap, and its escape fraction in fractions.
+     *
+     * @param kernel fractal to evaluate
+     * @param index index of the pixel in the frame
+     * @param orbits buffer for unescaped orbits, or null to record none
+     * @param scratch this thread's staging area for orbits; used only with orbits
+     * @param fractions fractions of the frame, or null to record none
+     * @param z scratch pair for calcMandelOrbit
+     * @return the number iterations for Z to escape, or maxIterations if it never escaped.
+     */
+    private int calcTracked(FractalKernel kernel, double cReal, double cImaginary, int maxIterations, double radiusSquared,
+                            int index, OrbitBuffer orbits, OrbitScratch scratch, float[] fractions, double[] z) {
+        if (kernel == FractalKernel.MANDELBROT && interiorCheck && radiusSquared >= DEFAULT_RADIUS_SQUARED
+                && isInMainCardioidOrBulb(cReal, cImaginary)) {
+            interiorShortcuts.increment();
+            skippedIterations.add(maxIterations);
+            if (orbits != null) {
+                scratch.add(orbits, index, Double.NaN, Double.NaN);
+            }
+            if (fractions != null) {
+                fractions[index] = 0f;
+            }
+            return maxIterations;
+        }
+        int iterations = kernel.orbit(cReal, cImaginary, maxIterations, radiusSquared, z);
+        if (z[0] == Double.POSITIVE_INFINITY) {
+            if (fractions != null) {
+                fractions[index] = kernel.escapeFraction(z[1], radiusSquared);
+            }
+        } else {
+            if (orbits != null) {
+                scratch.add(orbits, index, z[0], z[1]);
+            }
+            if (fractions != null) {
+                fractions[index] = 0f;
+            }
+        }
+        return iterations;
+    }
+
+    /**
      * Method to calculate the Mandelbrot set for the given parameter settings.
      * @param xResolution the number of pixels on the x-axis in your GUI display.
      * @param yResolution the number of pixels on the y-axis in your GUI display.
@@ -121,22 +756,1034 @@ public class MandelbrotCalculator {
      * @return the 2-D integer array mandelbrotData[yResolution][xResolution] containing the for each [y][x] pixel the number of iterations needed until Z escaped the bounding radius, or maxIterations otherwise.
      */
     public int[][] calcMandelbrotSet(int xResolution, int yResolution, double minReal, double maxReal, double minImaginary, double maxImaginary, int maxIterations, double radiusSquared){
+        return calcMandelbrotSet(xResolution, yResolution, minReal, maxReal, minImaginary, maxImaginary, maxIterations, radiusSquared, NEVER_CANCELLED);
+    }
+
+    /**
+     * Cancellable version of {@link #calcMandelbrotSet}. The cancellation check is polled once per row.
+     *
+     * @param xResolution the number of pixels on the x-axis in your GUI display.
+     * @param yResolution the number of pixels on the y-axis in your GUI display.
+     * @param minReal the lower real bound for the complex constant C
+     * @param maxReal the upper real bound for the complex constant C
+     * @param minImaginary the lower imaginary bound for the complex constant C
+     * @param maxImaginary the upper imaginary bound for the complex constant C
+     * @param maxIterations the maximum number of iterations to iterate the complex formula
+     * @param radiusSquared the squared of the radius to use when determining whether Z escaped.
+     * @param cancelled returns true once the caller no longer needs the result
+     * @return the 2-D integer array mandelbrotData[yResolution][xResolution], as for calcMandelbrotSet.
+     * @throws CancellationException if the render was abandoned part way through
+     */
+    public int[][] calcMandelbrotSet(int xResolution, int yResolution, double minReal, double maxReal, double minImaginary, double maxImaginary, int maxIterations, double radiusSquared, BooleanSupplier cancelled){
         int[][] mandelbrotData = new int[yResolution][xResolution];
-        double realRange = maxReal - minReal;
 
         double realStep = (maxReal - minReal)/xResolution;
         double imaginaryStep = (maxImaginary - minImaginary)/yResolution;
 
-
+        long cpuStart = workerCpu.start();
+        long iterations = 0;
         for (int y = 0; y < yResolution; y++) {
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException("Mandelbrot render cancelled");
+            }
             double cImaginary = minImaginary + y * imaginaryStep;
             for (int x = 0; x < xResolution; x++) {
                 double cReal = minReal + x * realStep;
                 mandelbrotData[y][x] = calcMandel(cReal, cImaginary, maxIterations, radiusSquared);
-                cReal = cReal + realStep;
+                iterations += mandelbrotData[y][x];
             }
         }
+        recordWork(cpuStart, iterations);
         return mandelbrotData;
+    }
+
+
+    /**
+     * Parallel version of {@link #calcMandelbrotSet}. The viewport is split recursively into tiles of at most
+     * TILE_SIZE x TILE_SIZE pixels which run as fork-join tasks, so idle workers steal the remaining tiles of a busy one.
+     * This keeps the cores balanced even when the expensive interior of the set is concentrated in a few tiles.
+     * Every pixel uses the same coordinates as the sequential method, so the result is identical bit for bit,
+     * except for views coarse enough to be iterated in floats, see {@link #setFloatPrecision}.
+     *
+     * @param xResolution the number of pixels on the x-axis in your GUI display.
+     * @param yResolution the number of pixels on the y-axis in your GUI display.
+     * @param minReal the lower real bound for the complex constant C
+     * @param maxReal the upper real bound for the complex constant C
+     * @param minImaginary the lower imaginary bound for the complex constant C
+     * @param maxImaginary the upper imaginary bound for the complex constant C
+     * @param maxIterations the maximum number of iterations to iterate the complex formula
+     * @param radiusSquared the squared of the radius to use when determining whether Z escaped.
+     * @return the 2-D integer array mandelbrotData[yResolution][xResolution], as for calcMandelbrotSet.
+     */
+    public int[][] calcMandelbrotSetParallel(int xResolution, int yResolution, double minReal, double maxReal, double minImaginary, double maxImaginary, int maxIterations, double radiusSquared){
+        return calcMandelbrotSetParallel(xResolution, yResolution, minReal, maxReal, minImaginary, maxImaginary, maxIterations, radiusSquared, NEVER_CANCELLED);
+    }
+
+    /**
+     * Cancellable version of {@link #calcMandelbrotSetParallel}. Every tile polls the cancellation check once per row,
+     * so an abandoned render stops almost immediately.
+     *
+     * @param xResolution the number of pixels on the x-axis in your GUI display.
+     * @param yResolution the number of pixels on the y-axis in your GUI display.
+     * @param minReal the lower real bound for the complex constant C
+     * @param maxReal the upper real bound for the complex constant C
+     * @param minImaginary the lower imaginary bound for the complex constant C
+     * @param maxImaginary the upper imaginary bound for the complex constant C
+     * @param maxIterations the maximum number of iterations to iterate the complex formula
+     * @param radiusSquared the squared of the radius to use when determining whether Z escaped.
+     * @param cancelled returns true once the caller no longer needs the result
+     * @return the 2-D integer array mandelbrotData[yResolution][xResolution], as for calcMandelbrotSet.
+     * @throws CancellationException if the render was abandoned part way through
+     */
+    public int[][] calcMandelbrotSetParallel(int xResolution, int yResolution, double minReal, double maxReal, double minImaginary, double maxImaginary, int maxIterations, double radiusSquared, BooleanSupplier cancelled){
+        IterationFrame frame = new IterationFrame(xResolution, yResolution);
+        calcMandelbrotFrame(frame, new MandelbrotState(minReal, maxReal, minImaginary, maxImaginary, maxIterations), radiusSquared, cancelled);
+        return frame.toArray();
+    }
+
+    /**
+     * Renders the view described by state into an existing frame, in parallel tiles as for calcMandelbrotSetParallel.
+     * The frame's own width and height give the resolution, and nothing is allocated per pixel or per row,
+     * so a caller that reuses its frames renders without producing garbage.
+     *
+     * @param frame destination frame; its previous contents are overwritten
+     * @param state view window and iteration cap to render
+     * @param radiusSquared the squared of the radius to use when determining whether Z escaped.
+     * @param cancelled returns true once the caller no longer needs the result
+     * @throws CancellationException if the render was abandoned part way through
+     */
+    public void calcMandelbrotFrame(IterationFrame frame, MandelbrotState state, double radiusSquared, BooleanSupplier cancelled){
+        pool.invoke(new TileTask(frame, 0, 0, frame.getWidth(), frame.getHeight(), 1, 0, state, radiusSquared, cancelled, null));
+    }
+
+    /**
+     * Version of {@link #calcMandelbrotFrame} that also records, in orbits, the final Z of every pixel that
+     * reaches the iteration cap, so that {@link #calcMandelbrotFrameResumed} can later raise the cap cheaply.
+     * Orbits cannot be recorded while periodicity checking is on or for views iterated in floats
+     * (see {@link #usesFloatPrecision}); the buffer is then left unusable.
+     *
+     * @param frame destination frame; its previous contents are overwritten
+     * @param state view window and iteration cap to render
+     * @param radiusSquared the squared of the radius to use when determining whether Z escaped.
+     * @param cancelled returns true once the caller no longer needs the result
+     * @param orbits buffer that receives the unescaped orbits; its previous contents are discarded
+     * @throws CancellationException if the render was abandoned part way through
+     */
+    public void calcMandelbrotFrame(IterationFrame frame, MandelbrotState state, double radiusSquared, BooleanSupplier cancelled, OrbitBuffer orbits){
+        orbits.reset();
+        boolean capture = !periodicityChecking
+                && !usesFloatPrecision(state, frame.getWidth(), frame.getHeight(), radiusSquared);
+        pool.invoke(new TileTask(frame, 0, 0, frame.getWidth(), frame.getHeight(), 1, 0, state, radiusSquared, cancelled,
+                capture ? orbits : null));
+        if (capture) {
+            orbits.validate(state);
+        }
+    }
+
+    /**
+     * Raises the iteration cap of a rendered frame by resuming only the orbits saved for it, instead of
+     * iterating every pixel from zero. The frame must hold the render of the same view window at the cap
+     * recorded in orbits; pixels that escaped below that cap cannot change and are left alone.
+     * The result is identical to a full render at the new cap, and orbits is updated to match it.
+     *
+     * @param frame frame holding the previous render, updated in place
+     * @param orbits orbits saved for the previous render
+     * @param state same view window with a cap at least as high as before
+     * @param radiusSquared the squared of the radius to use when determining whether Z escaped.
+     * @param cancelled returns true once the caller no longer needs the result
+     * @throws CancellationException if the render was abandoned part way through; orbits is then unusable
+     */
+    public void calcMandelbrotFrameResumed(IterationFrame frame, OrbitBuffer orbits, MandelbrotState state, double radiusSquared, BooleanSupplier cancelled){
+        MandelbrotState previous = orbits.getState();
+        if (previous == null || state.maxIterations < previous.maxIterations || !state.kernel.equals(previous.kernel)) {
+            throw new IllegalArgumentException("Orbits do not belong to a lower cap of this view");
+        }
+        orbits.invalidate();
+        pool.invoke(new ResumeTask(frame, orbits, 0, orbits.size(), previous.maxIterations, state, radiusSquared, cancelled));
+        orbits.removeEscaped();
+        orbits.validate(state);
+    }
+
+    /**
+     * Single-threaded version of {@link #calcMandelbrotFrame}, rendering the whole frame on the calling thread.
+     *
+     * @param frame destination frame; its previous contents are overwritten
+     * @param state view window and iteration cap to render
+     * @param radiusSquared the squared of the radius to use when determining whether Z escaped.
+     * @param cancelled returns true once the caller no longer needs the result
+     * @throws CancellationException if the render was abandoned part way through
+     */
+    public void calcMandelbrotFrameSequential(IterationFrame frame, MandelbrotState state, double radiusSquared, BooleanSupplier cancelled){
+        new TileTask(frame, 0, 0, frame.getWidth(), frame.getHeight(), 1, 0, state, radiusSquared, cancelled, null).renderTile();
+    }
+
+    /**
+     * Renders the view described by state into target by reusing a frame of the previous view, which differs
+     * from it by a whole number of pixels. Rows of source are copied across shifted by (dx, dy) and only the
+     * strips exposed by the shift are evaluated, in parallel tiles. With dx positive, the new view's pixel x
+     * shows what was at x + dx in source; likewise for dy and rows. The reused pixels keep the values computed
+     * for the previous window, whose coordinates can differ from the new ones in the last bit of precision.
+     *
+     * @param source frame holding the previous view
+     * @param target destination frame of the same size; must not be source
+     * @param dx horizontal shift in pixels
+     * @param dy vertical shift in pixels
+     * @param state view window and iteration cap of the new view
+     * @param radiusSquared the squared of the radius to use when determining whether Z escaped.
+     * @param cancelled returns true once the caller no longer needs the result
+     * @throws CancellationException if the render was abandoned part way through
+     */
+    public void calcMandelbrotFrameShifted(IterationFrame source, IterationFrame target, int dx, int dy, MandelbrotState state, double radiusSquared, BooleanSupplier cancelled){
+        int width = target.getWidth();
+        int height = target.getHeight();
+        if (Math.abs(dx) >= width || Math.abs(dy) >= height) {
+            calcMandelbrotFrame(target, state, radiusSquared, cancelled);
+            return;
+        }
+        // Rows and columns of the new view still covered by the old one
+        int keptX0 = Math.max(0, -dx);
+        int keptX1 = Math.min(width, width - dx);
+        int keptY0 = Math.max(0, -dy);
+        int keptY1 = Math.min(height, height - dy);
+        int[] from = source.getPixels();
+        int[] to = target.getPixels();
+        float[] fromFractions = source.getFractions();
+        float[] toFractions = target.getFractions();
+        for (int y = keptY0; y < keptY1; y++) {
+            System.arraycopy(from, (y + dy) * width + keptX0 + dx, to, y * width + keptX0, keptX1 - keptX0);
+            if (toFractions != null) {
+                if (fromFractions != null) {
+                    System.arraycopy(fromFractions, (y + dy) * width + keptX0 + dx, toFractions, y * width + keptX0, keptX1 - keptX0);
+                } else {
+                    Arrays.fill(toFractions, y * width + keptX0, y * width + keptX1, 0f);
+                }
+            }
+        }
+        // Exposed full-width rows above or below, then exposed columns beside the kept rows
+        if (keptY0 > 0) {
+            calcMandelbrotRegion(target, 0, 0, width, keptY0, state, radiusSquared, cancelled);
+        }
+        if (keptY1 < height) {
+            calcMandelbrotRegion(target, 0, keptY1, width, height, state, radiusSquared, cancelled);
+        }
+        if (keptX0 > 0) {
+            calcMandelbrotRegion(target, 0, keptY0, keptX0, keptY1, state, radiusSquared, cancelled);
+        }
+        if (keptX1 < width) {
+            calcMandelbrotRegion(target, keptX1, keptY0, width, keptY1, state, radiusSquared, cancelled);
+        }
+    }
+
+    /**
+     * Renders a horizontal stripe of a larger image into a frame holding just those rows, so that images
+     * too large to keep in memory can be produced a stripe at a time. Pixels match those of a full render
+     * of the image exactly.
+     *
+     * @param stripe destination frame, as wide as the image; its height is the number of rows rendered
+     * @param firstRow image row held by the first row of the stripe
+     * @param imageHeight height of the whole image in pixels
+     * @param state view window and iteration cap of the whole image
+     * @param radiusSquared the squared of the radius to use when determining whether Z escaped.
+     * @param cancelled returns true once the caller no longer needs the result
+     * @throws CancellationException if the render was abandoned part way through
+     */
+    public void calcMandelbrotStripe(IterationFrame stripe, int firstRow, int imageHeight, MandelbrotState state, double radiusSquared, BooleanSupplier cancelled){
+        calcMandelbrotTile(stripe, 0, firstRow, stripe.getWidth(), imageHeight, state, radiusSquared, cancelled);
+    }
+
+    /**
+     * Renders a rectangular part of a larger image into a frame holding just that rectangle, with the
+     * pixel grid of the whole image, so that pixels match those of a full render exactly.
+     *
+     * @param tile destination frame; its size is the size of the rectangle
+     * @param firstColumn image column held by the first column of the tile
+     * @param firstRow image row held by the first row of the tile
+     * @param imageWidth width of the whole image in pixels
+     * @param imageHeight height of the whole image in pixels
+     * @param state view window and iteration cap of the whole image
+     * @param radiusSquared the squared of the radius to use when determining whether Z escaped.
+     * @param cancelled returns true once the caller no longer needs the result
+     * @throws CancellationException if the render was abandoned part way through
+     */
+    public void calcMandelbrotTile(IterationFrame tile, int firstColumn, int firstRow, int imageWidth, int imageHeight, MandelbrotState state, double radiusSquared, BooleanSupplier cancelled){
+        if (firstColumn < 0 || firstRow < 0
+                || firstColumn + tile.getWidth() > imageWidth || firstRow + tile.getHeight() > imageHeight) {
+            throw new IllegalArgumentException("Tile lies outside the image");
+        }
+        pool.invoke(new TileTask(tile, 0, 0, tile.getWidth(), tile.getHeight(), 1, 0, state, radiusSquared, cancelled, null,
+                firstColumn, firstRow, imageWidth, imageHeight));
+    }
+
+    /**
+     * Renders only the pixels in [x0, x1) x [y0, y1) of a frame, in parallel tiles, leaving the rest untouched.
+     *
+     * @param frame destination frame
+     * @param x0 first column to render
+     * @param y0 first row to render
+     * @param x1 column after the last one to render
+     * @param y1 row after the last one to render
+     * @param state view window and iteration cap of the whole frame
+     * @param radiusSquared the squared of the radius to use when determining whether Z escaped.
+     * @param cancelled returns true once the caller no longer needs the result
+     * @throws CancellationException if the render was abandoned part way through
+     */
+    public void calcMandelbrotRegion(IterationFrame frame, int x0, int y0, int x1, int y1, MandelbrotState state, double radiusSquared, BooleanSupplier cancelled){
+        pool.invoke(new TileTask(frame, x0, y0, x1, y1, 1, 0, state, radiusSquared, cancelled, null));
+    }
+
+    /**
+     * Progressive version of {@link #calcMandelbrotFrame}. The set is sampled at 1/8, 1/4, 1/2 and finally full
+     * resolution. Each pass only computes the pixels that no coarser pass has sampled yet, so the total work is the same
+     * as a single full render. After every coarse pass the preview frame is filled by repeating each sample over its
+     * block and handed to the consumer; after the last pass the consumer receives the exact data in frame itself.
+     * The preview frame is overwritten by the next pass.
+     *
+     * @param frame destination frame for the full-resolution data
+     * @param preview scratch frame of the same size that receives the block-filled previews
+     * @param state view window and iteration cap to render
+     * @param radiusSquared the squared of the radius to use when determining whether Z escaped.
+     * @param cancelled returns true once the caller no longer needs the result
+     * @param passConsumer receives the image produced by each pass, coarsest first
+     * @throws CancellationException if the render was abandoned part way through
+     */
+    public void calcMandelbrotFrameProgressive(IterationFrame frame, IterationFrame preview, MandelbrotState state, double radiusSquared, BooleanSupplier cancelled, Consumer<IterationFrame> passConsumer){
+        calcMandelbrotFrameProgressive(frame, preview, state, radiusSquared, cancelled, passConsumer, null);
+    }
+
+    /**
+     * Version of {@link #calcMandelbrotFrameProgressive} that records unescaped orbits as
+     * {@link #calcMandelbrotFrame(IterationFrame, MandelbrotState, double, BooleanSupplier, OrbitBuffer)} does.
+     *
+     * @param frame destination frame for the full-resolution data
+     * @param preview scratch frame of the same size that receives the block-filled previews
+     * @param state view window and iteration cap to render
+     * @param radiusSquared the squared of the radius to use when determining whether Z escaped.
+     * @param cancelled returns true once the caller no longer needs the result
+     * @param passConsumer receives the image produced by each pass, coarsest first
+     * @param orbits buffer that receives the unescaped orbits, or null to record none
+     * @throws CancellationException if the render was abandoned part way through
+     */
+    public void calcMandelbrotFrameProgressive(IterationFrame frame, IterationFrame preview, MandelbrotState state, double radiusSquared, BooleanSupplier cancelled, Consumer<IterationFrame> passConsumer, OrbitBuffer orbits){
+        boolean capture = orbits != null && !periodicityChecking
+                && !usesFloatPrecision(state, frame.getWidth(), frame.getHeight(), radiusSquared);
+        if (orbits != null) {
+            orbits.reset();
+        }
+        int coarser = 0;
+        for (int stride : PROGRESSIVE_STRIDES) {
+            pool.invoke(new TileTask(frame, 0, 0, frame.getWidth(), frame.getHeight(), stride, coarser, state, radiusSquared, cancelled,
+                    capture ? orbits : null));
+            if (stride == 1) {
+                passConsumer.accept(frame);
+            } else {
+                expandSamples(frame, preview, stride);
+                passConsumer.accept(preview);
+            }
+            coarser = stride;
+        }
+        if (capture) {
+            orbits.validate(state);
+        }
+    }
+
+    /**
+     * Renders a frame with Mariani-Silver rectangle subdivision. The border of the frame is evaluated first; a
+     * rectangle whose border pixels all share one iteration count is filled with that count, otherwise it is split
+     * in two by evaluating a line across its middle and each half is processed the same way, as fork-join tasks.
+     * Rectangles with mixed borders stop splitting at MIN_SUBDIVISION and are evaluated in full.
+     *
+     * The rule relies on the set and the regions inside each escape-count level curve being simply connected
+     * (see {@link FractalKernel#isSimplyConnected}); other kernels are rendered by calcMandelbrotFrame instead.
+     * Even then a pixel grid is not exact: where two bulbs of the set touch, escaping points reach into a rectangle
+     * bordered by the set through a gap narrower than a pixel. A rectangle bordered by the set is therefore filled
+     * only if the ring of pixels just inside its border is in the set too, and only if both its sides are at least
+     * MIN_SET_FILL long; otherwise it is split or evaluated in full.
+     *
+     * Unlike the other renderers this one is not guaranteed to match calcMandelbrotFrame pixel for pixel. No test
+     * on sampled pixels can prove that a band or filament does not enter a rectangle between two border samples,
+     * so the guard ring is a safeguard, not a proof. The tests compare the output with calcMandelbrotFrame on a set
+     * of views, where it matches exactly, but detail thinner than a pixel in other views may be filled over.
+     *
+     * @param frame destination frame; its previous contents are overwritten
+     * @param state view window and iteration cap to render
+     * @param radiusSquared the squared of the radius to use when determining whether Z escaped.
+     * @param cancelled returns true once the caller no longer needs the result
+     * @throws CancellationException if the render was abandoned part way through
+     */
+    public void calcMandelbrotFrameSubdivided(IterationFrame frame, MandelbrotState state, double radiusSquared, BooleanSupplier cancelled){
+        if (!state.kernel.isSimplyConnected()) {
+            calcMandelbrotFrame(frame, state, radiusSquared, cancelled);
+            return;
+        }
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        SubdivisionTask root = new SubdivisionTask(frame, 0, 0, width - 1, height - 1, state, radiusSquared, cancelled);
+        long cpuStart = workerCpu.start();
+        long iterations = 0;
+        for (int x = 0; x < width; x++) {
+            iterations += root.evaluate(x, 0);
+            iterations += root.evaluate(x, height - 1);
+        }
+        for (int y = 1; y < height - 1; y++) {
+            iterations += root.evaluate(0, y);
+            iterations += root.evaluate(width - 1, y);
+        }
+        recordWork(cpuStart, iterations);
+        pool.invoke(root);
+    }
+
+    /**
+     * Adaptive anti-aliasing for a rendered frame: see {@link #calcEdgeSamples(IterationFrame, int, int, int, int,
+     * MandelbrotState, double, int, BooleanSupplier)}, for a frame holding a whole image.
+     *
+     * @param frame rendered frame
+     * @param state view window and iteration cap the frame was rendered with
+     * @param radiusSquared the squared of the radius to use when determining whether Z escaped.
+     * @param grid sub-samples per pixel along each axis, at least 2
+     * @param cancelled returns true once the caller no longer needs the result
+     * @return the sub-samples of the edge pixels
+     * @throws CancellationException if the work was abandoned part way through
+     */
+    public EdgeSamples calcEdgeSamples(IterationFrame frame, MandelbrotState state, double radiusSquared, int grid, BooleanSupplier cancelled){
+        return calcEdgeSamples(frame, 0, 0, frame.getWidth(), frame.getHeight(), state, radiusSquared, grid, cancelled);
+    }
+
+    /**
+     * Adaptive anti-aliasing for a rendered tile of an image. Pixels whose count differs from one of their four
+     * neighbours in the tile are the only ones that can straddle an edge of the set or of an escape band, so only
+     * they are sampled again, grid x grid times each, in parallel. The work therefore grows with the length of the
+     * edges rather than with the number of pixels; one pass over the tile to find the edges is all the rest costs.
+     * Sub-samples record fractions if the tile does. They are iterated in doubles, so for a tile rendered in floats
+     * (see {@link #usesFloatPrecision}) the middle sample can differ from the pixel on the boundary of the set.
+     *
+     * @param tile rendered frame holding the rectangle of the image, as for calcMandelbrotTile
+     * @param firstColumn image column held by the first column of the tile
+     * @param firstRow image row held by the first row of the tile
+     * @param imageWidth width of the whole image in pixels
+     * @param imageHeight height of the whole image in pixels
+     * @param state view window and iteration cap of the whole image
+     * @param radiusSquared the squared of the radius to use when determining whether Z escaped.
+     * @param grid sub-samples per pixel along each axis, at least 2
+     * @param cancelled returns true once the caller no longer needs the result
+     * @return the sub-samples of the edge pixels
+     * @throws CancellationException if the work was abandoned part way through
+     */
+    public EdgeSamples calcEdgeSamples(IterationFrame tile, int firstColumn, int firstRow, int imageWidth, int imageHeight,
+                                       MandelbrotState state, double radiusSquared, int grid, BooleanSupplier cancelled){
+        if (grid < 2) {
+            throw new IllegalArgumentException("Supersampling needs at least 2 x 2 samples per pixel");
+        }
+        int[] edges = pool.invoke(new EdgeTask(tile, 0, tile.getHeight(), cancelled));
+        if (edges.length == 0) {
+            return new EdgeSamples(grid, edges, null);
+        }
+        IterationFrame samples = new IterationFrame(grid * grid, edges.length);
+        if (tile.getFractions() != null) {
+            samples.enableFractions();
+        }
+        pool.invoke(new SampleTask(tile, edges, samples, 0, edges.length, firstColumn, firstRow,
+                (state.maxReal - state.minReal)/imageWidth, (state.maxImag - state.minImag)/imageHeight,
+                grid, state, radiusSquared, cancelled));
+        return new EdgeSamples(grid, edges, samples);
+    }
+
+    /**
+     * Fills preview from data sampled every stride pixels by repeating each sample over its block.
+     */
+    private static void expandSamples(IterationFrame samples, IterationFrame preview, int stride) {
+        int width = samples.getWidth();
+        int[] source = samples.getPixels();
+        int[] target = preview.getPixels();
+        float[] sourceFractions = samples.getFractions();
+        float[] targetFractions = sourceFractions == null ? null : preview.getFractions();
+        for (int y = 0; y < samples.getHeight(); y++) {
+            int sourceRow = (y - y % stride) * width;
+            int targetRow = y * width;
+            for (int x = 0; x < width; x++) {
+                target[targetRow + x] = source[sourceRow + x - x % stride];
+            }
+            if (targetFractions != null) {
+                for (int x = 0; x < width; x++) {
+                    targetFractions[targetRow + x] = sourceFractions[sourceRow + x - x % stride];
+                }
+            }
+        }
+    }
+
+    /**
+     * Fork-join task rendering the pixels in [x0, x1) x [y0, y1) whose coordinates are multiples of stride,
+     * skipping those that are multiples of coarser (already sampled by an earlier pass) when coarser is non-zero.
+     * Large regions are halved along their longer side until they fit in a single tile.
+     */
+    private final class TileTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final IterationFrame target;
+        private final int x0;
+        private final int y0;
+        private final int x1;
+        private final int y1;
+        private final int stride;
+        private final int coarser;
+        private final MandelbrotState state;
+        private final double radiusSquared;
+        private final BooleanSupplier cancelled;
+        private final OrbitBuffer orbits;
+        // Image pixel held by pixel (0, 0) of the target, and the size of the whole image, for frames holding part of it
+        private final int firstColumn;
+        private final int firstRow;
+        private final int imageWidth;
+        private final int imageHeight;
+
+        TileTask(IterationFrame target, int x0, int y0, int x1, int y1, int stride, int coarser,
+                 MandelbrotState state, double radiusSquared, BooleanSupplier cancelled, OrbitBuffer orbits) {
+            this(target, x0, y0, x1, y1, stride, coarser, state, radiusSquared, cancelled, orbits,
+                    0, 0, target.getWidth(), target.getHeight());
+        }
+
+        TileTask(IterationFrame target, int x0, int y0, int x1, int y1, int stride, int coarser,
+                 MandelbrotState state, double radiusSquared, BooleanSupplier cancelled, OrbitBuffer orbits,
+                 int firstColumn, int firstRow, int imageWidth, int imageHeight) {
+            this.target = target;
+            this.x0 = x0;
+            this.y0 = y0;
+            this.x1 = x1;
+            this.y1 = y1;
+            this.stride = stride;
+            this.coarser = coarser;
+            this.state = state;
+            this.radiusSquared = radiusSquared;
+            this.cancelled = cancelled;
+            this.orbits = orbits;
+            this.firstColumn = firstColumn;
+            this.firstRow = firstRow;
+            this.imageWidth = imageWidth;
+            this.imageHeight = imageHeight;
+        }
+
+        @Override
+        protected void compute() {
+            int w = x1 - x0;
+            int h = y1 - y0;
+            int leafSize = TILE_SIZE * stride;
+            if (w <= leafSize && h <= leafSize) {
+                renderTile();
+                return;
+            }
+            if (w >= h) {
+                int mid = x0 + w / 2;
+                invokeAll(split(x0, y0, mid, y1), split(mid, y0, x1, y1));
+            } else {
+                int mid = y0 + h / 2;
+                invokeAll(split(x0, y0, x1, mid), split(x0, mid, x1, y1));
+            }
+        }
+
+        private void renderTile() {
+            int width = target.getWidth();
+            int[] pixels = target.getPixels();
+            // Same step computation as calcMandelbrotSet so that results match exactly
+            double realStep = (state.maxReal - state.minReal)/imageWidth;
+            double imaginaryStep = (state.maxImag - state.minImag)/imageHeight;
+            FractalKernel kernel = state.kernel;
+            // The interleaved kernel is written for the Mandelbrot formula; other kernels iterate one point at a time
+            boolean lanes = interleavedKernel && !periodicityChecking && kernel == FractalKernel.MANDELBROT;
+            boolean floats = usesFloatPrecision(state, imageWidth, imageHeight, radiusSquared);
+            // Orbits of a float render could not be resumed exactly; callers do not pass a buffer for them
+            boolean capture = orbits != null && !periodicityChecking && !floats;
+            OrbitScratch scratch = capture ? ORBIT_SCRATCH.get() : null;
+            if (capture) {
+                // A tile cancelled earlier on this thread may have left entries meant for another buffer
+                scratch.clear();
+            }
+            OrbitBuffer captured = capture ? orbits : null;
+            float[] fractions = target.getFractions();
+            // Points whose final Z is needed, for orbits or for fractions
+            boolean tracked = capture || fractions != null;
+            LaneKernel laneKernel = floats ? FLOAT_KERNEL : laneKernel();
+            int laneCount = laneKernel.lanes();
+            // Lane kernels skip the interior test, so interior points are left to the scalar kernel
+            boolean interior = interiorCheck && radiusSquared >= DEFAULT_RADIUS_SQUARED;
+            double[] laneReal = new double[laneCount];
+            int[] laneIndex = new int[laneCount];
+            int[] laneResult = new int[laneCount];
+            double[] laneZ = tracked ? new double[2 * laneCount] : null;
+            double[] z = new double[2];
+            long cpuStart = workerCpu.start();
+            long iterations = 0;
+            for (int y = alignUp(y0); y < y1; y += stride) {
+                if (cancelled.getAsBoolean()) {
+                    throw new CancellationException("Mandelbrot render cancelled");
+                }
+                double cImaginary = state.minImag + (firstRow + y) * imaginaryStep;
+                int row = y * width;
+                boolean coarseRow = coarser != 0 && y % coarser == 0;
+                int pending = 0;
+                for (int x = alignUp(x0); ; x += stride) {
+                    boolean rowEnd = x >= x1;
+                    if (!rowEnd) {
+                        if (coarseRow && x % coarser == 0) {
+                            continue;
+                        }
+                        double cReal = state.minReal + (firstColumn + x) * realStep;
+                        if (!lanes || interior && isInMainCardioidOrBulb(cReal, cImaginary)) {
+                            pixels[row + x] = tracked
+                                    ? calcTracked(kernel, cReal, cImaginary, state.maxIterations, radiusSquared, row + x,
+                                            captured, scratch, fractions, z)
+                                    : calcPoint(kernel, cReal, cImaginary, state.maxIterations, radiusSquared);
+                            iterations += pixels[row + x];
+                            continue;
+                        }
+                        laneReal[pending] = cReal;
+                        laneIndex[pending] = row + x;
+                        if (++pending < laneCount) {
+                            continue;
+                        }
+                    }
+                    if (pending > 0) {
+                        // At the end of the row the unused lanes repeat the last point and their results are
+                        // ignored, so that leftover points get the same arithmetic as the others, floats included
+                        Arrays.fill(laneReal, pending, laneCount, laneReal[pending - 1]);
+                        laneKernel.iterate(laneReal, cImaginary, state.maxIterations, radiusSquared, laneResult, laneZ);
+                        for (int lane = 0; lane < pending; lane++) {
+                            pixels[laneIndex[lane]] = laneResult[lane];
+                            iterations += laneResult[lane];
+                            if (!tracked) {
+                                continue;
+                            }
+                            boolean escaped = laneZ[2 * lane] == Double.POSITIVE_INFINITY;
+                            if (capture && !escaped) {
+                                scratch.add(orbits, laneIndex[lane], laneZ[2 * lane], laneZ[2 * lane + 1]);
+                            }
+                            if (fractions != null) {
+                                fractions[laneIndex[lane]] = escaped ? escapeFraction(laneZ[2 * lane + 1], radiusSquared) : 0f;
+                            }
+                        }
+                        pending = 0;
+                    }
+                    if (rowEnd) {
+                        break;
+                    }
+                }
+            }
+            if (capture) {
+                scratch.flush(orbits);
+            }
+            recordWork(cpuStart, iterations);
+        }
+
+        private int alignUp(int value) {
+            return (value + stride - 1) / stride * stride;
+        }
+
+        private TileTask split(int nx0, int ny0, int nx1, int ny1) {
+            return new TileTask(target, nx0, ny0, nx1, ny1, stride, coarser, state, radiusSquared, cancelled, orbits,
+                    firstColumn, firstRow, imageWidth, imageHeight);
+        }
+    }
+
+    /**
+     * Fork-join task for the subdivision renderer covering the inclusive rectangle [x0, x1] x [y0, y1],
+     * whose border pixels have already been evaluated.
+     */
+    private final class SubdivisionTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final IterationFrame target;
+        private final int x0;
+        private final int y0;
+        private final int x1;
+        private final int y1;
+        private final MandelbrotState state;
+        private final double radiusSquared;
+        private final BooleanSupplier cancelled;
+        private final double realStep;
+        private final double imaginaryStep;
+        private final float[] fractions;
+        private final double[] z = new double[2];
+
+        SubdivisionTask(IterationFrame target, int x0, int y0, int x1, int y1,
+                        MandelbrotState state, double radiusSquared, BooleanSupplier cancelled) {
+            this.target = target;
+            this.x0 = x0;
+            this.y0 = y0;
+            this.x1 = x1;
+            this.y1 = y1;
+            this.state = state;
+            this.radiusSquared = radiusSquared;
+            this.cancelled = cancelled;
+            // Same step computation as calcMandelbrotSet so that results match exactly
+            this.realStep = (state.maxReal - state.minReal)/target.getWidth();
+            this.imaginaryStep = (state.maxImag - state.minImag)/target.getHeight();
+            this.fractions = target.getFractions();
+        }
+
+        /**
+         * @return the iteration count stored for the pixel
+         */
+        int evaluate(int x, int y) {
+            double cReal = state.minReal + x * realStep;
+            double cImaginary = state.minImag + y * imaginaryStep;
+            int iterations = fractions == null
+                    ? calcPoint(state.kernel, cReal, cImaginary, state.maxIterations, radiusSquared)
+                    : calcTracked(state.kernel, cReal, cImaginary, state.maxIterations, radiusSquared,
+                            y * target.getWidth() + x, null, null, fractions, z);
+            target.set(x, y, iterations);
+            return iterations;
+        }
+
+        @Override
+        protected void compute() {
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException("Mandelbrot render cancelled");
+            }
+            if (x1 - x0 < 2 || y1 - y0 < 2) {
+                return; // no interior left
+            }
+            int uniform = uniformBorder();
+            boolean inSet = uniform == state.maxIterations;
+            if (inSet && (x1 - x0 <= MIN_SET_FILL || y1 - y0 <= MIN_SET_FILL)) {
+                evaluateInterior();
+                return;
+            }
+            // Fractions vary inside a band of one escape count, so only the set itself can be filled
+            if (uniform >= 0 && (fractions == null || inSet) && (!inSet || guardRingInSet())) {
+                // The guard ring, if any, has been evaluated already
+                int inset = inSet ? 2 : 1;
+                for (int y = y0 + inset; y <= y1 - inset; y++) {
+                    for (int x = x0 + inset; x <= x1 - inset; x++) {
+                        target.set(x, y, uniform);
+                    }
+                    if (fractions != null) {
+                        Arrays.fill(fractions, y * target.getWidth() + x0 + inset, y * target.getWidth() + x1 - inset + 1, 0f);
+                    }
+                }
+                subdivisionFills.add((long) (x1 - x0 - 2 * inset + 1) * (y1 - y0 - 2 * inset + 1));
+                return;
+            }
+            if (x1 - x0 <= MIN_SUBDIVISION || y1 - y0 <= MIN_SUBDIVISION) {
+                evaluateInterior();
+                return;
+            }
+            long cpuStart = workerCpu.start();
+            long iterations = 0;
+            if (x1 - x0 >= y1 - y0) {
+                int mid = (x0 + x1) / 2;
+                for (int y = y0 + 1; y < y1; y++) {
+                    iterations += evaluate(mid, y);
+                }
+                recordWork(cpuStart, iterations);
+                invokeAll(new SubdivisionTask(target, x0, y0, mid, y1, state, radiusSquared, cancelled),
+                        new SubdivisionTask(target, mid, y0, x1, y1, state, radiusSquared, cancelled));
+            } else {
+                int mid = (y0 + y1) / 2;
+                for (int x = x0 + 1; x < x1; x++) {
+                    iterations += evaluate(x, mid);
+                }
+                recordWork(cpuStart, iterations);
+                invokeAll(new SubdivisionTask(target, x0, y0, x1, mid, state, radiusSquared, cancelled),
+                        new SubdivisionTask(target, x0, mid, x1, y1, state, radiusSquared, cancelled));
+            }
+        }
+
+        private void evaluateInterior() {
+            long cpuStart = workerCpu.start();
+            long iterations = 0;
+            for (int y = y0 + 1; y < y1; y++) {
+                for (int x = x0 + 1; x < x1; x++) {
+                    iterations += evaluate(x, y);
+                }
+            }
+            recordWork(cpuStart, iterations);
+        }
+
+        /**
+         * Evaluates the ring of pixels just inside the border, which is in the set.
+         *
+         * @return true if the whole ring is in the set too
+         */
+        private boolean guardRingInSet() {
+            long cpuStart = workerCpu.start();
+            long iterations = 0;
+            boolean inSet = true;
+            for (int x = x0 + 1; x < x1; x++) {
+                iterations += evaluate(x, y0 + 1) + evaluate(x, y1 - 1);
+                inSet &= target.get(x, y0 + 1) == state.maxIterations && target.get(x, y1 - 1) == state.maxIterations;
+            }
+            for (int y = y0 + 2; y < y1 - 1; y++) {
+                iterations += evaluate(x0 + 1, y) + evaluate(x1 - 1, y);
+                inSet &= target.get(x0 + 1, y) == state.maxIterations && target.get(x1 - 1, y) == state.maxIterations;
+            }
+            recordWork(cpuStart, iterations);
+            return inSet;
+        }
+
+        /**
+         * @return the iteration count shared by every border pixel, or -1 if they differ
+         */
+        private int uniformBorder() {
+            int value = target.get(x0, y0);
+            for (int x = x0; x <= x1; x++) {
+                if (target.get(x, y0) != value || target.get(x, y1) != value) {
+                    return -1;
+                }
+            }
+            for (int y = y0; y <= y1; y++) {
+                if (target.get(x0, y) != value || target.get(x1, y) != value) {
+                    return -1;
+                }
+            }
+            return value;
+        }
+    }
+
+    /**
+     * Fork-join task finding the pixels in rows [y0, y1) of a frame whose count differs from a neighbour's.
+     */
+    private static final class EdgeTask extends RecursiveTask<int[]> {
+
+        private static final long serialVersionUID = 1L;
+
+        /** Pixels below which a band of rows is scanned directly instead of being split. */
+        private static final int LEAF_PIXELS = 1 << 14;
+
+        private final IterationFrame frame;
+        private final int y0;
+        private final int y1;
+        private final BooleanSupplier cancelled;
+
+        EdgeTask(IterationFrame frame, int y0, int y1, BooleanSupplier cancelled) {
+            this.frame = frame;
+            this.y0 = y0;
+            this.y1 = y1;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected int[] compute() {
+            int width = frame.getWidth();
+            if ((long) (y1 - y0) * width > LEAF_PIXELS && y1 - y0 > 1) {
+                int mid = (y0 + y1) >>> 1;
+                EdgeTask lower = new EdgeTask(frame, mid, y1, cancelled);
+                lower.fork();
+                int[] upper = new EdgeTask(frame, y0, mid, cancelled).compute();
+                int[] rest = lower.join();
+                int[] edges = Arrays.copyOf(upper, upper.length + rest.length);
+                System.arraycopy(rest, 0, edges, upper.length, rest.length);
+                return edges;
+            }
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException("Mandelbrot render cancelled");
+            }
+            int height = frame.getHeight();
+            int[] pixels = frame.getPixels();
+            int[] edges = new int[16];
+            int count = 0;
+            for (int y = y0; y < y1; y++) {
+                int row = y * width;
+                for (int x = 0; x < width; x++) {
+                    int i = row + x;
+                    int value = pixels[i];
+                    if ((x > 0 && pixels[i - 1] != value) || (x + 1 < width && pixels[i + 1] != value)
+                            || (y > 0 && pixels[i - width] != value) || (y + 1 < height && pixels[i + width] != value)) {
+                        if (count == edges.length) {
+                            edges = Arrays.copyOf(edges, count * 2);
+                        }
+                        edges[count++] = i;
+                    }
+                }
+            }
+            return Arrays.copyOf(edges, count);
+        }
+    }
+
+    /**
+     * Fork-join task evaluating the sub-samples of edge pixels [from, to).
+     */
+    private final class SampleTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        /** Edge pixels below which a range is sampled directly instead of being split. */
+        private static final int LEAF_EDGES = 64;
+
+        private final IterationFrame tile;
+        private final int[] edges;
+        private final IterationFrame samples;
+        private final int from;
+        private final int to;
+        private final int firstColumn;
+        private final int firstRow;
+        private final double realStep;
+        private final double imaginaryStep;
+        private final int grid;
+        private final MandelbrotState state;
+        private final double radiusSquared;
+        private final BooleanSupplier cancelled;
+
+        SampleTask(IterationFrame tile, int[] edges, IterationFrame samples, int from, int to, int firstColumn,
+                   int firstRow, double realStep, double imaginaryStep, int grid, MandelbrotState state,
+                   double radiusSquared, BooleanSupplier cancelled) {
+            this.tile = tile;
+            this.edges = edges;
+            this.samples = samples;
+            this.from = from;
+            this.to = to;
+            this.firstColumn = firstColumn;
+            this.firstRow = firstRow;
+            this.realStep = realStep;
+            this.imaginaryStep = imaginaryStep;
+            this.grid = grid;
+            this.state = state;
+            this.radiusSquared = radiusSquared;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_EDGES) {
+                int mid = (from + to) >>> 1;
+                invokeAll(split(from, mid), split(mid, to));
+                return;
+            }
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException("Mandelbrot render cancelled");
+            }
+            int width = tile.getWidth();
+            int[] counts = samples.getPixels();
+            float[] fractions = samples.getFractions();
+            double[] z = new double[2];
+            long cpuStart = workerCpu.start();
+            long iterations = 0;
+            for (int e = from; e < to; e++) {
+                int column = firstColumn + edges[e] % width;
+                int row = firstRow + edges[e] / width;
+                int index = e * grid * grid;
+                for (int sy = 0; sy < grid; sy++) {
+                    // Sub-sample centres, offset from the pixel's own sample point by less than half a pixel
+                    double cImaginary = state.minImag + (row + (sy + 0.5) / grid - 0.5) * imaginaryStep;
+                    for (int sx = 0; sx < grid; sx++, index++) {
+                        double cReal = state.minReal + (column + (sx + 0.5) / grid - 0.5) * realStep;
+                        counts[index] = fractions == null
+                                ? calcPoint(state.kernel, cReal, cImaginary, state.maxIterations, radiusSquared)
+                                : calcTracked(state.kernel, cReal, cImaginary, state.maxIterations, radiusSquared,
+                                        index, null, null, fractions, z);
+                        iterations += counts[index];
+                    }
+                }
+            }
+            recordWork(cpuStart, iterations);
+        }
+
+        private SampleTask split(int nfrom, int nto) {
+            return new SampleTask(tile, edges, samples, nfrom, nto, firstColumn, firstRow, realStep, imaginaryStep,
+                    grid, state, radiusSquared, cancelled);
+        }
+    }
+
+    /** Per-thread staging area for captured orbits, flushed into the shared buffer in batches. */
+    private static final ThreadLocal<OrbitScratch> ORBIT_SCRATCH = ThreadLocal.withInitial(OrbitScratch::new);
+
+    private static final class OrbitScratch {
+        private final int[] indices = new int[TILE_SIZE * TILE_SIZE];
+        private final double[] zReal = new double[TILE_SIZE * TILE_SIZE];
+        private final double[] zImag = new double[TILE_SIZE * TILE_SIZE];
+        private int count;
+
+        void add(OrbitBuffer orbits, int index, double zr, double zi) {
+            if (count == indices.length) {
+                flush(orbits);
+            }
+            indices[count] = index;
+            zReal[count] = zr;
+            zImag[count] = zi;
+            count++;
+        }
+
+        void flush(OrbitBuffer orbits) {
+            orbits.append(indices, zReal, zImag, count);
+            count = 0;
+        }
+
+        void clear() {
+            count = 0;
+        }
+    }
+
+    /**
+     * Fork-join task resuming the orbits in entries [from, to) of an orbit buffer up to a higher cap.
+     */
+    private final class ResumeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        /** Entries below which a range is resumed directly instead of being split. */
+        private static final int LEAF_ENTRIES = 1024;
+
+        private final IterationFrame target;
+        private final OrbitBuffer orbits;
+        private final int from;
+        private final int to;
+        private final int oldIterations;
+        private final MandelbrotState state;
+        private final double radiusSquared;
+        private final BooleanSupplier cancelled;
+
+        ResumeTask(IterationFrame target, OrbitBuffer orbits, int from, int to, int oldIterations,
+                   MandelbrotState state, double radiusSquared, BooleanSupplier cancelled) {
+            this.target = target;
+            this.orbits = orbits;
+            this.from = from;
+            this.to = to;
+            this.oldIterations = oldIterations;
+            this.state = state;
+            this.radiusSquared = radiusSquared;
+            this.cancelled = cancelled;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > LEAF_ENTRIES) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ResumeTask(target, orbits, from, mid, oldIterations, state, radiusSquared, cancelled),
+                        new ResumeTask(target, orbits, mid, to, oldIterations, state, radiusSquared, cancelled));
+                return;
+            }
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException("Mandelbrot render cancelled");
+            }
+            int width = target.getWidth();
+            int[] pixels = target.getPixels();
+            int[] indices = orbits.indices();
+            double[] zReal = orbits.zReal();
+            double[] zImag = orbits.zImag();
+            double realStep = (state.maxReal - state.minReal)/width;
+            double imaginaryStep = (state.maxImag - state.minImag)/target.getHeight();
+            float[] fractions = target.getFractions();
+            double[] z = new double[2];
+            long cpuStart = workerCpu.start();
+            long resumed = 0;
+            for (int i = from; i < to; i++) {
+                int index = indices[i];
+                if (Double.isNaN(zReal[i])) {
+                    pixels[index] = state.maxIterations; // known interior point
+                    continue;
+                }
+                double cReal = state.minReal + (index % width) * realStep;
+                double cImaginary = state.minImag + (index / width) * imaginaryStep;
+                int iterations = state.kernel.resume(cReal, cImaginary, zReal[i], zImag[i], oldIterations, state.maxIterations, radiusSquared, z);
+                pixels[index] = iterations;
+                if (fractions != null && z[0] == Double.POSITIVE_INFINITY) {
+                    fractions[index] = state.kernel.escapeFraction(z[1], radiusSquared);
+                }
+                resumed += iterations - oldIterations;
+                zReal[i] = z[0]; // positive infinity once escaped: dropped afterwards
+                zImag[i] = z[1];
+            }
+            recordWork(cpuStart, resumed);
+        }
     }
 }
-
+
\ No newline at end of file
@@ -0,0 +1,66 @@
+package model;
+
+/**
+ * The Mandelbrot set, z^2 + c with z starting at 0 and c the pixel. {@link MandelbrotCalculator}
+ * recognises this kernel and keeps its own loops for it, with the interior test, periodicity checking
+ * and the interleaved kernel; these methods serve callers that iterate single points.
+ */
+final class MandelbrotKernel implements FractalKernel {
+
+    /** The only instance, {@link FractalKernel#MANDELBROT}. */
+    static final MandelbrotKernel INSTANCE = new MandelbrotKernel();
+
+    private MandelbrotKernel() {
+    }
+
+    @Override
+    public String getName() {
+        return "Mandelbrot";
+    }
+
+    @Override
+    public String getSpec() {
+        return "mandelbrot";
+    }
+
+    @Override
+    public int escape(double x, double y, int maxIterations, double radiusSquared) {
+        int iterations = 0;
+        double zr = 0;
+        double zi = 0;
+        while (iterations < maxIterations) {
+            double zr2 = zr * zr;
+            double zi2 = zi * zi;
+            double nzi = 2 * zr * zi + y;
+            zr = zr2 - zi2 + x;
+            zi = nzi;
+            iterations++;
+            if (zr2 + zi2 > radiusSquared) {
+                break;
+            }
+        }
+        return iterations;
+    }
+
+    @Override
+    public int resume(double x, double y, double zr, double zi, int iterations, int maxIterations,
+                      double radiusSquared, double[] z) {
+        return MandelbrotCalculator.calcMandelOrbit(x, y, zr, zi, iterations, maxIterations, radiusSquared, z);
+    }
+
+    @Override
+    public boolean isSimplyConnected() {
+        return true;
+    }
+
+    @Override
+    public MandelbrotState initialState(int maxIterations) {
+        return new MandelbrotState(MandelbrotCalculator.INITIAL_MIN_REAL, MandelbrotCalculator.INITIAL_MAX_REAL,
+                MandelbrotCalculator.INITIAL_MIN_IMAGINARY, MandelbrotCalculator.INITIAL_MAX_IMAGINARY, maxIterations);
+    }
+
+    @Override
+    public String toString() {
+        return getSpec();
+    }
+}
@@ -1,11 +1,20 @@
 package model;
 
+import java.math.BigDecimal;
+
 /**
  * Immutable snapshot of the Mandelbrot model state.
  * Used for undo/redo functionality.
+ *
+ * The view window is held twice: as double bounds, which the double renderers sample, and as an exact centre with
+ * the extent of the window, which the perturbation renderer samples. A window given by its bounds has its exact
+ * midpoint as centre. A window given by its centre has its bounds rounded from it; past a magnification of about
+ * 1e15 the bounds no longer resolve the window, and from about 1e16 both bounds of an axis round to the same double.
  */
 public class MandelbrotState {
 
+    private static final BigDecimal HALF = new BigDecimal("0.5");
+
     /** Minimum real coordinate of view window. */
     public final double minReal;
     /** Maximum real coordinate of view window. */
@@ -16,9 +25,19 @@ public class MandelbrotState {
     public final double maxImag;
     /** Maximum iterations for Mandelbrot calculation. */
     public final int maxIterations;
+    /** Fractal rendered in the view window. */
+    public final FractalKernel kernel;
+    /** Real coordinate of the centre of the view window, exact; null if the bounds are not finite. */
+    public final BigDecimal centreReal;
+    /** Imaginary coordinate of the centre of the view window, exact; null if the bounds are not finite. */
+    public final BigDecimal centreImag;
+    /** Width of the view window along the real axis. */
+    public final double realSpan;
+    /** Height of the view window along the imaginary axis. */
+    public final double imagSpan;
 
     /**
-     * Creates a state snapshot of the current view window and iteration cap.
+     * Creates a state snapshot of the current view window and iteration cap of the Mandelbrot set.
      *
      * @param minReal minimum real coordinate
      * @param maxReal maximum real coordinate
@@ -29,11 +48,127 @@ public class MandelbrotState {
     public MandelbrotState(double minReal, double maxReal,
                            double minImag, double maxImag,
                            int maxIterations) {
+        this(minReal, maxReal, minImag, maxImag, maxIterations, FractalKernel.MANDELBROT);
+    }
+
+    /**
+     * Creates a state snapshot of the current view window, iteration cap and fractal.
+     *
+     * @param minReal minimum real coordinate
+     * @param maxReal maximum real coordinate
+     * @param minImag minimum imaginary coordinate
+     * @param maxImag maximum imaginary coordinate
+     * @param maxIterations maximum iterations allowed
+     * @param kernel fractal rendered in the view window
+     */
+    public MandelbrotState(double minReal, double maxReal,
+                           double minImag, double maxImag,
+                           int maxIterations, FractalKernel kernel) {
 
         this.minReal = minReal;
         this.maxReal = maxReal;
         this.minImag = minImag;
         this.maxImag = maxImag;
         this.maxIterations = maxIterations;
+        this.kernel = kernel;
+        this.centreReal = midpoint(minReal, maxReal);
+        this.centreImag = midpoint(minImag, maxImag);
+        this.realSpan = maxReal - minReal;
+        this.imagSpan = maxImag - minImag;
+    }
+
+    /**
+     * Creates a state snapshot of a view window given by its exact centre, so that it can be deeper than double
+     * bounds resolve. The bounds are the nearest doubles to the edges of the window.
+     *
+     * @param centreReal real coordinate of the centre of the view window
+     * @param centreImag imaginary coordinate of the centre of the view window
+     * @param realSpan width of the view window along the real axis
+     * @param imagSpan height of the view window along the imaginary axis
+     * @param maxIterations maximum iterations allowed
+     * @param kernel fractal rendered in the view window
+     */
+    public MandelbrotState(BigDecimal centreReal, BigDecimal centreImag, double realSpan, double imagSpan,
+                           int maxIterations, FractalKernel kernel) {
+        BigDecimal halfReal = new BigDecimal(realSpan).multiply(HALF);
+        BigDecimal halfImag = new BigDecimal(imagSpan).multiply(HALF);
+        this.minReal = centreReal.subtract(halfReal).doubleValue();
+        this.maxReal = centreReal.add(halfReal).doubleValue();
+        this.minImag = centreImag.subtract(halfImag).doubleValue();
+        this.maxImag = centreImag.add(halfImag).doubleValue();
+        this.maxIterations = maxIterations;
+        this.kernel = kernel;
+        this.centreReal = centreReal;
+        this.centreImag = centreImag;
+        this.realSpan = realSpan;
+        this.imagSpan = imagSpan;
+    }
+
+    /**
+     * @param maxIterations maximum iterations allowed
+     * @param kernel fractal rendered in the view window
+     * @return a state with the same view window, exact centre included, and the given cap and fractal
+     */
+    public MandelbrotState withIterations(int maxIterations, FractalKernel kernel) {
+        return new MandelbrotState(this, maxIterations, kernel);
+    }
+
+    private MandelbrotState(MandelbrotState window, int maxIterations, FractalKernel kernel) {
+        this.minReal = window.minReal;
+        this.maxReal = window.maxReal;
+        this.minImag = window.minImag;
+        this.maxImag = window.maxImag;
+        this.maxIterations = maxIterations;
+        this.kernel = kernel;
+        this.centreReal = window.centreReal;
+        this.centreImag = window.centreImag;
+        this.realSpan = window.realSpan;
+        this.imagSpan = window.imagSpan;
+    }
+
+    private static BigDecimal midpoint(double min, double max) {
+        if (!Double.isFinite(min) || !Double.isFinite(max)) {
+            return null;
+        }
+        return new BigDecimal(min).add(new BigDecimal(max)).multiply(HALF);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MandelbrotState)) {
+            return false;
+        }
+        MandelbrotState other = (MandelbrotState) o;
+        return Double.compare(minReal, other.minReal) == 0
+                && Double.compare(maxReal, other.maxReal) == 0
+                && Double.compare(minImag, other.minImag) == 0
+                && Double.compare(maxImag, other.maxImag) == 0
+                && maxIterations == other.maxIterations
+                && kernel.equals(other.kernel)
+                && Double.compare(realSpan, other.realSpan) == 0
+                && Double.compare(imagSpan, other.imagSpan) == 0
+                && sameValue(centreReal, other.centreReal)
+                && sameValue(centreImag, other.centreImag);
+    }
+
+    private static boolean sameValue(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        // Deep windows that share their bounds differ in their centre, which is left out to keep hashing cheap
+        int result = Double.hashCode(minReal);
+        result = 31 * result + Double.hashCode(maxReal);
+        result = 31 * result + Double.hashCode(minImag);
+        result = 31 * result + Double.hashCode(maxImag);
+        result = 31 * result + maxIterations;
+        result = 31 * result + kernel.hashCode();
+        result = 31 * result + Double.hashCode(realSpan);
+        result = 31 * result + Double.hashCode(imagSpan);
+        return result;
     }
 }
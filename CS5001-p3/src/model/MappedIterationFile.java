@@ -0,0 +1,361 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CancellationException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Iteration counts of an image too large for the heap, rendered tile by tile straight into a
+ * memory-mapped file. The file starts with a fixed-size header recording the image size, tile
+ * size, view window, fractal and bailout radius, followed by one completion flag per tile and then the
+ * iteration counts as row-major 32-bit integers. Only the rows of tiles being rendered are mapped
+ * at any time, and each tile is rendered into one small reused frame, so heap use does not depend
+ * on the image size.
+ *
+ * Tiles are flagged as complete only after their pixels have been forced to disk, so a render that
+ * was interrupted or crashed resumes from the file with {@link #open} and {@link #render}.
+ */
+public class MappedIterationFile implements Closeable {
+
+    /** Default edge length of the tiles rendered and tracked by the file. */
+    public static final int DEFAULT_TILE_SIZE = 256;
+
+    /** Identifies the file format; the last byte is the format version. */
+    private static final int MAGIC = 0x4D424932; // "MBI2"
+    /** Bytes reserved for the fractal kernel's specification, in ASCII padded with zeros. */
+    private static final int KERNEL_SPEC_SIZE = 64;
+    /** Size of the header: magic, width, height, tile size, four view bounds, iteration cap, bailout radius, kernel. */
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 4 + 4 * 8 + 4 + 8 + KERNEL_SPEC_SIZE;
+    // Tile flags besides 0 (never rendered): rendered and forced to disk, rendered but not yet forced
+    private static final byte TILE_COMPLETE = 1;
+    private static final byte TILE_WRITTEN = 2;
+
+    private final FileChannel channel;
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    private final int tilesAcross;
+    private final int tilesDown;
+    private final MandelbrotState state;
+    private final double radiusSquared;
+    private final long dataOffset;
+    // Header and tile flags, mapped for the lifetime of the file
+    private final MappedByteBuffer meta;
+
+    private MappedIterationFile(FileChannel channel, int width, int height, int tileSize,
+                                MandelbrotState state, double radiusSquared) throws IOException {
+        this.channel = channel;
+        this.width = width;
+        this.height = height;
+        this.tileSize = tileSize;
+        this.tilesAcross = (width + tileSize - 1) / tileSize;
+        this.tilesDown = (height + tileSize - 1) / tileSize;
+        this.state = state;
+        this.radiusSquared = radiusSquared;
+        this.dataOffset = dataOffset(tilesAcross * tilesDown);
+        this.meta = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) tilesAcross * tilesDown);
+    }
+
+    /**
+     * @return offset of the pixel data for a file with the given number of tiles, aligned to whole ints
+     */
+    private static long dataOffset(long tiles) {
+        return (HEADER_SIZE + tiles + 7) & ~7L;
+    }
+
+    private static long fileSize(int width, int height, int tileSize) {
+        long tiles = (long) ((width + tileSize - 1) / tileSize) * ((height + tileSize - 1) / tileSize);
+        return dataOffset(tiles) + (long) width * height * Integer.BYTES;
+    }
+
+    /**
+     * Creates (or overwrites) a file for rendering the given view with the default tile size.
+     *
+     * @param file path of the file
+     * @param width image width in pixels
+     * @param height image height in pixels
+     * @param state view window and iteration cap
+     * @param radiusSquared the squared bailout radius
+     * @return the open file, with no tile rendered yet
+     * @throws IOException if the file cannot be created
+     */
+    public static MappedIterationFile create(Path file, int width, int height, MandelbrotState state,
+                                             double radiusSquared) throws IOException {
+        return create(file, width, height, DEFAULT_TILE_SIZE, state, radiusSquared);
+    }
+
+    /**
+     * Creates (or overwrites) a file for rendering the given view.
+     *
+     * @param file path of the file
+     * @param width image width in pixels
+     * @param height image height in pixels
+     * @param tileSize edge length of the tiles, the unit of work and of resumption
+     * @param state view window and iteration cap
+     * @param radiusSquared the squared bailout radius
+     * @return the open file, with no tile rendered yet
+     * @throws IOException if the file cannot be created
+     */
+    public static MappedIterationFile create(Path file, int width, int height, int tileSize, MandelbrotState state,
+                                             double radiusSquared) throws IOException {
+        if (width <= 0 || height <= 0 || tileSize <= 0) {
+            throw new IllegalArgumentException("Image and tile dimensions must be positive");
+        }
+        if ((long) tileSize * width * Integer.BYTES > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A row of tiles must fit in one mapping; use a smaller tile size");
+        }
+        byte[] kernelSpec = state.kernel.getSpec().getBytes(StandardCharsets.US_ASCII);
+        if (kernelSpec.length > KERNEL_SPEC_SIZE) {
+            throw new IllegalArgumentException("Fractal kernel specification too long: " + state.kernel.getSpec());
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            // Extending the file leaves it sparse: space is only used as tiles are written
+            channel.write(ByteBuffer.allocate(1), fileSize(width, height, tileSize) - 1);
+            MappedIterationFile mapped = new MappedIterationFile(channel, width, height, tileSize, state, radiusSquared);
+            mapped.meta.putInt(MAGIC)
+                    .putInt(width)
+                    .putInt(height)
+                    .putInt(tileSize)
+                    .putDouble(state.minReal)
+                    .putDouble(state.maxReal)
+                    .putDouble(state.minImag)
+                    .putDouble(state.maxImag)
+                    .putInt(state.maxIterations)
+                    .putDouble(radiusSquared)
+                    .put(kernelSpec);
+            mapped.meta.force();
+            return mapped;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens an existing file, e.g. to resume an interrupted render or to read a finished one.
+     *
+     * @param file path of the file
+     * @return the open file
+     * @throws IOException if the file cannot be read or is not an iteration file
+     */
+    public static MappedIterationFile open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // read the whole header
+            }
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+                throw new IOException("Not an iteration file: " + file);
+            }
+            int width = header.getInt();
+            int height = header.getInt();
+            int tileSize = header.getInt();
+            double minReal = header.getDouble();
+            double maxReal = header.getDouble();
+            double minImag = header.getDouble();
+            double maxImag = header.getDouble();
+            int maxIterations = header.getInt();
+            double radiusSquared = header.getDouble();
+            byte[] kernelSpec = new byte[KERNEL_SPEC_SIZE];
+            header.get(kernelSpec);
+            int specLength = 0;
+            while (specLength < KERNEL_SPEC_SIZE && kernelSpec[specLength] != 0) {
+                specLength++;
+            }
+            if (width <= 0 || height <= 0 || tileSize <= 0) {
+                throw new IOException("Corrupt iteration file header: " + file);
+            }
+            MandelbrotState state;
+            try {
+                state = new MandelbrotState(minReal, maxReal, minImag, maxImag, maxIterations,
+                        FractalKernel.parse(new String(kernelSpec, 0, specLength, StandardCharsets.US_ASCII)));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Corrupt iteration file header: " + file, e);
+            }
+            if (channel.size() < fileSize(width, height, tileSize)) {
+                throw new IOException("Iteration file is truncated: " + file);
+            }
+            return new MappedIterationFile(channel, width, height, tileSize, state, radiusSquared);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Renders every tile not yet flagged as complete, one row of tiles at a time. Each tile is
+     * rendered in parallel by the calculator. If cancelled, or if the process dies, the tiles
+     * completed so far are kept and a later call renders only the rest.
+     *
+     * @param calculator calculator used for the tiles
+     * @param cancelled polled between tiles and during them
+     * @throws IOException if writing to the file fails
+     * @throws CancellationException if the render was abandoned part way through
+     */
+    public void render(MandelbrotCalculator calculator, BooleanSupplier cancelled) throws IOException {
+        IterationFrame tile = new IterationFrame(Math.min(tileSize, width), Math.min(tileSize, height));
+        IterationFrame partial = null;
+        for (int tileY = 0; tileY < tilesDown; tileY++) {
+            int y0 = tileY * tileSize;
+            int rows = Math.min(tileSize, height - y0);
+            MappedByteBuffer band = null;
+            IntBuffer pixels = null;
+            try {
+                for (int tileX = 0; tileX < tilesAcross; tileX++) {
+                    if (isTileComplete(tileX, tileY)) {
+                        continue;
+                    }
+                    if (cancelled.getAsBoolean()) {
+                        throw new CancellationException("Mandelbrot render cancelled");
+                    }
+                    if (band == null) {
+                        band = channel.map(FileChannel.MapMode.READ_WRITE,
+                                dataOffset + (long) y0 * width * Integer.BYTES, (long) rows * width * Integer.BYTES);
+                        pixels = band.order(ByteOrder.BIG_ENDIAN).asIntBuffer();
+                    }
+                    int x0 = tileX * tileSize;
+                    int columns = Math.min(tileSize, width - x0);
+                    IterationFrame target = tile;
+                    if (columns != tile.getWidth() || rows != tile.getHeight()) {
+                        // Edge tiles are smaller than the rest
+                        if (partial == null || partial.getWidth() != columns || partial.getHeight() != rows) {
+                            partial = new IterationFrame(columns, rows);
+                        }
+                        target = partial;
+                    }
+                    calculator.calcMandelbrotTile(target, x0, y0, width, height, state, radiusSquared, cancelled);
+                    int[] counts = target.getPixels();
+                    for (int y = 0; y < rows; y++) {
+                        pixels.put(y * width + x0, counts, y * columns, columns);
+                    }
+                    meta.put(HEADER_SIZE + tileY * tilesAcross + tileX, TILE_WRITTEN);
+                }
+            } finally {
+                if (band != null) {
+                    // Pixels first, then the flags that vouch for them
+                    band.force();
+                    for (int tileX = 0; tileX < tilesAcross; tileX++) {
+                        int flag = HEADER_SIZE + tileY * tilesAcross + tileX;
+                        if (meta.get(flag) == TILE_WRITTEN) {
+                            meta.put(flag, TILE_COMPLETE);
+                        }
+                    }
+                    meta.force();
+                }
+            }
+        }
+    }
+
+    /**
+     * @param tileX column of the tile
+     * @param tileY row of the tile
+     * @return whether the tile's pixels are in the file
+     */
+    public boolean isTileComplete(int tileX, int tileY) {
+        return meta.get(HEADER_SIZE + tileY * tilesAcross + tileX) == TILE_COMPLETE;
+    }
+
+    /**
+     * @return number of tiles whose pixels are in the file
+     */
+    public int getCompletedTileCount() {
+        int completed = 0;
+        for (int tileY = 0; tileY < tilesDown; tileY++) {
+            for (int tileX = 0; tileX < tilesAcross; tileX++) {
+                if (isTileComplete(tileX, tileY)) {
+                    completed++;
+                }
+            }
+        }
+        return completed;
+    }
+
+    /**
+     * @return total number of tiles in the image
+     */
+    public int getTileCount() {
+        return tilesAcross * tilesDown;
+    }
+
+    /**
+     * @return whether every tile has been rendered
+     */
+    public boolean isComplete() {
+        return getCompletedTileCount() == getTileCount();
+    }
+
+    /**
+     * Reads one row of iteration counts from the file without mapping it.
+     *
+     * @param y row to read
+     * @param counts receives width iteration counts
+     * @throws IOException if reading fails
+     */
+    public void readRow(int y, int[] counts) throws IOException {
+        if (y < 0 || y >= height) {
+            throw new IndexOutOfBoundsException("Row " + y + " outside image of height " + height);
+        }
+        ByteBuffer row = ByteBuffer.allocate(width * Integer.BYTES);
+        long position = dataOffset + (long) y * width * Integer.BYTES;
+        while (row.hasRemaining()) {
+            if (channel.read(row, position + row.position()) < 0) {
+                throw new IOException("Iteration file is truncated");
+            }
+        }
+        row.flip();
+        row.asIntBuffer().get(counts, 0, width);
+    }
+
+    /**
+     * @return image width in pixels
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return image height in pixels
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return edge length of the tiles
+     */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * @return view window and iteration cap recorded in the header
+     */
+    public MandelbrotState getState() {
+        return state;
+    }
+
+    /**
+     * @return the squared bailout radius recorded in the header
+     */
+    public double getRadiusSquared() {
+        return radiusSquared;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -4,11 +4,22 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
 
 
 /**
@@ -17,29 +28,78 @@ import java.util.Properties;
 public class ModelMandelbrot {
 
     private static final String DEFAULT_COLOR_MAP = "Black & White";
+    // Largest distance from a whole pixel for which a pan still counts as pixel-aligned
+    private static final double PAN_ALIGNMENT_TOLERANCE = 1e-6;
     /** Minimum iterations allowed for rendering. */
     public static final int MIN_ITERATIONS = 10;
     /** Maximum iterations allowed for rendering. */
     public static final int MAX_ITERATIONS = 5000;
+    /**
+     * Magnification from which views are rendered by perturbation instead of plain doubles, and from which
+     * zooms and pans keep the view window by its exact centre rather than by its double bounds, which stop
+     * resolving it at about 1e15; see {@link #setViewCentre}.
+     */
+    public static final double DEEP_ZOOM_MAGNIFICATION = 1e13;
 
-    private double minReal;
-    private double maxReal;
-    private double minImag;
-    private double maxImag;
+    // View window, with an exact centre for views deeper than double bounds resolve; its cap and fractal are unused
+    private MandelbrotState window;
     private int maxIterations;
     private double radiusSquared;
+    private FractalKernel kernel = FractalKernel.MANDELBROT;
 
     private final int width;
     private final int height;
     private String colorMapName = DEFAULT_COLOR_MAP;
 
-    // Data calculated: for each pixel [y][x], number of iterations
-    private int[][] data;
+    // Data calculated, double-buffered: listeners read the front frame while renders fill the back one
+    private IterationFrame frontFrame;
+    private IterationFrame backFrame;
+    // Scratch frame for progressive previews
+    private final IterationFrame previewFrame;
+    // Frame listeners should show: the front frame, or a preview while a progressive render runs
+    private volatile IterationFrame displayedFrame;
+    // Iteration cap the displayed frame was rendered with
+    private volatile int displayedIterations;
+    // View shown by the front frame
+    private MandelbrotState frontState;
+    // Final Z of the unescaped pixels of the last full render, for raising the cap incrementally
+    private final OrbitBuffer orbits = new OrbitBuffer();
+    // Whole-pixel offset of the pan about to be rendered, if it was pixel-aligned
+    private PanShift pendingShift;
+    // Compatibility copy handed out by getData(), rebuilt lazily after each publish
+    private volatile int[][] dataView;
 
     private MandelbrotCalculator calculator;
+    // Perturbation renderer for views beyond double precision, chosen by magnification
+    private final DeepZoomCalculator deepZoomCalculator = new DeepZoomCalculator();
+    private volatile double deepZoomMagnification = DEEP_ZOOM_MAGNIFICATION;
+    // Render on all cores by default; the sequential path is kept for comparison
+    private boolean parallelRendering = true;
+    // Mariani-Silver subdivision instead of evaluating every pixel
+    private boolean subdivisionRendering = false;
+    // Record escape fractions for smooth colouring
+    private boolean fractionalCounts = false;
+
+    // Recently rendered views, so that undo, redo and reset skip the calculator
+    private volatile RenderCache renderCache = new RenderCache();
+
+    // Asynchronous rendering: a single background thread, the newest request wins
+    private boolean asynchronousRendering = false;
+    private ExecutorService renderExecutor;
+    private Future<?> pendingRender;
+    private final AtomicLong requestedGeneration = new AtomicLong();
+    // Renders of this generation and older were produced under settings since changed, so are not reused
+    private long retiredGeneration;
+    private volatile long deliveredGeneration;
+    // Publish coarse previews before the full-resolution result (asynchronous mode only)
+    private boolean progressiveRendering = false;
+    // Where listeners are notified of asynchronous results (e.g. the Swing EDT)
+    private Executor notificationExecutor = Runnable::run;
 
     // List of listeners (views or others) that want to be notified
     private List<ModelListener> listeners = new ArrayList<>();
+    // Listeners for render measurements; checked from the render thread, so safe to change from any thread
+    private final List<RenderMetricsListener> metricsListeners = new CopyOnWriteArrayList<>();
 
     // Undo/redo stacks
     private final Deque<MandelbrotState> undoStack = new ArrayDeque<>();
@@ -56,14 +116,14 @@ public class ModelMandelbrot {
         this.width = width;
         this.height = height;
 
-        this.minReal = MandelbrotCalculator.INITIAL_MIN_REAL;
-        this.maxReal = MandelbrotCalculator.INITIAL_MAX_REAL;
-        this.minImag = MandelbrotCalculator.INITIAL_MIN_IMAGINARY;
-        this.maxImag = MandelbrotCalculator.INITIAL_MAX_IMAGINARY;
         this.maxIterations = MandelbrotCalculator.INITIAL_MAX_ITERATIONS;
+        this.window = FractalKernel.MANDELBROT.initialState(maxIterations);
         this.radiusSquared = MandelbrotCalculator.DEFAULT_RADIUS_SQUARED;
 
         this.calculator = new MandelbrotCalculator();
+        this.frontFrame = new IterationFrame(width, height);
+        this.backFrame = new IterationFrame(width, height);
+        this.previewFrame = new IterationFrame(width, height);
 
         recalculate();
     }
@@ -71,28 +131,616 @@ public class ModelMandelbrot {
     /**
      * Recalculates the Mandelbrot set with the current parameters.
      * Calls the calculator and then notifies the listeners.
+     * In asynchronous mode the work is handed to {@link #recalculateAsync()} instead.
      */
     public void recalculate() {
-        data = calculator.calcMandelbrotSet(
-                width,
-                height,
-                minReal,
-                maxReal,
-                minImag,
-                maxImag,
-                maxIterations,
-                radiusSquared
+        if (asynchronousRendering) {
+            recalculateAsync();
+            return;
+        }
+        Future<?> previous;
+        long generation;
+        synchronized (this) {
+            previous = pendingRender;
+            generation = supersedePendingRender();
+        }
+        // A cancelled background render may still be writing into the back frame
+        awaitQuietly(previous);
+        IterationFrame target = acquireBackFrame();
+        MandelbrotState state = snapshot();
+        RenderMetrics metrics = produceMeasured(state, target, takePendingShift(), () -> false, generation, false);
+        publish(target, state, generation, metrics);
+    }
+
+    /**
+     * Starts recalculating the current view on a background thread and returns immediately.
+     * A render that is still running is cancelled, and only the result of the latest request
+     * is published to the listeners, through the notification executor.
+     *
+     * @return future completing when the background render has finished or been cancelled
+     */
+    public synchronized Future<?> recalculateAsync() {
+        long generation = supersedePendingRender();
+        MandelbrotState state = snapshot();
+        PanShift shift = takePendingShift();
+        if (renderExecutor == null) {
+            renderExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "mandelbrot-render");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        pendingRender = renderExecutor.submit(() -> {
+            IterationFrame target = acquireBackFrame();
+            BooleanSupplier cancelled = () -> requestedGeneration.get() != generation;
+            RenderMetrics metrics;
+            try {
+                metrics = produceMeasured(state, target, shift, cancelled, generation, progressiveRendering);
+            } catch (CancellationException ex) {
+                return;
+            }
+            notificationExecutor.execute(() -> publish(target, state, generation, metrics));
+        });
+        return pendingRender;
+    }
+
+    private synchronized long supersedePendingRender() {
+        if (pendingRender != null) {
+            pendingRender.cancel(false);
+            pendingRender = null;
+        }
+        return requestedGeneration.incrementAndGet();
+    }
+
+    private static void awaitQuietly(Future<?> render) {
+        if (render == null) {
+            return;
+        }
+        try {
+            render.get();
+        } catch (Exception ex) {
+            // Cancelled or failed: either way it no longer touches the frames
+        }
+    }
+
+    private synchronized IterationFrame acquireBackFrame() {
+        return backFrame;
+    }
+
+    /**
+     * Swaps a finished back frame to the front and notifies listeners, then metrics listeners
+     * if the render was measured, unless a newer request arrived while this result was queued.
+     */
+    private void publish(IterationFrame result, MandelbrotState state, long generation, RenderMetrics metrics) {
+        synchronized (this) {
+            if (generation != requestedGeneration.get()) {
+                return;
+            }
+            backFrame = frontFrame;
+            frontFrame = result;
+            frontState = generation > retiredGeneration ? state : null;
+            displayedFrame = result;
+            displayedIterations = state.maxIterations;
+            dataView = null;
+            deliveredGeneration = generation;
+        }
+        notifyListeners();
+        if (metrics != null) {
+            for (RenderMetricsListener l : metricsListeners) {
+                l.renderCompleted(metrics);
+            }
+        }
+    }
+
+    /**
+     * Runs produce and, if anyone listens for metrics, measures it. The calculators' counters are shared,
+     * so the differences taken here belong to this render only because renders never overlap.
+     *
+     * @return measurements of the render, or null if nobody listens for them
+     */
+    private RenderMetrics produceMeasured(MandelbrotState state, IterationFrame target, PanShift shift,
+                                          BooleanSupplier cancelled, long generation, boolean progressive) {
+        if (metricsListeners.isEmpty()) {
+            produce(state, target, shift, cancelled, generation, progressive);
+            return null;
+        }
+        long iterations = calculator.getIterationCount() + deepZoomCalculator.getIterationCount();
+        long shortcuts = calculator.getInteriorShortcutCount() + calculator.getPeriodicityShortcutCount();
+        long fills = calculator.getSubdivisionFillCount();
+        Map<String, Long> cpu = workerCpuNanos();
+        int resumable = orbits.size();
+        long start = System.nanoTime();
+        RenderMetrics.RenderPath path = produce(state, target, shift, cancelled, generation, progressive);
+        long wallNanos = System.nanoTime() - start;
+
+        long pixels = (long) width * height;
+        long reused = 0;
+        if (path == RenderMetrics.RenderPath.CACHE || path == RenderMetrics.RenderPath.CLAMP) {
+            reused = pixels;
+        } else if (path == RenderMetrics.RenderPath.RESUME) {
+            reused = pixels - resumable;
+        } else if (path == RenderMetrics.RenderPath.SHIFT && Math.abs(shift.dx) < width && Math.abs(shift.dy) < height) {
+            reused = (long) (width - Math.abs(shift.dx)) * (height - Math.abs(shift.dy));
+        }
+        Map<String, Long> cpuUsed = new HashMap<>();
+        workerCpuNanos().forEach((thread, nanos) -> {
+            long used = nanos - cpu.getOrDefault(thread, 0L);
+            if (used > 0) {
+                cpuUsed.put(thread, used);
+            }
+        });
+        return new RenderMetrics(state, path, wallNanos, cpuUsed,
+                calculator.getIterationCount() + deepZoomCalculator.getIterationCount() - iterations,
+                target.histogram(state.maxIterations),
+                calculator.getInteriorShortcutCount() + calculator.getPeriodicityShortcutCount() - shortcuts,
+                calculator.getSubdivisionFillCount() - fills, reused);
+    }
+
+    private Map<String, Long> workerCpuNanos() {
+        Map<String, Long> nanos = new HashMap<>(calculator.getWorkerCpuNanos());
+        deepZoomCalculator.getWorkerCpuNanos().forEach((thread, time) -> nanos.merge(thread, time, Long::sum));
+        return nanos;
+    }
+
+    /**
+     * Fills target with the given view, from the cache, by shifting the front frame after a
+     * pixel-aligned pan, by adjusting the front frame after an iteration cap change, or by
+     * rendering it, and caches newly computed results.
+     *
+     * @return how the frame was produced
+     */
+    private RenderMetrics.RenderPath produce(MandelbrotState state, IterationFrame target, PanShift shift,
+                         BooleanSupplier cancelled, long generation, boolean progressive) {
+        if (fromCache(state, target)) {
+            // Previously rendered view, e.g. after undo: nothing to compute
+            orbits.invalidate();
+            return RenderMetrics.RenderPath.CACHE;
+        }
+        boolean deep = isDeepZoom(state);
+        // Exposed strips of a shifted frame are rendered in doubles, so deep views are rendered in full
+        IterationFrame source = deep ? null : shiftSource(shift, state, target);
+        IterationFrame front;
+        MandelbrotState previous;
+        synchronized (this) {
+            front = frontFrame;
+            previous = frontState;
+        }
+        RenderMetrics.RenderPath path;
+        if (source != null) {
+            orbits.invalidate();
+            calculator.calcMandelbrotFrameShifted(source, target, shift.dx, shift.dy, state, radiusSquared, cancelled);
+            path = RenderMetrics.RenderPath.SHIFT;
+        } else if (sameWindow(previous, state) && state.maxIterations <= previous.maxIterations) {
+            // Lowering the cap only clamps counts that are now beyond it
+            target.copyFrom(front);
+            clampIterations(target, state.maxIterations);
+            if (state.maxIterations != previous.maxIterations) {
+                orbits.invalidate();
+            }
+            path = RenderMetrics.RenderPath.CLAMP;
+        } else if (sameWindow(previous, state) && previous.equals(orbits.getState())) {
+            // Raising the cap only resumes the orbits that had not escaped
+            target.copyFrom(front);
+            calculator.calcMandelbrotFrameResumed(target, orbits, state, radiusSquared, cancelled);
+            path = RenderMetrics.RenderPath.RESUME;
+        } else if (deep) {
+            orbits.reset();
+            deepZoomCalculator.calcMandelbrotFrame(target, state, radiusSquared, cancelled);
+            path = RenderMetrics.RenderPath.DEEP_ZOOM;
+        } else if (progressive) {
+            renderProgressively(state, target, cancelled, generation);
+            path = RenderMetrics.RenderPath.PROGRESSIVE;
+        } else {
+            path = render(state, target, cancelled);
+        }
+        toCache(state, target, generation);
+        return path;
+    }
+
+    private boolean isDeepZoom(MandelbrotState state) {
+        // Perturbation is derived for the Mandelbrot formula only
+        if (state.kernel != FractalKernel.MANDELBROT) {
+            return false;
+        }
+        return magnification(state.realSpan) >= deepZoomMagnification;
+    }
+
+    private static double magnification(double realSpan) {
+        double initialWidth = MandelbrotCalculator.INITIAL_MAX_REAL - MandelbrotCalculator.INITIAL_MIN_REAL;
+        return initialWidth / realSpan;
+    }
+
+    private static boolean sameWindow(MandelbrotState a, MandelbrotState b) {
+        // Deep windows can share their double bounds, so the whole window is compared through the state
+        return a != null && a.equals(b.withIterations(a.maxIterations, b.kernel));
+    }
+
+    private static void clampIterations(IterationFrame frame, int maxIterations) {
+        int[] pixels = frame.getPixels();
+        float[] fractions = frame.getFractions();
+        for (int i = 0; i < pixels.length; i++) {
+            if (pixels[i] > maxIterations) {
+                pixels[i] = maxIterations;
+                if (fractions != null) {
+                    fractions[i] = 0f;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the front frame if it still shows the view the pan started from, otherwise null
+     */
+    private synchronized IterationFrame shiftSource(PanShift shift, MandelbrotState state, IterationFrame target) {
+        if (shift == null || !shift.from.equals(frontState)) {
+            return null;
+        }
+        // A pan across the float precision threshold would mix float and double counts in one frame
+        int width = target.getWidth();
+        int height = target.getHeight();
+        if (calculator.usesFloatPrecision(shift.from, width, height, radiusSquared)
+                != calculator.usesFloatPrecision(state, width, height, radiusSquared)) {
+            return null;
+        }
+        return frontFrame;
+    }
+
+    private synchronized PanShift takePendingShift() {
+        PanShift shift = pendingShift;
+        pendingShift = null;
+        return shift;
+    }
+
+    private boolean fromCache(MandelbrotState state, IterationFrame target) {
+        RenderCache cache = renderCache;
+        return cache != null && cache.lookup(state, cacheMode(state), target);
+    }
+
+    private synchronized void toCache(MandelbrotState state, IterationFrame target, long generation) {
+        RenderCache cache = renderCache;
+        if (cache != null && generation > retiredGeneration) {
+            cache.store(state, cacheMode(state), target);
+        }
+    }
+
+    /**
+     * Stops the front frame, and the results of renders already requested, from being reused once a setting
+     * that changes how frames are produced has changed.
+     *
+     * @param clearCache true if cached frames may have been produced differently too
+     */
+    private synchronized void retireRenders(boolean clearCache) {
+        frontState = null;
+        retiredGeneration = requestedGeneration.get();
+        RenderCache cache = renderCache;
+        if (clearCache && cache != null) {
+            cache.clear();
+        }
+    }
+
+    private RenderCache.Mode cacheMode(MandelbrotState state) {
+        // Deep views are rendered by perturbation whatever the setting
+        return subdivisionRendering && !isDeepZoom(state) ? RenderCache.Mode.SUBDIVIDED : RenderCache.Mode.EXACT;
+    }
+
+    private void renderProgressively(MandelbrotState state, IterationFrame target,
+                                     BooleanSupplier cancelled, long generation) {
+        calculator.calcMandelbrotFrameProgressive(
+                target, previewFrame, state, radiusSquared, cancelled,
+                pass -> {
+                    // The final pass is published as the result itself
+                    if (pass == previewFrame) {
+                        notificationExecutor.execute(() -> publishPreview(state, generation));
+                    }
+                },
+                orbits
         );
+    }
+
+    private void publishPreview(MandelbrotState state, long generation) {
+        synchronized (this) {
+            if (generation != requestedGeneration.get()) {
+                return;
+            }
+            displayedFrame = previewFrame;
+            displayedIterations = state.maxIterations;
+            dataView = null;
+        }
         notifyListeners();
     }
 
+    private RenderMetrics.RenderPath render(MandelbrotState state, IterationFrame target, BooleanSupplier cancelled) {
+        if (subdivisionRendering) {
+            orbits.reset();
+            calculator.calcMandelbrotFrameSubdivided(target, state, radiusSquared, cancelled);
+            return RenderMetrics.RenderPath.SUBDIVISION;
+        } else if (parallelRendering) {
+            calculator.calcMandelbrotFrame(target, state, radiusSquared, cancelled, orbits);
+            return RenderMetrics.RenderPath.PARALLEL;
+        } else {
+            orbits.reset();
+            calculator.calcMandelbrotFrameSequential(target, state, radiusSquared, cancelled);
+            return RenderMetrics.RenderPath.SEQUENTIAL;
+        }
+    }
+
+    private MandelbrotState snapshot() {
+        return window.withIterations(maxIterations, kernel);
+    }
+
+    /**
+     * Switches between rendering on the calling thread and rendering in the background.
+     *
+     * @param asynchronousRendering true to make every recalculation asynchronous
+     */
+    public void setAsynchronousRendering(boolean asynchronousRendering) {
+        this.asynchronousRendering = asynchronousRendering;
+    }
+
+    /**
+     * @return whether recalculations run in the background
+     */
+    public boolean isAsynchronousRendering() {
+        return asynchronousRendering;
+    }
+
+    /**
+     * Enables coarse-to-fine rendering: listeners are notified after the 1/8, 1/4 and 1/2 resolution passes
+     * and again with the full-resolution data. Only asynchronous recalculations are progressive;
+     * a synchronous one returns the finished data directly.
+     *
+     * @param progressiveRendering true to publish preview passes
+     */
+    public void setProgressiveRendering(boolean progressiveRendering) {
+        this.progressiveRendering = progressiveRendering;
+    }
+
+    /**
+     * @return whether asynchronous recalculations publish preview passes
+     */
+    public boolean isProgressiveRendering() {
+        return progressiveRendering;
+    }
+
+    /**
+     * Sets where listeners are notified when an asynchronous render completes.
+     * Swing views should pass {@code SwingUtilities::invokeLater}.
+     *
+     * @param notificationExecutor executor that runs listener notifications
+     */
+    public void setNotificationExecutor(Executor notificationExecutor) {
+        this.notificationExecutor = notificationExecutor;
+    }
+
+    /**
+     * @return whether the latest requested render has not yet been published
+     */
+    public boolean isRenderPending() {
+        return deliveredGeneration != requestedGeneration.get();
+    }
+
+    /**
+     * Chooses between the tiled fork-join renderer and the single-threaded one.
+     * Both produce identical data; the setting only affects speed.
+     *
+     * @param parallelRendering true to render on all available cores
+     */
+    public void setParallelRendering(boolean parallelRendering) {
+        this.parallelRendering = parallelRendering;
+    }
+
+    /**
+     * @return whether renders are split into parallel tiles
+     */
+    public boolean isParallelRendering() {
+        return parallelRendering;
+    }
+
+    /**
+     * Replaces the cache of rendered views; null disables caching.
+     *
+     * @param renderCache cache to use, or null
+     */
+    public void setRenderCache(RenderCache renderCache) {
+        this.renderCache = renderCache;
+    }
+
+    /**
+     * @return cache of rendered views, or null if caching is disabled
+     */
+    public RenderCache getRenderCache() {
+        return renderCache;
+    }
+
+    /**
+     * Enables rectangle subdivision rendering, which fills regions enclosed by a single
+     * iteration count instead of evaluating every pixel. It always runs in parallel and
+     * is not used for progressive passes. Its frames may differ from the other renderers' where
+     * detail thinner than a pixel is filled over, see {@link MandelbrotCalculator#calcMandelbrotFrameSubdivided},
+     * so frames rendered in one mode are not reused, from the cache or by pans and cap changes, once
+     * the other is chosen.
+     *
+     * @param subdivisionRendering true to render by subdivision
+     */
+    public synchronized void setSubdivisionRendering(boolean subdivisionRendering) {
+        if (this.subdivisionRendering != subdivisionRendering) {
+            this.subdivisionRendering = subdivisionRendering;
+            // The front frame was rendered in the other mode; cached frames are keyed by mode
+            retireRenders(false);
+        }
+    }
+
+    /**
+     * @return whether renders use rectangle subdivision
+     */
+    public boolean isSubdivisionRendering() {
+        return subdivisionRendering;
+    }
+
+    /**
+     * Makes renders record the escape fraction of every pixel with its count, see {@link IterationFrame}, for
+     * colour maps that colour by the continuous iteration count. Turning it on renders the view again, since the
+     * frame shown has no fractions yet.
+     *
+     * @param fractionalCounts true to record fractions
+     */
+    public void setFractionalCounts(boolean fractionalCounts) {
+        synchronized (this) {
+            if (this.fractionalCounts == fractionalCounts) {
+                return;
+            }
+            this.fractionalCounts = fractionalCounts;
+            // The front frame has no fractions to reuse
+            frontState = null;
+            for (IterationFrame frame : new IterationFrame[] {frontFrame, backFrame, previewFrame}) {
+                if (fractionalCounts) {
+                    frame.enableFractions();
+                } else {
+                    frame.disableFractions();
+                }
+            }
+        }
+        if (fractionalCounts) {
+            recalculate();
+        }
+    }
+
+    /**
+     * @return whether renders record escape fractions
+     */
+    public synchronized boolean isFractionalCounts() {
+        return fractionalCounts;
+    }
+
+    /**
+     * Sets the magnification from which renders switch to the perturbation engine.
+     * Below it plain double arithmetic is exact enough and faster. The engine is given the exact centre of
+     * the view window, so it is not limited by the double bounds, see {@link #DEEP_ZOOM_MAGNIFICATION}.
+     * Frames rendered before a change are not reused, from the cache or by pans and cap changes.
+     *
+     * @param magnification threshold relative to the initial view; 1 renders everything by perturbation
+     */
+    public void setDeepZoomMagnification(double magnification) {
+        if (!(magnification > 0)) {
+            throw new IllegalArgumentException("Deep zoom magnification must be positive");
+        }
+        synchronized (this) {
+            if (this.deepZoomMagnification != magnification) {
+                this.deepZoomMagnification = magnification;
+                // Views between the old and the new threshold are now rendered by the other engine
+                retireRenders(true);
+            }
+        }
+    }
+
+    /**
+     * @return magnification from which renders use the perturbation engine
+     */
+    public double getDeepZoomMagnification() {
+        return deepZoomMagnification;
+    }
+
+    /**
+     * @return whether the current view is rendered by the perturbation engine
+     */
+    public boolean isDeepZoomActive() {
+        return isDeepZoom(snapshot());
+    }
+
+    /**
+     * Enables periodicity checking in the calculator, see {@link MandelbrotCalculator#setPeriodicityChecking}.
+     * Frames rendered before a change are not reused, from the cache or by pans and cap changes.
+     *
+     * @param periodicityChecking true to detect cycling orbits
+     */
+    public synchronized void setPeriodicityChecking(boolean periodicityChecking) {
+        if (calculator.isPeriodicityChecking() != periodicityChecking) {
+            calculator.setPeriodicityChecking(periodicityChecking);
+            retireRenders(true);
+        }
+    }
+
+    /**
+     * @return whether the calculator uses periodicity checking
+     */
+    public boolean isPeriodicityChecking() {
+        return calculator.isPeriodicityChecking();
+    }
+
+    /**
+     * Lets the calculator iterate coarse views in floats, see {@link MandelbrotCalculator#setFloatPrecision}.
+     * Float renders keep no orbits, so raising the cap on them renders the view again. Frames rendered before
+     * a change are not reused, from the cache or by pans and cap changes.
+     *
+     * @param floatPrecision true to render coarse views in floats
+     */
+    public synchronized void setFloatPrecision(boolean floatPrecision) {
+        if (calculator.isFloatPrecision() != floatPrecision) {
+            calculator.setFloatPrecision(floatPrecision);
+            retireRenders(true);
+        }
+    }
+
+    /**
+     * @return whether the calculator renders coarse views in floats
+     */
+    public boolean isFloatPrecision() {
+        return calculator.isFloatPrecision();
+    }
+
+    /**
+     * @return the perturbation engine, e.g. to read its glitch correction count
+     */
+    public DeepZoomCalculator getDeepZoomCalculator() {
+        return deepZoomCalculator;
+    }
+
     // Getters
 
     /**
+     * Compatibility view of {@link #getFrame()} as a [y][x] array.
+     * The copy is made on first use after each render, so callers on the rendering
+     * hot path should prefer the frame.
+     *
      * @return 2D iteration data for the current view
      */
-    public int[][] getData() {
-        return data;
+    public synchronized int[][] getData() {
+        int[][] view = dataView;
+        if (view == null) {
+            view = displayedFrame.toArray();
+            dataView = view;
+        }
+        return view;
+    }
+
+    /**
+     * Returns the frame views should draw. Frames are recycled, so the contents are only
+     * guaranteed until the next listener notification.
+     *
+     * @return iteration data for the current view
+     */
+    public IterationFrame getFrame() {
+        return displayedFrame;
+    }
+
+    /**
+     * Returns the iteration cap the frame returned by {@link #getFrame()} was rendered with, which
+     * lags behind {@link #getMaxIterations()} until a render at a new cap is published.
+     *
+     * @return iteration cap of the displayed frame
+     */
+    public int getFrameIterations() {
+        return displayedIterations;
+    }
+
+    /**
+     * Returns the view window and cap of the last render published to the listeners, which lags behind
+     * the current view while a render is pending.
+     *
+     * @return state of the front frame, or null if it must not be reused, e.g. after a change of render mode
+     */
+    public synchronized MandelbrotState getFrameState() {
+        return frontState;
     }
 
     /**
@@ -113,28 +761,56 @@ public class ModelMandelbrot {
      * @return minimum real coordinate for the view window
      */
     public double getMinReal() {
-        return minReal;
+        return window.minReal;
     }
 
     /**
      * @return maximum real coordinate for the view window
      */
     public double getMaxReal() {
-        return maxReal;
+        return window.maxReal;
     }
 
     /**
      * @return minimum imaginary coordinate for the view window
      */
     public double getMinImag() {
-        return minImag;
+        return window.minImag;
     }
 
     /**
      * @return maximum imaginary coordinate for the view window
      */
     public double getMaxImag() {
-        return maxImag;
+        return window.maxImag;
+    }
+
+    /**
+     * @return real coordinate of the centre of the view window, exact at any depth
+     */
+    public BigDecimal getCentreReal() {
+        return window.centreReal;
+    }
+
+    /**
+     * @return imaginary coordinate of the centre of the view window, exact at any depth
+     */
+    public BigDecimal getCentreImag() {
+        return window.centreImag;
+    }
+
+    /**
+     * @return width of the view window along the real axis; unlike the bounds, resolved at any depth
+     */
+    public double getRealSpan() {
+        return window.realSpan;
+    }
+
+    /**
+     * @return height of the view window along the imaginary axis
+     */
+    public double getImagSpan() {
+        return window.imagSpan;
     }
 
     /**
@@ -151,6 +827,13 @@ public class ModelMandelbrot {
         return radiusSquared;
     }
 
+    /**
+     * @return fractal rendered in the view window
+     */
+    public FractalKernel getKernel() {
+        return kernel;
+    }
+
     /**
      * @return name of the active colour map
      */
@@ -165,9 +848,7 @@ public class ModelMandelbrot {
      * @return magnification factor relative to the initial view
      */
     public double getMagnification() {
-        double initialWidth = MandelbrotCalculator.INITIAL_MAX_REAL - MandelbrotCalculator.INITIAL_MIN_REAL;
-        double currentWidth = maxReal - minReal;
-        return initialWidth / currentWidth;
+        return magnification(window.realSpan);
     }
 
     // --- Basic setters that change the current state ---
@@ -199,10 +880,69 @@ public class ModelMandelbrot {
 
         pushStateToUndo();
 
-        this.minReal = minReal;
-        this.maxReal = maxReal;
-        this.minImag = minImag;
-        this.maxImag = maxImag;
+        this.window = new MandelbrotState(minReal, maxReal, minImag, maxImag, maxIterations, kernel);
+        recalculate();
+    }
+
+    /**
+     * Sets the view window by its exact centre and its extent, for views deeper than double bounds resolve:
+     * from a magnification of about 1e16 both bounds of an axis round to the same double. Deep Mandelbrot views
+     * are rendered by perturbation around the exact centre, see {@link #setDeepZoomMagnification}.
+     *
+     * @param centreReal real coordinate of the centre of the view window
+     * @param centreImag imaginary coordinate of the centre of the view window
+     * @param realSpan width of the view window along the real axis
+     * @param imagSpan height of the view window along the imaginary axis
+     */
+    public void setViewCentre(BigDecimal centreReal, BigDecimal centreImag, double realSpan, double imagSpan) {
+        validateViewSpans(realSpan, imagSpan);
+
+        pushStateToUndo();
+
+        this.window = new MandelbrotState(centreReal, centreImag, realSpan, imagSpan, maxIterations, kernel);
+        recalculate();
+    }
+
+    /**
+     * Zooms into a rectangle of the image, given in pixels. Views shallower than DEEP_ZOOM_MAGNIFICATION get
+     * double bounds; deeper ones are placed around an exact centre, so zooming can continue past the precision
+     * of doubles.
+     *
+     * @param x first column of the rectangle
+     * @param y first row of the rectangle
+     * @param regionWidth width of the rectangle in pixels
+     * @param regionHeight height of the rectangle in pixels
+     */
+    public void zoomToPixels(int x, int y, int regionWidth, int regionHeight) {
+        if (regionWidth <= 0 || regionHeight <= 0) {
+            throw new IllegalArgumentException("Zoom rectangle must not be empty");
+        }
+        double realPerPixel = window.realSpan / width;
+        double imagPerPixel = window.imagSpan / height;
+        double realSpan = regionWidth * realPerPixel;
+        double imagSpan = regionHeight * imagPerPixel;
+        if (magnification(realSpan) < DEEP_ZOOM_MAGNIFICATION) {
+            setViewWindow(window.minReal + x * realPerPixel, window.minReal + (x + regionWidth) * realPerPixel,
+                    window.minImag + y * imagPerPixel, window.minImag + (y + regionHeight) * imagPerPixel);
+            return;
+        }
+        // Offset of the rectangle's centre from the window's, small enough for a double
+        double offsetReal = (x + regionWidth / 2.0 - width / 2.0) * realPerPixel;
+        double offsetImag = (y + regionHeight / 2.0 - height / 2.0) * imagPerPixel;
+        setViewCentre(window.centreReal.add(new BigDecimal(offsetReal)),
+                window.centreImag.add(new BigDecimal(offsetImag)), realSpan, imagSpan);
+    }
+
+    /**
+     * Switches to another fractal, showing the whole of it at the current iteration cap.
+     *
+     * @param kernel fractal to render, e.g. a {@link JuliaKernel} for a point picked on the Mandelbrot set
+     */
+    public void setKernel(FractalKernel kernel) {
+        pushStateToUndo();
+
+        this.window = kernel.initialState(maxIterations);
+        this.kernel = kernel;
         recalculate();
     }
 
@@ -210,11 +950,9 @@ public class ModelMandelbrot {
      * Restores the initial coordinates and settings.
      */
     public void reset() {
-        this.minReal = MandelbrotCalculator.INITIAL_MIN_REAL;
-        this.maxReal = MandelbrotCalculator.INITIAL_MAX_REAL;
-        this.minImag = MandelbrotCalculator.INITIAL_MIN_IMAGINARY;
-        this.maxImag = MandelbrotCalculator.INITIAL_MAX_IMAGINARY;
         this.maxIterations = MandelbrotCalculator.INITIAL_MAX_ITERATIONS;
+        this.window = FractalKernel.MANDELBROT.initialState(maxIterations);
+        this.kernel = FractalKernel.MANDELBROT;
         this.colorMapName = DEFAULT_COLOR_MAP;
         recalculate();
     }
@@ -223,31 +961,65 @@ public class ModelMandelbrot {
      * Moves the current view window by the specified delta values.
      * Positive deltaReal moves the view to the right.
      * Positive deltaImag moves the view downward (complex plane).
+     * Views past DEEP_ZOOM_MAGNIFICATION move their exact centre, so that the delta is not lost to the bounds.
      *
      * @param deltaReal real-axis shift to apply
      * @param deltaImag imaginary-axis shift to apply
      */
     public void pan(double deltaReal, double deltaImag) {
         pushStateToUndo();
+        MandelbrotState from = snapshot();
+
+        if (magnification(window.realSpan) < DEEP_ZOOM_MAGNIFICATION) {
+            this.window = new MandelbrotState(window.minReal + deltaReal, window.maxReal + deltaReal,
+                    window.minImag + deltaImag, window.maxImag + deltaImag, maxIterations, kernel);
+        } else {
+            this.window = new MandelbrotState(window.centreReal.add(new BigDecimal(deltaReal)),
+                    window.centreImag.add(new BigDecimal(deltaImag)), window.realSpan, window.imagSpan,
+                    maxIterations, kernel);
+        }
 
-        this.minReal += deltaReal;
-        this.maxReal += deltaReal;
-        this.minImag += deltaImag;
-        this.maxImag += deltaImag;
+        // A shift by whole pixels only needs the newly exposed strips rendered
+        long dx = wholePixels(deltaReal, from.realSpan / width);
+        long dy = wholePixels(deltaImag, from.imagSpan / height);
+        synchronized (this) {
+            pendingShift = (dx == Long.MIN_VALUE || dy == Long.MIN_VALUE)
+                    ? null
+                    : new PanShift(from, (int) Math.max(-width, Math.min(width, dx)),
+                            (int) Math.max(-height, Math.min(height, dy)));
+        }
 
         recalculate();
     }
 
+    /**
+     * @return delta expressed as a whole number of pixels, or Long.MIN_VALUE if it is not pixel-aligned
+     */
+    private static long wholePixels(double delta, double pixelSize) {
+        double pixels = delta / pixelSize;
+        long rounded = Math.round(pixels);
+        return Math.abs(pixels - rounded) <= PAN_ALIGNMENT_TOLERANCE ? rounded : Long.MIN_VALUE;
+    }
+
+    /** Pixel offset between the view a pan started from and the one it leads to. */
+    private static final class PanShift {
+        final MandelbrotState from;
+        final int dx;
+        final int dy;
+
+        PanShift(MandelbrotState from, int dx, int dy) {
+            this.from = from;
+            this.dx = dx;
+            this.dy = dy;
+        }
+    }
+
     /**
      * Saves the current state into the undo stack.
      * Called before any state-changing operation.
      */
     private void pushStateToUndo() {
-        undoStack.push(new MandelbrotState(
-                minReal, maxReal,
-                minImag, maxImag,
-                maxIterations
-        ));
+        undoStack.push(snapshot());
         // Any new action clears redo history
         redoStack.clear();
     }
@@ -273,19 +1045,13 @@ public class ModelMandelbrot {
         if (!canUndo()) return;
 
         // Save current state into redo stack
-        redoStack.push(new MandelbrotState(
-                minReal, maxReal,
-                minImag, maxImag,
-                maxIterations
-        ));
+        redoStack.push(snapshot());
 
         // Restore previous
         MandelbrotState prev = undoStack.pop();
-        minReal = prev.minReal;
-        maxReal = prev.maxReal;
-        minImag = prev.minImag;
-        maxImag = prev.maxImag;
+        window = prev;
         maxIterations = prev.maxIterations;
+        kernel = prev.kernel;
 
         recalculate();
     }
@@ -301,11 +1067,9 @@ public class ModelMandelbrot {
 
         // Restore next
         MandelbrotState next = redoStack.pop();
-        minReal = next.minReal;
-        maxReal = next.maxReal;
-        minImag = next.minImag;
-        maxImag = next.maxImag;
+        window = next;
         maxIterations = next.maxIterations;
+        kernel = next.kernel;
 
         recalculate();
     }
@@ -315,11 +1079,7 @@ public class ModelMandelbrot {
      * Does NOT clear redo stack.
      */
     private void pushStateToUndoWithoutClearingRedo() {
-        undoStack.push(new MandelbrotState(
-                minReal, maxReal,
-                minImag, maxImag,
-                maxIterations
-        ));
+        undoStack.push(snapshot());
     }
 
     /**
@@ -330,11 +1090,17 @@ public class ModelMandelbrot {
      */
     public void saveToFile(File file) throws IOException {
         Properties props = new Properties();
-        props.setProperty("minReal", Double.toString(minReal));
-        props.setProperty("maxReal", Double.toString(maxReal));
-        props.setProperty("minImag", Double.toString(minImag));
-        props.setProperty("maxImag", Double.toString(maxImag));
+        props.setProperty("minReal", Double.toString(window.minReal));
+        props.setProperty("maxReal", Double.toString(window.maxReal));
+        props.setProperty("minImag", Double.toString(window.minImag));
+        props.setProperty("maxImag", Double.toString(window.maxImag));
+        // The bounds alone lose deep views; readers that know the centre prefer it
+        props.setProperty("centreReal", window.centreReal.toString());
+        props.setProperty("centreImag", window.centreImag.toString());
+        props.setProperty("realSpan", Double.toString(window.realSpan));
+        props.setProperty("imagSpan", Double.toString(window.imagSpan));
         props.setProperty("maxIterations", Integer.toString(maxIterations));
+        props.setProperty("kernel", kernel.getSpec());
         props.setProperty("colorMap", colorMapName);
 
         try (FileOutputStream out = new FileOutputStream(file)) {
@@ -349,35 +1115,90 @@ public class ModelMandelbrot {
      * @throws IOException if reading fails
      */
     public void loadFromFile(File file) throws IOException {
+        Properties props = readProperties(file);
+        MandelbrotState loaded = readSettings(props);
+
+        pushStateToUndo();
+
+        this.window = loaded;
+        this.maxIterations = loaded.maxIterations;
+        this.kernel = loaded.kernel;
+        this.colorMapName = readColourMapName(props);
+
+        recalculate();
+    }
+
+    /**
+     * Reads a settings file written by {@link #saveToFile}.
+     *
+     * @param file source file containing saved parameters
+     * @return the raw properties
+     * @throws IOException if reading fails
+     */
+    public static Properties readProperties(File file) throws IOException {
         Properties props = new Properties();
         try (FileInputStream in = new FileInputStream(file)) {
             props.load(in);
         }
+        return props;
+    }
 
+    /**
+     * Extracts and validates the view window, iteration cap and fractal of saved settings,
+     * without needing a model (and its frames) to load them into. Files that record the exact centre of the
+     * window are read by it, keeping views deeper than their double bounds; older files hold the bounds only.
+     *
+     * @param props properties read from a settings file
+     * @return the saved view
+     * @throws IOException if a value is missing or invalid
+     */
+    public static MandelbrotState readSettings(Properties props) throws IOException {
         double newMinReal = readDouble(props, "minReal");
         double newMaxReal = readDouble(props, "maxReal");
         double newMinImag = readDouble(props, "minImag");
         double newMaxImag = readDouble(props, "maxImag");
         int newMaxIterations = readInt(props, "maxIterations");
-        String newColorMapName = props.getProperty("colorMap", DEFAULT_COLOR_MAP);
 
+        boolean centred = props.getProperty("centreReal") != null;
+        BigDecimal newCentreReal = centred ? readDecimal(props, "centreReal") : null;
+        BigDecimal newCentreImag = centred ? readDecimal(props, "centreImag") : null;
+        double newRealSpan = centred ? readDouble(props, "realSpan") : 0;
+        double newImagSpan = centred ? readDouble(props, "imagSpan") : 0;
+
+        FractalKernel newKernel;
         try {
-            validateViewWindow(newMinReal, newMaxReal, newMinImag, newMaxImag);
             validateIterations(newMaxIterations);
+            // Files saved before other fractals were supported hold Mandelbrot views
+            newKernel = FractalKernel.parse(props.getProperty("kernel", FractalKernel.MANDELBROT.getSpec()));
+            if (!centred) {
+                validateViewWindow(newMinReal, newMaxReal, newMinImag, newMaxImag);
+            } else {
+                validateViewSpans(newRealSpan, newImagSpan);
+            }
         } catch (IllegalArgumentException ex) {
             throw new IOException("Invalid settings file: " + ex.getMessage(), ex);
         }
+        MandelbrotState bounds = new MandelbrotState(newMinReal, newMaxReal, newMinImag, newMaxImag,
+                newMaxIterations, newKernel);
+        // Windows set by their bounds keep them exactly; only windows set by their centre are rebuilt from it
+        return !centred || sameCentre(bounds, newCentreReal, newCentreImag, newRealSpan, newImagSpan)
+                ? bounds
+                : new MandelbrotState(newCentreReal, newCentreImag, newRealSpan, newImagSpan, newMaxIterations, newKernel);
+    }
 
-        pushStateToUndo();
-
-        this.minReal = newMinReal;
-        this.maxReal = newMaxReal;
-        this.minImag = newMinImag;
-        this.maxImag = newMaxImag;
-        this.maxIterations = newMaxIterations;
-        this.colorMapName = normalizeColourMapName(newColorMapName);
+    private static boolean sameCentre(MandelbrotState bounds, BigDecimal centreReal, BigDecimal centreImag,
+                                      double realSpan, double imagSpan) {
+        return bounds.centreReal != null && bounds.centreImag != null
+                && bounds.centreReal.compareTo(centreReal) == 0 && bounds.centreImag.compareTo(centreImag) == 0
+                && Double.compare(bounds.realSpan, realSpan) == 0 && Double.compare(bounds.imagSpan, imagSpan) == 0;
+    }
 
-        recalculate();
+    /**
+     * @param props properties read from a settings file
+     * @return the saved colour map name, or the default one if none was saved
+     */
+    public static String readColourMapName(Properties props) {
+        return normalizeColourMapName(props.getProperty("colorMap", DEFAULT_COLOR_MAP));
     }
 
     /**
@@ -390,13 +1211,13 @@ public class ModelMandelbrot {
         notifyListeners();
     }
 
-    private String normalizeColourMapName(String colorMapName) {
+    private static String normalizeColourMapName(String colorMapName) {
         return (colorMapName == null || colorMapName.trim().isEmpty())
                 ? DEFAULT_COLOR_MAP
                 : colorMapName;
     }
 
-    private double readDouble(Properties props, String key) throws IOException {
+    private static double readDouble(Properties props, String key) throws IOException {
         String value = props.getProperty(key);
         if (value == null) {
             throw new IOException("Missing property: " + key);
@@ -408,7 +1229,19 @@ public class ModelMandelbrot {
         }
     }
 
-    private int readInt(Properties props, String key) throws IOException {
+    private static BigDecimal readDecimal(Properties props, String key) throws IOException {
+        String value = props.getProperty(key);
+        if (value == null) {
+            throw new IOException("Missing property: " + key);
+        }
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid decimal for " + key, e);
+        }
+    }
+
+    private static int readInt(Properties props, String key) throws IOException {
         String value = props.getProperty(key);
         if (value == null) {
             throw new IOException("Missing property: " + key);
@@ -420,15 +1253,19 @@ public class ModelMandelbrot {
         }
     }
 
-    private void validateIterations(int iterations) {
+    private static void validateIterations(int iterations) {
         if (iterations < MIN_ITERATIONS || iterations > MAX_ITERATIONS) {
             throw new IllegalArgumentException(
                     "maxIterations must be between " + MIN_ITERATIONS + " and " + MAX_ITERATIONS);
         }
     }
 
-    private void validateViewWindow(double minReal, double maxReal,
+    private static void validateViewWindow(double minReal, double maxReal,
                                     double minImag, double maxImag) {
+        if (!Double.isFinite(minReal) || !Double.isFinite(maxReal)
+                || !Double.isFinite(minImag) || !Double.isFinite(maxImag)) {
+            throw new IllegalArgumentException("View window must be finite");
+        }
         if (minReal >= maxReal) {
             throw new IllegalArgumentException("minReal must be less than maxReal");
         }
@@ -437,6 +1274,12 @@ public class ModelMandelbrot {
         }
     }
 
+    private static void validateViewSpans(double realSpan, double imagSpan) {
+        if (!(realSpan > 0) || !(imagSpan > 0) || Double.isInfinite(realSpan) || Double.isInfinite(imagSpan)) {
+            throw new IllegalArgumentException("View window must have a positive, finite extent");
+        }
+    }
+
 
 
     // --- Observer pattern methods ---
@@ -459,6 +1302,31 @@ public class ModelMandelbrot {
         listeners.remove(listener);
     }
 
+    /**
+     * Registers a listener for the measurements of every published render. While any is registered,
+     * the calculators time their workers and each render's escape counts are tallied.
+     *
+     * @param listener listener to add
+     */
+    public synchronized void addMetricsListener(RenderMetricsListener listener) {
+        metricsListeners.add(listener);
+        calculator.setWorkerCpuTiming(true);
+        deepZoomCalculator.setWorkerCpuTiming(true);
+    }
+
+    /**
+     * Removes a listener from render measurements; measuring stops once none is left.
+     *
+     * @param listener listener to remove
+     */
+    public synchronized void removeMetricsListener(RenderMetricsListener listener) {
+        metricsListeners.remove(listener);
+        if (metricsListeners.isEmpty()) {
+            calculator.setWorkerCpuTiming(false);
+            deepZoomCalculator.setWorkerCpuTiming(false);
+        }
+    }
+
     private void notifyListeners() {
         for (ModelListener l : listeners) {
             l.modelChanged();
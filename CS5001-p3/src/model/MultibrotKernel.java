@@ -0,0 +1,132 @@
+package model;
+
+/**
+ * Multibrot set of an integer degree d, z^d + c with z starting at 0 and c the pixel.
+ * The power is taken by repeated complex multiplication, which is exact for the small
+ * degrees that are worth drawing and far cheaper than going through polar form.
+ */
+public final class MultibrotKernel implements FractalKernel {
+
+    /** Highest degree accepted; the set shrinks towards the unit disc as the degree grows. */
+    public static final int MAX_DEGREE = 16;
+
+    private final int degree;
+    private final double lnDegree;
+
+    /**
+     * @param degree power of z, from 2 to MAX_DEGREE
+     */
+    public MultibrotKernel(int degree) {
+        if (degree < 2 || degree > MAX_DEGREE) {
+            throw new IllegalArgumentException("Multibrot degree must be between 2 and " + MAX_DEGREE);
+        }
+        this.degree = degree;
+        this.lnDegree = Math.log(degree);
+    }
+
+    /**
+     * @return power of z
+     */
+    public int getDegree() {
+        return degree;
+    }
+
+    @Override
+    public String getName() {
+        return "Multibrot (d = " + degree + ")";
+    }
+
+    @Override
+    public String getSpec() {
+        return "multibrot:" + degree;
+    }
+
+    @Override
+    public int escape(double x, double y, int maxIterations, double radiusSquared) {
+        int d = degree;
+        int iterations = 0;
+        double zr = 0;
+        double zi = 0;
+        while (iterations < maxIterations) {
+            double magnitude = zr * zr + zi * zi;
+            double pr = zr;
+            double pi = zi;
+            for (int k = 1; k < d; k++) {
+                double npr = pr * zr - pi * zi;
+                pi = pr * zi + pi * zr;
+                pr = npr;
+            }
+            zr = pr + x;
+            zi = pi + y;
+            iterations++;
+            if (magnitude > radiusSquared) {
+                break;
+            }
+        }
+        return iterations;
+    }
+
+    @Override
+    public int resume(double x, double y, double zr, double zi, int iterations, int maxIterations,
+                      double radiusSquared, double[] z) {
+        int d = degree;
+        while (iterations < maxIterations) {
+            double magnitude = zr * zr + zi * zi;
+            double pr = zr;
+            double pi = zi;
+            for (int k = 1; k < d; k++) {
+                double npr = pr * zr - pi * zi;
+                pi = pr * zi + pi * zr;
+                pr = npr;
+            }
+            zr = pr + x;
+            zi = pi + y;
+            iterations++;
+            if (magnitude > radiusSquared) {
+                z[0] = Double.POSITIVE_INFINITY;
+                z[1] = magnitude;
+                return iterations;
+            }
+        }
+        z[0] = zr;
+        z[1] = zi;
+        return iterations;
+    }
+
+    /**
+     * {@inheritDoc} Each iteration raises |z| to the power d, so the fraction is a logarithm to base d.
+     */
+    @Override
+    public float escapeFraction(double magnitudeSquared, double radiusSquared) {
+        if (!(radiusSquared > 1)) {
+            return 0f;
+        }
+        double fraction = Math.log(Math.log(magnitudeSquared) / Math.log(radiusSquared)) / lnDegree;
+        return fraction > 0 ? (float) Math.min(1, fraction) : 0f;
+    }
+
+    @Override
+    public boolean isSimplyConnected() {
+        return true;
+    }
+
+    @Override
+    public MandelbrotState initialState(int maxIterations) {
+        return new MandelbrotState(-1.6, 1.6, -1.6, 1.6, maxIterations, this);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof MultibrotKernel && ((MultibrotKernel) o).degree == degree);
+    }
+
+    @Override
+    public int hashCode() {
+        return degree;
+    }
+
+    @Override
+    public String toString() {
+        return getSpec();
+    }
+}
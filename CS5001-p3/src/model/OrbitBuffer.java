@@ -0,0 +1,104 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * Compact side buffer holding the last value of Z for every pixel of a frame that reached the
+ * iteration cap without escaping. Raising the cap then only needs to resume those orbits instead
+ * of starting every pixel again from zero. Entries are stored in parallel primitive arrays;
+ * a pixel known to be inside the set without iterating has NaN in place of its orbit.
+ */
+public class OrbitBuffer {
+
+    private int size;
+    private int[] indices = new int[0];
+    private double[] zReal = new double[0];
+    private double[] zImag = new double[0];
+    // View and cap the orbits belong to; null while the buffer is incomplete or stale
+    private MandelbrotState state;
+
+    /**
+     * @return number of unescaped pixels held
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @return view and iteration cap the orbits belong to, or null if the buffer is not usable
+     */
+    public synchronized MandelbrotState getState() {
+        return state;
+    }
+
+    /**
+     * Empties the buffer and marks it unusable until a render completes it.
+     */
+    synchronized void reset() {
+        size = 0;
+        state = null;
+    }
+
+    /**
+     * Marks the buffer unusable, e.g. after an interrupted update.
+     */
+    synchronized void invalidate() {
+        state = null;
+    }
+
+    /**
+     * Marks the buffer as complete for the given view and cap.
+     */
+    synchronized void validate(MandelbrotState state) {
+        this.state = state;
+    }
+
+    /**
+     * Appends count entries taken from the start of the given arrays.
+     */
+    synchronized void append(int[] pixelIndices, double[] real, double[] imag, int count) {
+        ensureCapacity(size + count);
+        System.arraycopy(pixelIndices, 0, indices, size, count);
+        System.arraycopy(real, 0, zReal, size, count);
+        System.arraycopy(imag, 0, zImag, size, count);
+        size += count;
+    }
+
+    /**
+     * Drops every entry whose real part has been set to positive infinity, keeping the order of the rest.
+     */
+    synchronized void removeEscaped() {
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            if (zReal[i] != Double.POSITIVE_INFINITY) {
+                indices[kept] = indices[i];
+                zReal[kept] = zReal[i];
+                zImag[kept] = zImag[i];
+                kept++;
+            }
+        }
+        size = kept;
+    }
+
+    int[] indices() {
+        return indices;
+    }
+
+    double[] zReal() {
+        return zReal;
+    }
+
+    double[] zImag() {
+        return zImag;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= indices.length) {
+            return;
+        }
+        int grown = Math.max(capacity, indices.length + (indices.length >> 1) + 16);
+        indices = Arrays.copyOf(indices, grown);
+        zReal = Arrays.copyOf(zReal, grown);
+        zImag = Arrays.copyOf(zImag, grown);
+    }
+}
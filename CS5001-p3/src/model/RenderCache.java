@@ -0,0 +1,228 @@
+package model;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Least-recently-used cache of rendered frames keyed by the view they show and the mode they were rendered in.
+ * The cache is bounded by the bytes of pixel data it holds rather than by entry count,
+ * and arrays of evicted entries are reused for new ones of the same size. Fractions are cached with
+ * the pixels of frames that have them, and a frame with fractions only matches an entry that has them too.
+ */
+public class RenderCache {
+
+    /**
+     * How a frame was rendered. Frames of one mode never answer lookups for another, so that a frame from
+     * a renderer that may differ from the exact one is not shown once that renderer is switched off.
+     */
+    public enum Mode {
+        /** Every pixel evaluated: the tiled, sequential and perturbation renderers. */
+        EXACT,
+        /** Rectangle subdivision, see {@link MandelbrotCalculator#calcMandelbrotFrameSubdivided}. */
+        SUBDIVIDED
+    }
+
+    /** Default memory budget: enough for about 25 frames of 800x800. */
+    public static final long DEFAULT_CAPACITY_BYTES = 64L * 1024 * 1024;
+
+    private final long capacityBytes;
+    private long sizeBytes;
+    private long hits;
+    private long misses;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    // An evicted pixel array kept for the next put of the same size
+    private int[] spare;
+
+    /** View and render mode of a cached frame. */
+    private static final class Key {
+        final MandelbrotState state;
+        final Mode mode;
+
+        Key(MandelbrotState state, Mode mode) {
+            this.state = state;
+            this.mode = mode;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return state.equals(other.state) && mode == other.mode;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * state.hashCode() + mode.hashCode();
+        }
+    }
+
+    /** Cached pixels together with the frame dimensions they were rendered at. */
+    private static final class Entry {
+        final int width;
+        final int height;
+        final int[] pixels;
+        // Escape fractions, or null if the frame had none
+        final float[] fractions;
+
+        Entry(int width, int height, int[] pixels, float[] fractions) {
+            this.width = width;
+            this.height = height;
+            this.pixels = pixels;
+            this.fractions = fractions;
+        }
+
+        long bytes() {
+            return 4L * pixels.length + (fractions == null ? 0 : 4L * fractions.length);
+        }
+    }
+
+    /**
+     * Creates a cache with the default memory budget.
+     */
+    public RenderCache() {
+        this(DEFAULT_CAPACITY_BYTES);
+    }
+
+    /**
+     * @param capacityBytes maximum bytes of pixel data to keep
+     */
+    public RenderCache(long capacityBytes) {
+        if (capacityBytes < 0) {
+            throw new IllegalArgumentException("capacityBytes must not be negative");
+        }
+        this.capacityBytes = capacityBytes;
+    }
+
+    /**
+     * Copies the exact render of a view into the given frame, if one of the same size is cached.
+     *
+     * @param state view to look up
+     * @param frame destination frame
+     * @return true on a hit, false if the frame was left untouched
+     */
+    public boolean lookup(MandelbrotState state, IterationFrame frame) {
+        return lookup(state, Mode.EXACT, frame);
+    }
+
+    /**
+     * Copies the cached render of a view in the given mode into the given frame, if there is one of the same size.
+     *
+     * @param state view to look up
+     * @param mode how the frame is to be rendered
+     * @param frame destination frame
+     * @return true on a hit, false if the frame was left untouched
+     */
+    public synchronized boolean lookup(MandelbrotState state, Mode mode, IterationFrame frame) {
+        Entry entry = entries.get(new Key(state, mode));
+        if (entry == null || entry.width != frame.getWidth() || entry.height != frame.getHeight()
+                || (frame.getFractions() != null && entry.fractions == null)) {
+            misses++;
+            return false;
+        }
+        hits++;
+        System.arraycopy(entry.pixels, 0, frame.getPixels(), 0, entry.pixels.length);
+        if (frame.getFractions() != null) {
+            System.arraycopy(entry.fractions, 0, frame.getFractions(), 0, entry.fractions.length);
+        }
+        return true;
+    }
+
+    /**
+     * Stores a copy of an exactly rendered frame, see {@link #store(MandelbrotState, Mode, IterationFrame)}.
+     *
+     * @param state view the frame shows
+     * @param frame rendered frame to copy
+     */
+    public void store(MandelbrotState state, IterationFrame frame) {
+        store(state, Mode.EXACT, frame);
+    }
+
+    /**
+     * Stores a copy of a finished frame, evicting the least recently used views to stay within budget.
+     * Frames larger than the whole budget are not cached.
+     *
+     * @param state view the frame shows
+     * @param mode how the frame was rendered
+     * @param frame rendered frame to copy
+     */
+    public synchronized void store(MandelbrotState state, Mode mode, IterationFrame frame) {
+        Key key = new Key(state, mode);
+        int[] source = frame.getPixels();
+        float[] sourceFractions = frame.getFractions();
+        long bytes = 4L * source.length + (sourceFractions == null ? 0 : 4L * sourceFractions.length);
+        if (bytes > capacityBytes) {
+            return;
+        }
+        Entry previous = entries.remove(key);
+        if (previous != null) {
+            release(previous);
+        }
+        Iterator<Map.Entry<Key, Entry>> eldest = entries.entrySet().iterator();
+        while (sizeBytes + bytes > capacityBytes && eldest.hasNext()) {
+            Entry evicted = eldest.next().getValue();
+            eldest.remove();
+            release(evicted);
+        }
+        int[] pixels = (spare != null && spare.length == source.length) ? spare : new int[source.length];
+        spare = null;
+        System.arraycopy(source, 0, pixels, 0, source.length);
+        float[] fractions = sourceFractions == null ? null : sourceFractions.clone();
+        entries.put(key, new Entry(frame.getWidth(), frame.getHeight(), pixels, fractions));
+        sizeBytes += bytes;
+    }
+
+    private void release(Entry entry) {
+        sizeBytes -= entry.bytes();
+        spare = entry.pixels;
+    }
+
+    /**
+     * Drops every cached frame; the statistics are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        sizeBytes = 0;
+        spare = null;
+    }
+
+    /**
+     * @return number of lookups answered from the cache
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * @return number of lookups that found nothing usable
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return number of views currently cached
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return bytes of pixel data and fractions currently held
+     */
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    /**
+     * @return maximum bytes of pixel data the cache may hold
+     */
+    public long getCapacityBytes() {
+        return capacityBytes;
+    }
+}
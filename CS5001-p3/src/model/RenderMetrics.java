@@ -0,0 +1,165 @@
+package model;
+
+import java.util.Map;
+
+/**
+ * Measurements of one render published by {@link ModelMandelbrot}: how long it took, how much
+ * work the calculator did, what the resulting escape counts look like and how many pixels were
+ * answered without being iterated. Instances are immutable.
+ */
+public final class RenderMetrics {
+
+    /**
+     * How the model produced the frame.
+     */
+    public enum RenderPath {
+        /** Copied from the render cache. */
+        CACHE,
+        /** Shifted from the previous frame after a pixel-aligned pan; only exposed strips were rendered. */
+        SHIFT,
+        /** Previous frame with its counts clamped to a lower iteration cap. */
+        CLAMP,
+        /** Previous frame with its unescaped orbits resumed to a higher iteration cap. */
+        RESUME,
+        /** Rendered by perturbation around a reference orbit. */
+        DEEP_ZOOM,
+        /** Rendered coarse to fine, with previews. */
+        PROGRESSIVE,
+        /** Rendered by rectangle subdivision. */
+        SUBDIVISION,
+        /** Rendered in parallel tiles. */
+        PARALLEL,
+        /** Rendered on one thread. */
+        SEQUENTIAL
+    }
+
+    private final MandelbrotState state;
+    private final RenderPath path;
+    private final long wallNanos;
+    private final Map<String, Long> workerCpuNanos;
+    private final long iterations;
+    private final long[] histogram;
+    private final long shortcutPixels;
+    private final long filledPixels;
+    private final long reusedPixels;
+
+    /**
+     * @param state view that was rendered
+     * @param path how the frame was produced
+     * @param wallNanos elapsed time of the render
+     * @param workerCpuNanos CPU time spent on the render per thread name
+     * @param iterations iterations executed
+     * @param histogram number of pixels per iteration count, from 0 to the cap; the last entry counts the pixels
+     *                  that did not escape
+     * @param shortcutPixels pixels declared inside by the interior test or periodicity checking
+     * @param filledPixels pixels filled by subdivision without being evaluated
+     * @param reusedPixels pixels taken from an earlier frame without being evaluated again
+     */
+    public RenderMetrics(MandelbrotState state, RenderPath path, long wallNanos, Map<String, Long> workerCpuNanos,
+                         long iterations, long[] histogram, long shortcutPixels, long filledPixels, long reusedPixels) {
+        this.state = state;
+        this.path = path;
+        this.wallNanos = wallNanos;
+        this.workerCpuNanos = Map.copyOf(workerCpuNanos);
+        this.iterations = iterations;
+        this.histogram = histogram.clone();
+        this.shortcutPixels = shortcutPixels;
+        this.filledPixels = filledPixels;
+        this.reusedPixels = reusedPixels;
+    }
+
+    /**
+     * @return view that was rendered
+     */
+    public MandelbrotState getState() {
+        return state;
+    }
+
+    /**
+     * @return how the frame was produced
+     */
+    public RenderPath getPath() {
+        return path;
+    }
+
+    /**
+     * @return elapsed time of the render in nanoseconds
+     */
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    /**
+     * @return CPU nanoseconds spent on the render per thread name; empty if CPU timing is unavailable
+     */
+    public Map<String, Long> getWorkerCpuNanos() {
+        return workerCpuNanos;
+    }
+
+    /**
+     * @return CPU nanoseconds spent on the render by all threads together
+     */
+    public long getCpuNanos() {
+        long total = 0;
+        for (long nanos : workerCpuNanos.values()) {
+            total += nanos;
+        }
+        return total;
+    }
+
+    /**
+     * @return iterations executed, excluding those avoided by shortcuts or reuse
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return number of pixels per iteration count from 0 to the cap; the last entry counts the pixels that did not escape
+     */
+    public long[] getHistogram() {
+        return histogram.clone();
+    }
+
+    /**
+     * @param iterationCount an iteration count from 0 to the cap
+     * @return number of pixels with that count
+     */
+    public long getPixelCount(int iterationCount) {
+        return histogram[iterationCount];
+    }
+
+    /**
+     * @return pixels declared inside by the interior test or periodicity checking
+     */
+    public long getShortcutPixels() {
+        return shortcutPixels;
+    }
+
+    /**
+     * @return pixels filled by subdivision without being evaluated
+     */
+    public long getFilledPixels() {
+        return filledPixels;
+    }
+
+    /**
+     * @return pixels taken from the cache or the previous frame without being evaluated again
+     */
+    public long getReusedPixels() {
+        return reusedPixels;
+    }
+
+    /**
+     * @return pixels whose orbit was not iterated to its end: shortcuts, fills and reuse together
+     */
+    public long getSkippedPixels() {
+        return shortcutPixels + filledPixels + reusedPixels;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s render: %.1f ms wall, %.1f ms CPU, %d iterations, %d pixels skipped",
+                path, wallNanos / 1e6, getCpuNanos() / 1e6, iterations, getSkippedPixels());
+    }
+}
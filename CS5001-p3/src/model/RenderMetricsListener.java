@@ -0,0 +1,13 @@
+package model;
+
+/**
+ * Listener for measurements of the renders published by the Mandelbrot model.
+ */
+public interface RenderMetricsListener {
+    /**
+     * Called after a render has been published, on the same thread as {@link ModelListener#modelChanged()}.
+     *
+     * @param metrics measurements of the render
+     */
+    void renderCompleted(RenderMetrics metrics);
+}
@@ -0,0 +1,144 @@
+package model;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Keeps the last render's measurements and running totals, and publishes them as an MXBean so
+ * that render cost can be graphed over time by any JMX client.
+ */
+public class RenderStatistics implements RenderMetricsListener, RenderStatisticsMXBean {
+
+    /** Distinguishes the beans of several models in one JVM. */
+    private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+    private RenderMetrics last;
+    private long renderCount;
+    private long totalIterations;
+    private long totalWallNanos;
+    private long totalSkippedPixels;
+    private ModelMandelbrot model;
+    private ObjectName name;
+
+    /**
+     * Creates statistics for a model and registers them with the platform MBean server under
+     * {@code model:type=RenderStatistics,name=<n>}.
+     *
+     * @param model model whose renders are measured
+     * @return the registered statistics
+     * @throws JMException if the bean cannot be registered
+     */
+    public static RenderStatistics register(ModelMandelbrot model) throws JMException {
+        RenderStatistics statistics = new RenderStatistics();
+        ObjectName name = new ObjectName("model:type=RenderStatistics,name=" + INSTANCES.incrementAndGet());
+        ManagementFactory.getPlatformMBeanServer().registerMBean(statistics, name);
+        statistics.name = name;
+        statistics.model = model;
+        model.addMetricsListener(statistics);
+        return statistics;
+    }
+
+    /**
+     * Stops measuring the model and removes the bean from the platform MBean server.
+     *
+     * @throws JMException if the bean cannot be unregistered
+     */
+    public void unregister() throws JMException {
+        if (name == null) {
+            return;
+        }
+        model.removeMetricsListener(this);
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        name = null;
+    }
+
+    /**
+     * @return name the bean is registered under, or null if it is not registered
+     */
+    public ObjectName getObjectName() {
+        return name;
+    }
+
+    @Override
+    public synchronized void renderCompleted(RenderMetrics metrics) {
+        last = metrics;
+        renderCount++;
+        totalIterations += metrics.getIterations();
+        totalWallNanos += metrics.getWallNanos();
+        totalSkippedPixels += metrics.getSkippedPixels();
+    }
+
+    /**
+     * @return measurements of the last render, or null before the first
+     */
+    public synchronized RenderMetrics getLastMetrics() {
+        return last;
+    }
+
+    @Override
+    public synchronized long getRenderCount() {
+        return renderCount;
+    }
+
+    @Override
+    public synchronized String getLastPath() {
+        return last == null ? "" : last.getPath().name();
+    }
+
+    @Override
+    public synchronized double getLastWallTimeMillis() {
+        return last == null ? 0 : last.getWallNanos() / 1e6;
+    }
+
+    @Override
+    public synchronized double getLastCpuTimeMillis() {
+        return last == null ? 0 : last.getCpuNanos() / 1e6;
+    }
+
+    @Override
+    public synchronized Map<String, Long> getLastWorkerCpuNanos() {
+        return last == null ? Map.of() : last.getWorkerCpuNanos();
+    }
+
+    @Override
+    public synchronized long getLastIterations() {
+        return last == null ? 0 : last.getIterations();
+    }
+
+    @Override
+    public synchronized long[] getLastHistogram() {
+        return last == null ? new long[0] : last.getHistogram();
+    }
+
+    @Override
+    public synchronized long getLastSkippedPixels() {
+        return last == null ? 0 : last.getSkippedPixels();
+    }
+
+    @Override
+    public synchronized long getTotalIterations() {
+        return totalIterations;
+    }
+
+    @Override
+    public synchronized double getTotalWallTimeMillis() {
+        return totalWallNanos / 1e6;
+    }
+
+    @Override
+    public synchronized long getTotalSkippedPixels() {
+        return totalSkippedPixels;
+    }
+
+    @Override
+    public synchronized void reset() {
+        last = null;
+        renderCount = 0;
+        totalIterations = 0;
+        totalWallNanos = 0;
+        totalSkippedPixels = 0;
+    }
+}
@@ -0,0 +1,69 @@
+package model;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link RenderStatistics}, for watching renders from JConsole or any JMX client.
+ */
+public interface RenderStatisticsMXBean {
+
+    /**
+     * @return number of renders measured since the last reset
+     */
+    long getRenderCount();
+
+    /**
+     * @return how the last render was produced, or an empty string before the first
+     */
+    String getLastPath();
+
+    /**
+     * @return elapsed time of the last render in milliseconds
+     */
+    double getLastWallTimeMillis();
+
+    /**
+     * @return CPU time of all threads in the last render in milliseconds
+     */
+    double getLastCpuTimeMillis();
+
+    /**
+     * @return CPU nanoseconds per thread name in the last render
+     */
+    Map<String, Long> getLastWorkerCpuNanos();
+
+    /**
+     * @return iterations executed by the last render
+     */
+    long getLastIterations();
+
+    /**
+     * @return pixels of the last render per iteration count; the last entry counts pixels that did not escape
+     */
+    long[] getLastHistogram();
+
+    /**
+     * @return pixels the last render did not iterate to the end
+     */
+    long getLastSkippedPixels();
+
+    /**
+     * @return iterations executed by all renders since the last reset
+     */
+    long getTotalIterations();
+
+    /**
+     * @return elapsed time of all renders since the last reset in milliseconds
+     */
+    double getTotalWallTimeMillis();
+
+    /**
+     * @return pixels not iterated to the end by all renders since the last reset
+     */
+    long getTotalSkippedPixels();
+
+    /**
+     * Clears the totals and the last render.
+     */
+    void reset();
+}
@@ -0,0 +1,413 @@
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Renders views on {@link TileWorker}s in other processes or on other machines, for images too large
+ * for one JVM to render in reasonable time. The image is cut into tiles that are handed out from one
+ * queue, so faster workers take more of them, and every worker has PIPELINE_DEPTH tiles in flight so
+ * that it starts the next one while the last is still on the wire. A worker that cannot be reached,
+ * drops its connection or stays silent for longer than the timeout is dropped from the render and its
+ * tiles go back to the queue for the others; the render fails only if every worker is lost. Workers send
+ * heartbeats while they render, so the timeout runs from the last data received and tiles may take
+ * longer than it.
+ *
+ * The pixels are those {@link MandelbrotCalculator#calcMandelbrotTile} computes for the same image,
+ * whichever worker renders them.
+ */
+public class TileCoordinator {
+
+    /** Default edge length of a tile in pixels. */
+    public static final int DEFAULT_TILE_SIZE = 256;
+    /** Default time a worker may stay silent before it is considered dead; rendering workers send heartbeats. */
+    public static final int DEFAULT_TIMEOUT_MILLIS = 10_000;
+    /** Tiles sent to a worker before waiting for the first of them. */
+    protected static final int PIPELINE_DEPTH = 2;
+    /** How often the waiting thread checks for cancellation and lost workers. */
+    private static final long POLL_MILLIS = 20;
+
+    private final List<InetSocketAddress> workers;
+    private volatile int tileSize = DEFAULT_TILE_SIZE;
+    private volatile int timeoutMillis = DEFAULT_TIMEOUT_MILLIS;
+    private final LongAdder retriedTiles = new LongAdder();
+    private final LongAdder lostWorkers = new LongAdder();
+    private final Map<InetSocketAddress, LongAdder> tilesPerWorker = new ConcurrentHashMap<>();
+
+    /**
+     * @param workers addresses of the workers to render on
+     */
+    public TileCoordinator(List<InetSocketAddress> workers) {
+        if (workers.isEmpty()) {
+            throw new IllegalArgumentException("At least one worker is needed");
+        }
+        this.workers = List.copyOf(workers);
+    }
+
+    /**
+     * Reads worker addresses written as {@code host:port} and separated by commas.
+     *
+     * @param spec e.g. {@code node1:7878,node2:7878}
+     * @return the addresses, unresolved until a render connects to them
+     * @throws IllegalArgumentException if an address is not understood
+     */
+    public static List<InetSocketAddress> parseWorkers(String spec) {
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String worker : spec.split(",")) {
+            String trimmed = worker.trim();
+            int colon = trimmed.lastIndexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("Invalid worker address: " + worker);
+            }
+            try {
+                addresses.add(InetSocketAddress.createUnresolved(trimmed.substring(0, colon),
+                        Integer.parseInt(trimmed.substring(colon + 1))));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid worker address: " + worker, e);
+            }
+        }
+        return addresses;
+    }
+
+    /**
+     * @param tileSize edge length of the tiles handed to workers
+     */
+    public void setTileSize(int tileSize) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("Tile size must be positive");
+        }
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * @return edge length of the tiles handed to workers
+     */
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * @param timeoutMillis time to connect, and time a worker may stay silent, before it is considered dead;
+     *                      longer than the heartbeat interval of rendering workers
+     */
+    public void setTimeoutMillis(int timeoutMillis) {
+        if (timeoutMillis <= TileProtocol.HEARTBEAT_MILLIS) {
+            throw new IllegalArgumentException("Timeout must exceed the heartbeat interval of "
+                    + TileProtocol.HEARTBEAT_MILLIS + " ms");
+        }
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * @return time a worker may stay silent before it is considered dead
+     */
+    public int getTimeoutMillis() {
+        return timeoutMillis;
+    }
+
+    /**
+     * @return addresses of the workers
+     */
+    public List<InetSocketAddress> getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Renders a whole view into frame, with fractions if the frame records them.
+     *
+     * @param frame destination; its size is the size of the image
+     * @param state view to render
+     * @param radiusSquared the squared bailout radius
+     * @param cancelled polled while waiting; returning true abandons the render
+     * @throws IOException if every worker was lost, or a worker rejected the view
+     * @throws CancellationException if cancelled returned true
+     */
+    public void render(IterationFrame frame, MandelbrotState state, double radiusSquared, BooleanSupplier cancelled)
+            throws IOException {
+        renderTile(frame, 0, 0, frame.getWidth(), frame.getHeight(), state, radiusSquared, cancelled);
+    }
+
+    /**
+     * Renders part of an image, like {@link MandelbrotCalculator#calcMandelbrotTile}.
+     *
+     * @param target destination; pixel (0, 0) holds image pixel (firstColumn, firstRow)
+     * @param firstColumn image column of the first column of target
+     * @param firstRow image row of the first row of target
+     * @param imageWidth width of the whole image
+     * @param imageHeight height of the whole image
+     * @param state view to render
+     * @param radiusSquared the squared bailout radius
+     * @param cancelled polled while waiting; returning true abandons the render
+     * @throws IOException if every worker was lost, or a worker rejected the view
+     * @throws CancellationException if cancelled returned true
+     */
+    public void renderTile(IterationFrame target, int firstColumn, int firstRow, int imageWidth, int imageHeight,
+                           MandelbrotState state, double radiusSquared, BooleanSupplier cancelled) throws IOException {
+        if (firstColumn < 0 || firstRow < 0
+                || firstColumn + target.getWidth() > imageWidth || firstRow + target.getHeight() > imageHeight) {
+            throw new IllegalArgumentException("Tile lies outside the image");
+        }
+        Job job = new Job(target, firstColumn, firstRow, imageWidth, imageHeight, state, radiusSquared);
+        if (job.remaining.getCount() == 0) {
+            return;
+        }
+        List<Thread> threads = new ArrayList<>();
+        for (InetSocketAddress worker : workers) {
+            Thread thread = new Thread(() -> job.serve(worker), "tile-coordinator-" + worker);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+        try {
+            job.await(cancelled);
+        } finally {
+            job.abandon();
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+            // Once this returns no late reply may be copied into target
+            joinAll(threads);
+        }
+    }
+
+    private static void joinAll(List<Thread> threads) {
+        boolean interrupted = false;
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return tiles sent again after the worker they were sent to was lost, since the coordinator was created
+     */
+    public long getRetriedTileCount() {
+        return retriedTiles.sum();
+    }
+
+    /**
+     * @return workers dropped from a render, counted once per render, since the coordinator was created
+     */
+    public long getLostWorkerCount() {
+        return lostWorkers.sum();
+    }
+
+    /**
+     * @return tiles rendered by each worker since the coordinator was created
+     */
+    public Map<InetSocketAddress, Long> getTilesPerWorker() {
+        Map<InetSocketAddress, Long> counts = new LinkedHashMap<>();
+        for (InetSocketAddress worker : workers) {
+            LongAdder count = tilesPerWorker.get(worker);
+            counts.put(worker, count == null ? 0 : count.sum());
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * One render: the tiles still to be rendered and the workers still taking part.
+     */
+    private final class Job {
+
+        private final IterationFrame target;
+        private final int firstColumn;
+        private final int firstRow;
+        private final int imageWidth;
+        private final int imageHeight;
+        private final MandelbrotState state;
+        private final double radiusSquared;
+        private final LinkedBlockingDeque<TileProtocol.Request> pending = new LinkedBlockingDeque<>();
+        private final CountDownLatch remaining;
+        private final AtomicInteger alive = new AtomicInteger(workers.size());
+        /** First worker lost, reported if every worker is. */
+        private final AtomicReference<IOException> failure = new AtomicReference<>();
+        /** A view the workers cannot render; retrying it elsewhere would fail the same way. */
+        private final AtomicReference<IOException> rejection = new AtomicReference<>();
+        private final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+        private volatile boolean abandoned;
+
+        Job(IterationFrame target, int firstColumn, int firstRow, int imageWidth, int imageHeight,
+            MandelbrotState state, double radiusSquared) {
+            this.target = target;
+            this.firstColumn = firstColumn;
+            this.firstRow = firstRow;
+            this.imageWidth = imageWidth;
+            this.imageHeight = imageHeight;
+            this.state = state;
+            this.radiusSquared = radiusSquared;
+            int size = tileSize;
+            boolean fractions = target.getFractions() != null;
+            int id = 0;
+            for (int y = 0; y < target.getHeight(); y += size) {
+                for (int x = 0; x < target.getWidth(); x += size) {
+                    pending.add(new TileProtocol.Request(id++, firstColumn + x, firstRow + y,
+                            Math.min(size, target.getWidth() - x), Math.min(size, target.getHeight() - y),
+                            imageWidth, imageHeight, state, radiusSquared, fractions));
+                }
+            }
+            this.remaining = new CountDownLatch(id);
+        }
+
+        /**
+         * Feeds tiles to one worker until none are left, putting back those in flight if the worker is lost.
+         */
+        void serve(InetSocketAddress address) {
+            ArrayDeque<TileProtocol.Request> inFlight = new ArrayDeque<>();
+            try (Socket socket = new Socket()) {
+                sockets.add(socket);
+                if (abandoned) {
+                    return; // abandon() may have closed the sockets before this one was added
+                }
+                InetSocketAddress resolved = address.isUnresolved()
+                        ? new InetSocketAddress(address.getHostString(), address.getPort()) : address;
+                socket.connect(resolved, timeoutMillis);
+                socket.setSoTimeout(timeoutMillis);
+                socket.setTcpNoDelay(true);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                out.writeInt(TileProtocol.MAGIC);
+                while (!abandoned && remaining.getCount() > 0) {
+                    TileProtocol.Request request;
+                    while (inFlight.size() < PIPELINE_DEPTH && (request = pending.poll()) != null) {
+                        inFlight.add(request);
+                        TileProtocol.writeRequest(out, request);
+                    }
+                    out.flush();
+                    if (inFlight.isEmpty()) {
+                        // Others hold the last tiles; wait in case their worker is lost
+                        request = pending.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                        if (request != null) {
+                            pending.addFirst(request);
+                        }
+                        continue;
+                    }
+                    // Still in flight until its reply is stored, in case the worker is lost meanwhile
+                    receive(in, inFlight.peek(), address);
+                    inFlight.remove();
+                }
+            } catch (IOException e) {
+                if (!abandoned) {
+                    lost(address, inFlight, e);
+                }
+            } catch (InterruptedException e) {
+                // Render over
+            } finally {
+                alive.decrementAndGet();
+            }
+        }
+
+        private void receive(DataInputStream in, TileProtocol.Request request, InetSocketAddress address)
+                throws IOException {
+            int id;
+            byte status;
+            // Heartbeats only show that the worker is alive; the read timeout restarts with each of them
+            do {
+                id = in.readInt();
+                status = in.readByte();
+            } while (status == TileProtocol.HEARTBEAT);
+            if (status == TileProtocol.ERROR) {
+                String message = in.readUTF();
+                IOException rejected = new IOException("Worker " + address + " rejected the view: " + message);
+                rejection.compareAndSet(null, rejected);
+                throw rejected;
+            }
+            if (status != TileProtocol.OK || id != request.id) {
+                throw new IOException("Unexpected reply from worker " + address);
+            }
+            IterationFrame tile = new IterationFrame(request.width, request.height);
+            if (request.fractions) {
+                tile.enableFractions();
+            }
+            TileProtocol.readTile(in, tile);
+            if (abandoned) {
+                return; // the caller may already be using target again
+            }
+            int x0 = request.firstColumn - firstColumn;
+            int y0 = request.firstRow - firstRow;
+            int[] pixels = target.getPixels();
+            float[] fractions = target.getFractions();
+            int width = target.getWidth();
+            for (int y = 0; y < request.height; y++) {
+                System.arraycopy(tile.getPixels(), y * request.width, pixels, (y0 + y) * width + x0, request.width);
+                if (fractions != null) {
+                    System.arraycopy(tile.getFractions(), y * request.width, fractions, (y0 + y) * width + x0,
+                            request.width);
+                }
+            }
+            tilesPerWorker.computeIfAbsent(address, a -> new LongAdder()).increment();
+            remaining.countDown();
+        }
+
+        private void lost(InetSocketAddress address, ArrayDeque<TileProtocol.Request> inFlight, IOException cause) {
+            lostWorkers.increment();
+            retriedTiles.add(inFlight.size());
+            // Back to the front, so the image still fills in roughly in order
+            while (!inFlight.isEmpty()) {
+                pending.addFirst(inFlight.removeLast());
+            }
+            failure.compareAndSet(null, new IOException("Worker " + address + " lost: " + cause.getMessage(), cause));
+        }
+
+        void await(BooleanSupplier cancelled) throws IOException {
+            try {
+                while (!remaining.await(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    if (cancelled.getAsBoolean()) {
+                        throw new CancellationException("Mandelbrot render cancelled");
+                    }
+                    if (rejection.get() != null) {
+                        throw rejection.get();
+                    }
+                    if (alive.get() == 0 && remaining.getCount() > 0) {
+                        throw new IOException("All " + workers.size() + " tile workers were lost", failure.get());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while rendering", e);
+            }
+        }
+
+        /**
+         * Stops the worker threads, closing their connections so that none stays blocked on a read.
+         */
+        void abandon() {
+            abandoned = true;
+            for (Socket socket : sockets) {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    // Closing anyway
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package model;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Wire format between {@link TileCoordinator} and {@link TileWorker}. The coordinator opens a connection
+ * with MAGIC and then sends tile requests; the worker answers each request in order with its iteration
+ * counts, and their fractions if asked for. Several requests may be in flight on one connection.
+ *
+ * Request: id, first column, first row, tile width, tile height, image width, image height (ints), the view
+ * window (four doubles), iteration cap (int), kernel specification (UTF), squared bailout radius (double),
+ * whether to send fractions (boolean).
+ *
+ * Reply: id (int), status (byte), then for OK the tile's counts as ints and, if requested, its fractions as
+ * floats, row by row; for ERROR a message (UTF). While a tile renders the worker also sends a HEARTBEAT reply,
+ * id and status alone, every HEARTBEAT_MILLIS, so that a slow tile is not mistaken for a dead worker.
+ */
+final class TileProtocol {
+
+    /** First int of every connection, "MBT1". */
+    static final int MAGIC = 0x4D425431;
+    /** Reply status of a rendered tile. */
+    static final byte OK = 0;
+    /** Reply status of a request the worker could not render; retrying elsewhere will not help. */
+    static final byte ERROR = 1;
+    /** Reply status sent while a tile is still rendering; the final reply for the tile follows later. */
+    static final byte HEARTBEAT = 2;
+    /** Interval between heartbeats while a tile renders. */
+    static final int HEARTBEAT_MILLIS = 500;
+    /** Largest tile a worker accepts, in pixels. */
+    static final int MAX_TILE_PIXELS = 1 << 24;
+
+    private TileProtocol() {
+    }
+
+    /**
+     * A tile of an image to render.
+     */
+    static final class Request {
+        final int id;
+        final int firstColumn;
+        final int firstRow;
+        final int width;
+        final int height;
+        final int imageWidth;
+        final int imageHeight;
+        final MandelbrotState state;
+        final double radiusSquared;
+        final boolean fractions;
+
+        Request(int id, int firstColumn, int firstRow, int width, int height, int imageWidth, int imageHeight,
+                MandelbrotState state, double radiusSquared, boolean fractions) {
+            this.id = id;
+            this.firstColumn = firstColumn;
+            this.firstRow = firstRow;
+            this.width = width;
+            this.height = height;
+            this.imageWidth = imageWidth;
+            this.imageHeight = imageHeight;
+            this.state = state;
+            this.radiusSquared = radiusSquared;
+            this.fractions = fractions;
+        }
+    }
+
+    static void writeRequest(DataOutputStream out, Request request) throws IOException {
+        out.writeInt(request.id);
+        out.writeInt(request.firstColumn);
+        out.writeInt(request.firstRow);
+        out.writeInt(request.width);
+        out.writeInt(request.height);
+        out.writeInt(request.imageWidth);
+        out.writeInt(request.imageHeight);
+        out.writeDouble(request.state.minReal);
+        out.writeDouble(request.state.maxReal);
+        out.writeDouble(request.state.minImag);
+        out.writeDouble(request.state.maxImag);
+        out.writeInt(request.state.maxIterations);
+        out.writeUTF(request.state.kernel.getSpec());
+        out.writeDouble(request.radiusSquared);
+        out.writeBoolean(request.fractions);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the request is well formed on the wire but describes no valid tile
+     */
+    static Request readRequest(DataInputStream in) throws IOException {
+        int id = in.readInt();
+        int firstColumn = in.readInt();
+        int firstRow = in.readInt();
+        int width = in.readInt();
+        int height = in.readInt();
+        int imageWidth = in.readInt();
+        int imageHeight = in.readInt();
+        double minReal = in.readDouble();
+        double maxReal = in.readDouble();
+        double minImag = in.readDouble();
+        double maxImag = in.readDouble();
+        int maxIterations = in.readInt();
+        String kernel = in.readUTF();
+        double radiusSquared = in.readDouble();
+        boolean fractions = in.readBoolean();
+        if (width <= 0 || height <= 0 || (long) width * height > MAX_TILE_PIXELS) {
+            throw new IllegalArgumentException("Invalid tile size " + width + " x " + height);
+        }
+        MandelbrotState state = new MandelbrotState(minReal, maxReal, minImag, maxImag, maxIterations,
+                FractalKernel.parse(kernel));
+        return new Request(id, firstColumn, firstRow, width, height, imageWidth, imageHeight, state,
+                radiusSquared, fractions);
+    }
+
+    static void writeTile(DataOutputStream out, int id, IterationFrame tile) throws IOException {
+        out.writeInt(id);
+        out.writeByte(OK);
+        int[] pixels = tile.getPixels();
+        ByteBuffer bytes = ByteBuffer.allocate(4 * pixels.length);
+        bytes.asIntBuffer().put(pixels);
+        out.write(bytes.array());
+        float[] fractions = tile.getFractions();
+        if (fractions != null) {
+            bytes.clear();
+            bytes.asFloatBuffer().put(fractions);
+            out.write(bytes.array());
+        }
+    }
+
+    static void writeHeartbeat(DataOutputStream out, int id) throws IOException {
+        out.writeInt(id);
+        out.writeByte(HEARTBEAT);
+    }
+
+    static void writeError(DataOutputStream out, int id, String message) throws IOException {
+        out.writeInt(id);
+        out.writeByte(ERROR);
+        out.writeUTF(message == null ? "" : message);
+    }
+
+    /**
+     * Reads the counts of a tile, and its fractions if tile records them, after the id and an OK status.
+     */
+    static void readTile(DataInputStream in, IterationFrame tile) throws IOException {
+        int[] pixels = tile.getPixels();
+        byte[] bytes = new byte[4 * pixels.length];
+        in.readFully(bytes);
+        ByteBuffer.wrap(bytes).asIntBuffer().get(pixels);
+        float[] fractions = tile.getFractions();
+        if (fractions != null) {
+            in.readFully(bytes);
+            ByteBuffer.wrap(bytes).asFloatBuffer().get(fractions);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Renders tiles for a {@link TileCoordinator} on another machine or process. Every connection is served
+ * on a thread of its own, and each tile is rendered with {@link MandelbrotCalculator#calcMandelbrotTile},
+ * so a worker uses all the cores of its machine. While a tile renders the worker sends heartbeats, so the
+ * coordinator can wait for slow tiles without waiting as long for dead workers. See {@link TileProtocol}
+ * for the wire format.
+ *
+ * Usage: {@code java -cp bin model.TileWorker [port]}
+ */
+public class TileWorker implements AutoCloseable {
+
+    /** Port listened on when none is given on the command line. */
+    public static final int DEFAULT_PORT = 7878;
+
+    private final ServerSocket server;
+    private final MandelbrotCalculator calculator;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+    private final LongAdder tilesRendered = new LongAdder();
+    // Sends the heartbeats of every connection; replies and heartbeats are written holding the stream's lock
+    private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "tile-worker-heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile boolean closed;
+
+    /**
+     * Creates a worker rendering on the common fork-join pool.
+     *
+     * @param port port to listen on; 0 picks a free one, see {@link #getPort}
+     * @throws IOException if the port cannot be bound
+     */
+    public TileWorker(int port) throws IOException {
+        this(port, new MandelbrotCalculator());
+    }
+
+    /**
+     * Creates a worker rendering with the given calculator, e.g. one on a pool of limited size.
+     *
+     * @param port port to listen on; 0 picks a free one
+     * @param calculator calculator rendering the tiles
+     * @throws IOException if the port cannot be bound
+     */
+    public TileWorker(int port, MandelbrotCalculator calculator) throws IOException {
+        this.server = new ServerSocket(port);
+        this.calculator = calculator;
+    }
+
+    /**
+     * Accepts connections on a background thread.
+     *
+     * @return this worker
+     */
+    public TileWorker start() {
+        Thread acceptor = new Thread(this::serve, "tile-worker-" + getPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return this;
+    }
+
+    /**
+     * Accepts connections on the calling thread until the worker is closed.
+     */
+    public void serve() {
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println("Tile worker stopped accepting: " + e.getMessage());
+                }
+                return;
+            }
+            Thread connection = new Thread(() -> handle(socket),
+                    "tile-worker-" + getPort() + "-connection-" + connectionCount.incrementAndGet());
+            connection.setDaemon(true);
+            connection.start();
+        }
+    }
+
+    private void handle(Socket socket) {
+        connections.add(socket);
+        try (Socket s = socket) {
+            // Replies are large and sent as soon as they are ready
+            s.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+            if (in.readInt() != TileProtocol.MAGIC) {
+                return;
+            }
+            while (!closed) {
+                TileProtocol.Request request;
+                try {
+                    request = TileProtocol.readRequest(in);
+                } catch (EOFException e) {
+                    return; // coordinator done
+                } catch (IllegalArgumentException e) {
+                    // The request was read in full, so the connection is still usable
+                    synchronized (out) {
+                        TileProtocol.writeError(out, -1, e.getMessage());
+                        out.flush();
+                    }
+                    continue;
+                }
+                render(request, out);
+            }
+        } catch (CancellationException | SocketException e) {
+            // Worker closed, or coordinator gone
+        } catch (IOException e) {
+            if (!closed) {
+                System.err.println("Tile worker connection failed: " + e.getMessage());
+            }
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    private void render(TileProtocol.Request request, DataOutputStream out) throws IOException {
+        IterationFrame tile = new IterationFrame(request.width, request.height);
+        if (request.fractions) {
+            tile.enableFractions();
+        }
+        ScheduledFuture<?> heartbeat = heartbeats.scheduleAtFixedRate(() -> sendHeartbeat(out, request.id),
+                TileProtocol.HEARTBEAT_MILLIS, TileProtocol.HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+        try {
+            calculator.calcMandelbrotTile(tile, request.firstColumn, request.firstRow, request.imageWidth,
+                    request.imageHeight, request.state, request.radiusSquared, () -> closed);
+        } catch (IllegalArgumentException e) {
+            synchronized (out) {
+                TileProtocol.writeError(out, request.id, e.getMessage());
+                out.flush();
+            }
+            return;
+        } finally {
+            heartbeat.cancel(false);
+        }
+        synchronized (out) {
+            TileProtocol.writeTile(out, request.id, tile);
+            out.flush();
+        }
+        tilesRendered.increment();
+    }
+
+    private static void sendHeartbeat(DataOutputStream out, int id) {
+        try {
+            synchronized (out) {
+                TileProtocol.writeHeartbeat(out, id);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // The connection is gone; its own thread notices and stops
+        }
+    }
+
+    /**
+     * @return port the worker listens on
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * @return tiles rendered since the worker started
+     */
+    public long getTilesRendered() {
+        return tilesRendered.sum();
+    }
+
+    /**
+     * Stops listening and drops every connection; tiles being rendered are abandoned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        heartbeats.shutdownNow();
+        try {
+            server.close();
+        } catch (IOException e) {
+            // Closing anyway
+        }
+        for (Socket socket : connections) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Closing anyway
+            }
+        }
+    }
+
+    /**
+     * Listens for coordinators until the process is stopped.
+     *
+     * @param args optional port number
+     */
+    public static void main(String[] args) {
+        int port = DEFAULT_PORT;
+        try {
+            if (args.length > 1) {
+                throw new IllegalArgumentException("Too many arguments");
+            }
+            if (args.length == 1) {
+                port = Integer.parseInt(args[0]);
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: java -cp bin model.TileWorker [port]");
+            System.exit(2);
+        }
+        try {
+            TileWorker worker = new TileWorker(port);
+            System.out.printf("Tile worker listening on port %d%n", worker.getPort());
+            worker.serve();
+        } catch (IOException e) {
+            System.err.println("Cannot listen on port " + port + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package model;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * CPU time spent by each worker thread on rendering, keyed by thread name. Leaf tasks bracket their
+ * work with {@link #start()} and {@link #stop(long)}; reading a thread's CPU clock costs about a
+ * microsecond, so timing is off until enabled and tiles are large enough for it not to show.
+ */
+final class WorkerCpuTimes {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final Map<String, LongAdder> times = new ConcurrentHashMap<>();
+    private volatile boolean enabled;
+
+    /**
+     * @param enabled true to record CPU time, if the JVM can measure it
+     */
+    void setEnabled(boolean enabled) {
+        this.enabled = enabled && THREADS.isCurrentThreadCpuTimeSupported();
+    }
+
+    boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return the current thread's CPU time in nanoseconds, or -1 when timing is off
+     */
+    long start() {
+        return enabled ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+
+    /**
+     * Adds the current thread's CPU time since start to its total.
+     *
+     * @param start value returned by {@link #start()} on this thread
+     */
+    void stop(long start) {
+        if (start < 0) {
+            return;
+        }
+        long elapsed = THREADS.getCurrentThreadCpuTime() - start;
+        times.computeIfAbsent(Thread.currentThread().getName(), name -> new LongAdder()).add(elapsed);
+    }
+
+    /**
+     * @return CPU nanoseconds per worker thread name since the last reset
+     */
+    Map<String, Long> snapshot() {
+        Map<String, Long> copy = new HashMap<>();
+        times.forEach((name, time) -> copy.put(name, time.sum()));
+        return Collections.unmodifiableMap(copy);
+    }
+
+    void reset() {
+        times.clear();
+    }
+}
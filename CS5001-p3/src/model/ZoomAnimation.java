@@ -0,0 +1,293 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Renders the frames of a zoom between two keyframes. The width of the view changes
+ * geometrically, so the zoom speed looks constant, and an easing curve shapes its timing.
+ *
+ * Frames are rendered in waves of as many frames as the pool has workers, each frame as its own
+ * task, which keeps every core busy even when frames are small. Before a wave starts, each of its
+ * frames gets a preview made by resampling the last finished frame over the region the two views
+ * share, so a viewer can show something immediately. Frames are handed out in order.
+ */
+public class ZoomAnimation {
+
+    /**
+     * Maps animation time to zoom progress, both from 0 to 1.
+     */
+    public interface Easing {
+
+        /** Constant speed. */
+        Easing LINEAR = t -> t;
+        /** Starts and ends gently (smoothstep). */
+        Easing SMOOTH = t -> t * t * (3 - 2 * t);
+
+        /**
+         * @param t animation time from 0 to 1
+         * @return zoom progress from 0 to 1
+         */
+        double ease(double t);
+    }
+
+    /**
+     * Receives previews and finished frames, on the thread calling {@link #render}. The frames
+     * are reused once the call returns, so they must be copied to be kept.
+     */
+    public interface FrameSink {
+
+        /**
+         * @param index frame number
+         * @param state view of the frame
+         * @param preview approximation resampled from an earlier frame
+         */
+        default void preview(int index, MandelbrotState state, IterationFrame preview) {
+        }
+
+        /**
+         * @param index frame number
+         * @param state view of the frame
+         * @param frame the rendered frame
+         */
+        void frame(int index, MandelbrotState state, IterationFrame frame);
+    }
+
+    /**
+     * Timing of a finished animation render.
+     */
+    public static final class Stats {
+        private final int frames;
+        private final long elapsedNanos;
+
+        Stats(int frames, long elapsedNanos) {
+            this.frames = frames;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * @return number of frames rendered
+         */
+        public int getFrames() {
+            return frames;
+        }
+
+        /**
+         * @return wall-clock time of the whole render in nanoseconds
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * @return frames rendered per second of wall-clock time
+         */
+        public double getFramesPerSecond() {
+            return elapsedNanos == 0 ? 0 : frames * 1e9 / elapsedNanos;
+        }
+    }
+
+    private final MandelbrotCalculator calculator;
+    private final ForkJoinPool pool;
+    private boolean fractionalCounts;
+
+    /**
+     * Creates an animation renderer using the common fork-join pool.
+     *
+     * @param calculator calculator used for every frame
+     */
+    public ZoomAnimation(MandelbrotCalculator calculator) {
+        this(calculator, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Creates an animation renderer.
+     *
+     * @param calculator calculator used for every frame
+     * @param pool pool whose workers render frames concurrently
+     */
+    public ZoomAnimation(MandelbrotCalculator calculator, ForkJoinPool pool) {
+        this.calculator = calculator;
+        this.pool = pool;
+    }
+
+    /**
+     * Makes the frames handed to the sink record escape fractions, for smooth colouring.
+     *
+     * @param fractionalCounts true to record fractions
+     */
+    public void setFractionalCounts(boolean fractionalCounts) {
+        this.fractionalCounts = fractionalCounts;
+    }
+
+    /**
+     * View at a point of the animation. The width and height change geometrically with progress and
+     * the centre moves in proportion to the change of width, so a point shared by both keyframes
+     * stays put on screen; the iteration cap changes linearly.
+     *
+     * @param start first keyframe
+     * @param end last keyframe
+     * @param easing timing curve
+     * @param t animation time from 0 to 1
+     * @return view at time t
+     */
+    public static MandelbrotState interpolate(MandelbrotState start, MandelbrotState end, Easing easing, double t) {
+        double progress = easing.ease(Math.max(0, Math.min(1, t)));
+        if (progress <= 0) {
+            return start;
+        }
+        if (progress >= 1) {
+            return end;
+        }
+        double startWidth = start.maxReal - start.minReal;
+        double endWidth = end.maxReal - end.minReal;
+        double width = startWidth * Math.pow(endWidth / startWidth, progress);
+        double height = (start.maxImag - start.minImag)
+                * Math.pow((end.maxImag - end.minImag) / (start.maxImag - start.minImag), progress);
+        // Share of the total change of width covered so far
+        double travel = startWidth == endWidth ? progress : (startWidth - width) / (startWidth - endWidth);
+        double centreReal = lerp((start.minReal + start.maxReal) / 2, (end.minReal + end.maxReal) / 2, travel);
+        double centreImag = lerp((start.minImag + start.maxImag) / 2, (end.minImag + end.maxImag) / 2, travel);
+        int maxIterations = (int) Math.round(lerp(start.maxIterations, end.maxIterations, progress));
+        return new MandelbrotState(centreReal - width / 2, centreReal + width / 2,
+                centreImag - height / 2, centreImag + height / 2, maxIterations, start.kernel);
+    }
+
+    private static double lerp(double a, double b, double t) {
+        return a + (b - a) * t;
+    }
+
+    /**
+     * Renders frameCount frames from start to end inclusive.
+     *
+     * @param start first keyframe
+     * @param end last keyframe, showing the same fractal as start
+     * @param easing timing curve
+     * @param frameCount number of frames, at least 2
+     * @param width frame width in pixels
+     * @param height frame height in pixels
+     * @param radiusSquared the squared bailout radius
+     * @param sink receives previews and frames in order
+     * @param cancelled polled while rendering; when it returns true the render stops with a CancellationException
+     * @return frame count and timing, for reporting frames per second
+     */
+    public Stats render(MandelbrotState start, MandelbrotState end, Easing easing, int frameCount,
+                        int width, int height, double radiusSquared, FrameSink sink, BooleanSupplier cancelled) {
+        if (frameCount < 2) {
+            throw new IllegalArgumentException("An animation needs at least two frames");
+        }
+        if (!start.kernel.equals(end.kernel)) {
+            throw new IllegalArgumentException("Both keyframes must show the same fractal");
+        }
+        long begin = System.nanoTime();
+        int wave = Math.max(1, pool.getParallelism());
+        List<IterationFrame> frames = new ArrayList<>();
+        IterationFrame preview = newFrame(width, height);
+        IterationFrame previous = null;
+        MandelbrotState previousState = null;
+        for (int first = 0; first < frameCount; first += wave) {
+            if (cancelled.getAsBoolean()) {
+                throw new CancellationException("Animation render cancelled");
+            }
+            int count = Math.min(wave, frameCount - first);
+            MandelbrotState[] states = new MandelbrotState[count];
+            for (int i = 0; i < count; i++) {
+                states[i] = interpolate(start, end, easing, (double) (first + i) / (frameCount - 1));
+            }
+            // One frame more than a wave, because the last frame of the previous wave is kept for previews
+            while (frames.size() < count + 1) {
+                frames.add(newFrame(width, height));
+            }
+            List<IterationFrame> targets = new ArrayList<>(frames);
+            targets.remove(previous);
+            if (previous != null) {
+                for (int i = 0; i < count; i++) {
+                    resample(previous, previousState, preview, states[i]);
+                    sink.preview(first + i, states[i], preview);
+                }
+            }
+            List<RecursiveAction> tasks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                IterationFrame target = targets.get(i);
+                MandelbrotState state = states[i];
+                tasks.add(new RecursiveAction() {
+                    @Override
+                    protected void compute() {
+                        calculator.calcMandelbrotFrame(target, state, radiusSquared, cancelled);
+                    }
+                });
+            }
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+            for (int i = 0; i < count; i++) {
+                sink.frame(first + i, states[i], targets.get(i));
+            }
+            previous = targets.get(count - 1);
+            previousState = states[count - 1];
+        }
+        return new Stats(frameCount, System.nanoTime() - begin);
+    }
+
+    private IterationFrame newFrame(int width, int height) {
+        IterationFrame frame = new IterationFrame(width, height);
+        if (fractionalCounts) {
+            frame.enableFractions();
+        }
+        return frame;
+    }
+
+    /**
+     * Approximates a view from an already rendered one by taking, for each target pixel, the nearest
+     * source pixel, with its fraction when both frames have them. Target pixels outside the source view
+     * take the nearest edge pixel.
+     *
+     * @param source rendered frame
+     * @param from view of the rendered frame
+     * @param target frame to fill
+     * @param to view of the target frame
+     */
+    public static void resample(IterationFrame source, MandelbrotState from, IterationFrame target, MandelbrotState to) {
+        int sourceWidth = source.getWidth();
+        int sourceHeight = source.getHeight();
+        int width = target.getWidth();
+        int height = target.getHeight();
+        double fromRealStep = (from.maxReal - from.minReal) / sourceWidth;
+        double fromImagStep = (from.maxImag - from.minImag) / sourceHeight;
+        double toRealStep = (to.maxReal - to.minReal) / width;
+        double toImagStep = (to.maxImag - to.minImag) / height;
+        int[] columns = new int[width];
+        for (int x = 0; x < width; x++) {
+            double real = to.minReal + x * toRealStep;
+            columns[x] = clamp((int) Math.round((real - from.minReal) / fromRealStep), sourceWidth);
+        }
+        int[] sourcePixels = source.getPixels();
+        int[] pixels = target.getPixels();
+        float[] sourceFractions = source.getFractions();
+        float[] fractions = sourceFractions == null ? null : target.getFractions();
+        for (int y = 0; y < height; y++) {
+            double imag = to.minImag + y * toImagStep;
+            int sourceRow = clamp((int) Math.round((imag - from.minImag) / fromImagStep), sourceHeight) * sourceWidth;
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                pixels[row + x] = sourcePixels[sourceRow + columns[x]];
+            }
+            if (fractions != null) {
+                for (int x = 0; x < width; x++) {
+                    fractions[row + x] = sourceFractions[sourceRow + columns[x]];
+                }
+            }
+        }
+    }
+
+    private static int clamp(int index, int size) {
+        return Math.max(0, Math.min(size - 1, index));
+    }
+}
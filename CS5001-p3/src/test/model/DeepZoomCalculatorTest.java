@@ -0,0 +1,119 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests that exercise {@link DeepZoomCalculator}.
+ */
+public class DeepZoomCalculatorTest {
+
+    /**
+     * Share of pixels whose count may differ from the double renderer's, e.g. through a glitch whose rebase
+     * moved the escape; both engines are exact enough at the depths compared that any difference is rounding.
+     */
+    private static final double MAX_GLITCHED_SHARE = 0.005;
+
+    /*
+    * Tests for calcMandelbrotFrame(): at depths doubles still resolve, perturbation gives the same image.
+    */
+    @Test
+    public void testPerturbationMatchesDoublesAtShallowZoom() {
+        DeepZoomCalculator deep = new DeepZoomCalculator();
+        MandelbrotCalculator calculator = new MandelbrotCalculator();
+        MandelbrotState state = new MandelbrotState(-0.7436, -0.7426, 0.1314, 0.1324, 1000);
+        IterationFrame frame = new IterationFrame(120, 90);
+
+        deep.calcMandelbrotFrame(frame, state, 4.0, () -> false);
+        int[][] doubles = calculator.calcMandelbrotSet(120, 90, -0.7436, -0.7426, 0.1314, 0.1324, 1000, 4.0);
+
+        int differing = 0;
+        for (int y = 0; y < 90; y++) {
+            for (int x = 0; x < 120; x++) {
+                if (doubles[y][x] != frame.get(x, y)) {
+                    differing++;
+                }
+            }
+        }
+        // Rounding differs between the two methods, which can move a rare escape
+        assertTrue(differing <= MAX_GLITCHED_SHARE * 120 * 90, "pixels differing: " + differing);
+        // Rebasing is routine, not a sign of trouble: most pixels here pass near the origin
+        assertTrue(deep.getGlitchCorrectionCount() > 0);
+    }
+
+    /*
+    * Tests for deep views: pixels 1e-16 apart match an arbitrary-precision iteration of the same points.
+    */
+    @Test
+    public void testDeepZoomMatchesArbitraryPrecision() {
+        DeepZoomCalculator deep = new DeepZoomCalculator();
+        BigDecimal centreReal = new BigDecimal("-0.743643887037158704752191506114774");
+        BigDecimal centreImaginary = new BigDecimal("0.131825904205311970493132056385139");
+        double step = 1e-16; // about one double ulp at this centre
+        IterationFrame frame = new IterationFrame(40, 30);
+
+        deep.calcMandelbrotFrame(frame, centreReal, centreImaginary, step, step, 5000, 4.0, () -> false);
+
+        int[][] samples = {{0, 0}, {39, 29}, {20, 15}, {7, 22}, {31, 4}, {13, 9}};
+        MathContext precision = new MathContext(50);
+        for (int[] sample : samples) {
+            BigDecimal cReal = centreReal.add(new BigDecimal(step).multiply(BigDecimal.valueOf(sample[0] - 20)), precision);
+            BigDecimal cImaginary = centreImaginary.add(new BigDecimal(step).multiply(BigDecimal.valueOf(sample[1] - 15)), precision);
+            assertEquals(iterate(cReal, cImaginary, 5000, precision), frame.get(sample[0], sample[1]),
+                    "pixel " + sample[0] + "," + sample[1]);
+        }
+        // Neighbouring pixels are told apart
+        long distinct = Arrays.stream(frame.getPixels()).distinct().count();
+        assertTrue(distinct > 50, "distinct iteration counts: " + distinct);
+        assertTrue(deep.getGlitchCorrectionCount() > 0);
+    }
+
+    /*
+    * Tests for the automatic switch in ModelMandelbrot.
+    */
+    @Test
+    public void testModelSwitchesOnMagnification() {
+        ModelMandelbrot model = new ModelMandelbrot(60, 50);
+        model.setRenderCache(null);
+        assertFalse(model.isDeepZoomActive());
+
+        model.setDeepZoomMagnification(1.0);
+        model.setMaxIterations(200);
+
+        assertTrue(model.isDeepZoomActive());
+        MandelbrotCalculator calculator = new MandelbrotCalculator();
+        int[][] doubles = calculator.calcMandelbrotSet(60, 50, -2.0, 0.7, -1.25, 1.25, 200, 4.0);
+        int differing = 0;
+        int[][] data = model.getData();
+        for (int y = 0; y < 50; y++) {
+            for (int x = 0; x < 60; x++) {
+                if (doubles[y][x] != data[y][x]) {
+                    differing++;
+                }
+            }
+        }
+        assertTrue(differing <= MAX_GLITCHED_SHARE * 60 * 50, "pixels differing: " + differing);
+        assertThrows(IllegalArgumentException.class, () -> model.setDeepZoomMagnification(0));
+    }
+
+    private static int iterate(BigDecimal cReal, BigDecimal cImaginary, int maxIterations, MathContext precision) {
+        BigDecimal zr = BigDecimal.ZERO;
+        BigDecimal zi = BigDecimal.ZERO;
+        BigDecimal four = BigDecimal.valueOf(4);
+        int iterations = 0;
+        while (iterations < maxIterations) {
+            BigDecimal zr2 = zr.multiply(zr, precision);
+            BigDecimal zi2 = zi.multiply(zi, precision);
+            iterations++;
+            if (zr2.add(zi2).compareTo(four) > 0) {
+                break;
+            }
+            zi = BigDecimal.valueOf(2).multiply(zr).multiply(zi, precision).add(cImaginary, precision);
+            zr = zr2.subtract(zi2).add(cReal, precision);
+        }
+        return iterations;
+    }
+}
@@ -0,0 +1,68 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests that exercise {@link JuliaPreview}.
+ */
+public class JuliaPreviewTest {
+
+    /*
+    * Tests that a preview shows the same Julia set as a full render of it.
+    */
+    @Test
+    public void testPreviewMatchesFullRender() throws InterruptedException {
+        try (JuliaPreview preview = new JuliaPreview()) {
+            CountDownLatch published = new CountDownLatch(1);
+            preview.addListener(published::countDown);
+
+            preview.request(-0.8, 0.156);
+            assertTrue(published.await(30, TimeUnit.SECONDS), "preview was never published");
+
+            JuliaKernel kernel = new JuliaKernel(-0.8, 0.156);
+            assertEquals(kernel, preview.getKernel());
+            assertEquals(JuliaPreview.DEFAULT_MAX_ITERATIONS, preview.getShownIterations());
+
+            IterationFrame expected = new IterationFrame(JuliaPreview.DEFAULT_SIZE, JuliaPreview.DEFAULT_SIZE);
+            new MandelbrotCalculator().calcMandelbrotFrame(expected,
+                    kernel.initialState(JuliaPreview.DEFAULT_MAX_ITERATIONS),
+                    MandelbrotCalculator.DEFAULT_RADIUS_SQUARED, () -> false);
+            assertTrue(preview.readFrame(frame -> assertArrayEquals(expected.getPixels(), frame.getPixels())));
+
+            preview.clear();
+            assertNull(preview.getKernel());
+            assertFalse(preview.readFrame(frame -> fail("cleared preview was read")));
+        }
+    }
+
+    /*
+    * Tests that a burst of requests publishes the last one and abandons the ones overtaken by it.
+    */
+    @Test
+    public void testBurstOfRequestsCoalescesToTheLatest() throws InterruptedException {
+        int requests = 200;
+        JuliaKernel last = new JuliaKernel(-0.4, 0.6 + (requests - 1) * 1e-4);
+        try (JuliaPreview preview = new JuliaPreview()) {
+            CountDownLatch lastPublished = new CountDownLatch(1);
+            preview.addListener(() -> {
+                if (last.equals(preview.getKernel())) {
+                    lastPublished.countDown();
+                }
+            });
+
+            for (int i = 0; i < requests; i++) {
+                preview.request(-0.4, 0.6 + i * 1e-4);
+            }
+            assertTrue(lastPublished.await(30, TimeUnit.SECONDS), "last request was never published");
+
+            // Every request was either published or abandoned, and most were abandoned
+            assertEquals(requests, preview.getRenderedCount() + preview.getDroppedCount());
+            assertTrue(preview.getRenderedCount() < requests);
+            assertTrue(preview.getLastRenderNanos() > 0);
+        }
+    }
+}
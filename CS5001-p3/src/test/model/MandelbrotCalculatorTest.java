@@ -0,0 +1,510 @@
+package model;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests that exercise {@link MandelbrotCalculator}.
+ */
+public class MandelbrotCalculatorTest {
+
+    /*
+    * Tests for calcMandelbrotSetParallel(): tiles must reproduce the sequential result exactly.
+    */
+    @Test
+    public void testParallelMatchesSequentialOnInitialView() {
+        MandelbrotCalculator calculator = new MandelbrotCalculator();
+        calculator.setFloatPrecision(false);
+
+        int[][] sequential = calculator.calcMandelbrotSet(203, 157,
+                MandelbrotCalculator.INITIAL_MIN_REAL, MandelbrotCalculator.INITIAL_MAX_REAL,
+                MandelbrotCalculator.INITIAL_MIN_IMAGINARY, MandelbrotCalculator.INITIAL_MAX_IMAGINARY,
+                MandelbrotCalculator.INITIAL_MAX_ITERATIONS, MandelbrotCalculator.DEFAULT_RADIUS_SQUARED);
+        int[][] parallel = calculator.calcMandelbrotSetParallel(203, 157,
+                MandelbrotCalculator.INITIAL_MIN_REAL, MandelbrotCalculator.INITIAL_MAX_REAL,
+                MandelbrotCalculator.INITIAL_MIN_IMAGINARY, MandelbrotCalculator.INITIAL_MAX_IMAGINARY,
+                MandelbrotCalculator.INITIAL_MAX_ITERATIONS, MandelbrotCalculator.DEFAULT_RADIUS_SQUARED);
+
+        // Odd resolution so that tiles do not divide the image evenly
+        assertArrayEquals(sequential, parallel);
+    }
+
+    @Test
+    public void testParallelMatchesSequentialOnZoomedView() {
+        MandelbrotCalculator calculator = new MandelbrotCalculator();
+        calculator.setFloatPrecision(false);
+
+        int[][] sequential = calculator.calcMandelbrotSet(120, 90,
+                -0.76, -0.72, 0.08, 0.12, 800, MandelbrotCalculator.DEFAULT_RADIUS_SQUARED);
+        int[][] parallel = calculator.calcMandelbrotSetParallel(120, 90,
+                -0.76, -0.72, 0.08, 0.12, 800, MandelbrotCalculator.DEFAULT_RADIUS_SQUARED);
+
+        assertArrayEquals(sequential, parallel);
+    }
+
+    /*
+    * Tests for cancellation: an abandoned render throws instead of returning partial data.
+    */
+    @Test
+    public void testCancelledRenderThrows() {
+        MandelbrotCalculator calculator = new MandelbrotCalculator();
+
+        assertThrows(CancellationException.class, () -> calculator.calcMandelbrotSetParallel(64, 64,
+                -2.0, 0.7, -1.25, 1.25, 50, 4.0, () -> true));
+        assertThrows(CancellationException.class, () -> calculator.calcMandelbrotSet(64, 64,
+                -2.0, 0.7, -1.25, 1.25, 50, 4.0, () -> true));
+    }
+
+    /*
+    * Tests for calcMandelbrotFrameProgressive(): coarse passes come first and the last one is the exact image.
+    */
+    @Test
+    public void testProgressivePassesEndWithExactImage() {
+        MandelbrotCalculator calculator = new MandelbrotCalculator();
+        calculator.setFloatPrecision(false);
+        IterationFrame frame = new IterationFrame(101, 77);
+        IterationFrame preview = new IterationFrame(101, 77);
+        List<int[][]> passes = new ArrayList<>();
+
+        calculator.calcMandelbrotFrameProgressive(frame, preview,
+                new MandelbrotState(-2.0, 0.7, -1.25, 1.25, 200), 4.0, () -> false,
+                pass -> passes.add(pass.toArray()));
+        int[][] sequential = calculator.calcMandelbrotSet(101, 77,
+                -2.0, 0.7, -1.25, 1.25, 200, 4.0);
+
+        assertEquals(4, passes.size());
+        assertArrayEquals(sequential, frame.toArray());
+        assertArrayEquals(sequential, passes.get(3));
+
+        // The 1/8 pass holds exact samples on its grid and repeats them across each block
+        int[][] coarse = passes.get(0);
+        assertEquals(sequential[16][40], coarse[16][40]);
+        assertEquals(coarse[16][40], coarse[23][47]);
+    }
+
+    /*
+    * Tests for calcMandelbrotFrame(): a reused frame is fully overwritten and matches the 2-D result.
+    */
+    @Test
+    public void testFrameRenderReusesBuffer() {
+        MandelbrotCalculator calculator = new MandelbrotCalculator();
+        IterationFrame frame = new IterationFrame(90, 60);
+        int[] pixels = frame.getPixels();
+
+        calculator.calcMandelbrotFrame(frame, new MandelbrotState(-0.76, -0.72, 0.08, 0.12, 400), 4.0, () -> false);
+        calculator.calcMandelbrotFrameSequential(frame, new MandelbrotState(-2.0, 0.7, -1.25, 1.25, 50), 4.0, () -> false);
+
+        assertSame(pixels, frame.getPixels());
+        assertArrayEquals(calculator.calcMandelbrotSet(90, 60, -2.0, 0.7, -1.25, 1.25, 50, 4.0), frame.toArray());
+    }
+
+    /*
+    * Tests for the cardioid and period-2 bulb shortcut: same image, fewer iterations, counted shortcuts.
+    */
+    @Test
+    public void testInteriorCheckKeepsImageAndCountsShortcuts() {
+        MandelbrotCalculator calculator = new MandelbrotCalculator();
+        calculator.setFloatPrecision(false);
+
+        calculator.setInteriorCheck(false);
+        int[][] exact = calculator.calcMandelbrotSet(160, 120,
+                -2.0, 0.7, -1.25, 1.25, 1000, 4.0);
+        assertEquals(0, calculator.getInteriorShortcutCount());
+
+        calculator.setInteriorCheck(true);
+        int[][] shortcut = calculator.calcMandelbrotSetParallel(160, 120,
+                -2.0, 0.7, -1.25, 1.25, 1000, 4.0);
+
+        assertArrayEquals(exact, shortcut);
+        long skipped = calculator.getInteriorShortcutCount();
+        assertTrue(skipped > 160 * 120 / 10); // the cardioid and bulb cover a large part of the initial view
+        calculator.resetInteriorShortcutCount();
+        assertEquals(0, calculator.getInteriorShortcutCount());
+
+        assertTrue(MandelbrotCalculator.isInMainCardioidOrBulb(0.0, 0.0));
+        assertTrue(MandelbrotCalculator.isInMainCardioidOrBulb(-1.0, 0.1));
+        assertFalse(MandelbrotCalculator.isInMainCardioidOrBulb(0.3, 0.0));
+    }
+
+    /*
+    * Tests for periodicity checking: cycling orbits bail out early and the image stays essentially the same.
+    */
+    @Test
+    public void testPeriodicityCheckingMatchesExactLoop() {
+        MandelbrotCalculator calculator = new MandelbrotCalculator();
+        calculator.setInteriorCheck(false); // let periodicity checking see the cardioid too
+
+        int[][] exact = calculator.calcMandelbrotSet(120, 100,
+                -0.8, -0.7, 0.05, 0.15, 3000, 4.0);
+        calculator.setPeriodicityChecking(true);
+        int[][] periodic = calculator.calcMandelbrotSet(120, 100,
+                -0.8, -0.7, 0.05, 0.15, 3000, 4.0);
+
+        assertTrue(calculator.getPeriodicityShortcutCount() > 0);
+        int differing = 0;
+        for (int y = 0; y < exact.length; y++) {
+            for (int x = 0; x < exact[y].length; x++) {
+                if (exact[y][x] != periodic[y][x]) {
+                    differing++;
+                }
+            }
+        }
+        assertTrue(differing <= 12, "pixels differing from the exact loop: " + differing);
+    }
+
+    /*
+    * Tests for the interleaved kernel: four points at a time must give exactly the scalar result.
+    */
+    @Test
+    public void testInterleavedKernelMatchesScalarKernel() {
+        MandelbrotCalculator calculator = new MandelbrotCalculator();
+        MandelbrotState state = new MandelbrotState(-1.8, 0.6, -1.1, 1.1, 700);
+        IterationFrame scalar = new IterationFrame(131, 97); // width not a multiple of the interleaved point count
+        IterationFrame lanes = new IterationFrame(131, 97);
+
+        calculator.setVectorKernel(false);
+        calculator.setInterleavedKernel(false);
+        calculator.calcMandelbrotFrame(scalar, state, 4.0, () -> false);
+        calculator.setInterleavedKernel(true);
+        calculator.calcMandelbrotFrame(lanes, state, 4.0, () -> false);
+
+        assertArrayEquals(scalar.getPixels(), lanes.getPixels());
+    }
+
+    /*
+    * Tests for the Vector API kernel, where the JVM has it: same counts, fractions and saved orbits as the scalar kernel.
+    */
+    @Test
+    public void testVectorKernelMatchesScalarKernel() {
+        Assumptions.assumeTrue(MandelbrotCalculator.isVectorKernelAvailable(), "jdk.incubator.vector not added");
+        MandelbrotCalculator calculator = new MandelbrotCalculator();
+        calculator.setFloatPrecision(false);
+        MandelbrotState state = new MandelbrotState(-1.8, 0.6, -1.1, 1.1, 700);
+        IterationFrame scalar = new IterationFrame(131, 97); // width not a multiple of any vector length
+        IterationFrame lanes = new IterationFrame(131, 97);
+        scalar.enableFractions();
+        lanes.enableFractions();
+
+        calculator.setInterleavedKernel(false);
+        calculator.calcMandelbrotFrame(scalar, state, 1e6, () -> false);
+        calculator.setInterleavedKernel(true);
+        assertTrue(calculator.isVectorKernel());
+        OrbitBuffer orbits = new OrbitBuffer();
+        calculator.calcMandelbrotFrame(lanes, state, 1e6, () -> false, orbits);
+
+        assertArrayEquals(scalar.getPixels(), lanes.getPixels());
+        assertArrayEquals(scalar.getFractions(), lanes.getFractions());
+
+        // Orbits saved by the vector lanes resume to the counts of a render from scratch at the higher cap
+        MandelbrotState high = new MandelbrotState(-1.8, 0.6, -1.1, 1.1, 2000);
+        calculator.calcMandelbrotFrameResumed(lanes, orbits, high, 1e6, () -> false);
+        assertArrayEquals(calculator.calcMandelbrotSet(131, 97, -1.8, 0.6, -1.1, 1.1, 2000, 1e6), lanes.toArray());
+    }
+
+    /*
+    * Tests for float precision: coarse views are iterated in floats and agree with doubles off the boundary,
+    * fine views fall back to doubles exactly, and float renders keep no orbits to resume.
+    */
+    @Test
+    public void testFloatPrecisionCrossChecksAgainstDoubles() {
+        MandelbrotCalculator floats = new MandelbrotCalculator();
+        MandelbrotCalculator doubles = new MandelbrotCalculator();
+        doubles.setFloatPrecision(false);
+        MandelbrotState coarse = FractalKernel.MANDELBROT.initialState(500);
+        Assumptions.assumeTrue(floats.usesFloatPrecision(coarse, 400, 400, 4.0), "no float lanes on this JVM");
+
+        IterationFrame floatFrame = new IterationFrame(400, 400);
+        IterationFrame doubleFrame = new IterationFrame(400, 400);
+        floats.calcMandelbrotFrame(floatFrame, coarse, 4.0, () -> false);
+        doubles.calcMandelbrotFrame(doubleFrame, coarse, 4.0, () -> false);
+        int[] f = floatFrame.getPixels();
+        int[] d = doubleFrame.getPixels();
+        int differing = 0;
+        for (int i = 0; i < f.length; i++) {
+            if (f[i] != d[i]) {
+                differing++;
+                // Only chaotic orbits near the boundary, which need many iterations, can tell the precisions apart
+                assertTrue(Math.min(f[i], d[i]) >= 10, "pixel " + i + ": " + f[i] + " vs " + d[i]);
+            }
+        }
+        assertTrue(differing <= f.length / 200, "pixels differing from doubles: " + differing);
+        // Lane groupings differ between the tiled and sequential paths, but every lane computes the same floats
+        IterationFrame sequential = new IterationFrame(400, 400);
+        floats.calcMandelbrotFrameSequential(sequential, coarse, 4.0, () -> false);
+        assertArrayEquals(f, sequential.getPixels());
+        OrbitBuffer orbits = new OrbitBuffer();
+        floats.calcMandelbrotFrame(floatFrame, coarse, 4.0, () -> false, orbits);
+        assertNull(orbits.getState());
+
+        // A 1e5 zoom is too fine for floats and renders exactly as in doubles
+        MandelbrotState fine = new MandelbrotState(-0.7435, -0.74349, 0.1314, 0.13141, 500);
+        assertFalse(floats.usesFloatPrecision(fine, 400, 400, 4.0));
+        floats.calcMandelbrotFrame(floatFrame, fine, 4.0, () -> false);
+        assertArrayEquals(doubles.calcMandelbrotSet(400, 400, -0.7435, -0.74349, 0.1314, 0.13141, 500, 4.0),
+                floatFrame.toArray());
+    }
+
+    /*
+    * Tests for calcMandelbrotFrameSubdivided(): same pixels as the brute-force render, most of them never evaluated,
+    * at sizes and caps where unguarded fills reached into the pinches between bulbs.
+    */
+    @Test
+    public void testSubdivisionMatchesBruteForceOnInitialView() {
+        MandelbrotCalculator calculator = new MandelbrotCalculator();
+        calculator.setFloatPrecision(false);
+        int[][] sizesAndCaps = {{800, 800, 50}, {800, 800, 100}, {800, 800, 500}, {300, 280, 50}, {300, 280, 100},
+                {300, 280, 500}, {200, 200, 500}};
+        for (int[] sizeAndCap : sizesAndCaps) {
+            int width = sizeAndCap[0];
+            int height = sizeAndCap[1];
+            MandelbrotState state = FractalKernel.MANDELBROT.initialState(sizeAndCap[2]);
+            IterationFrame bruteForce = new IterationFrame(width, height);
+            IterationFrame subdivided = new IterationFrame(width, height);
+
+            calculator.calcMandelbrotFrame(bruteForce, state, 4.0, () -> false);
+            calculator.resetSubdivisionFillCount();
+            calculator.calcMandelbrotFrameSubdivided(subdivided, state, 4.0, () -> false);
+
+            String view = width + " x " + height + " at cap " + state.maxIterations;
+            assertArrayEquals(bruteForce.getPixels(), subdivided.getPixels(), view);
+            long filled = calculator.getSubdivisionFillCount();
+            assertTrue(filled > width * height / 5, view + ": pixels filled without evaluation: " + filled);
+        }
+    }
+
+    /*
+    * Tests for calcMandelbrotFrameSubdivided() with other kernels: connected Julia sets and Multibrot sets are
+    * filled, the Burning Ship and Julia dust are evaluated in full, and all match the brute-force render.
+    */
+    @Test
+    public void testSubdivisionFillsOnlySimplyConnectedKernels() {
+        MandelbrotCalculator calculator = new MandelbrotCalculator();
+        FractalKernel[] filled = {new JuliaKernel(-0.123, 0.745), new MultibrotKernel(3)};
+        FractalKernel[] evaluated = {FractalKernel.BURNING_SHIP, new JuliaKernel(-0.8, 0.156)};
+        for (FractalKernel[] kernels : new FractalKernel[][] {filled, evaluated}) {
+            for (FractalKernel kernel : kernels) {
+                MandelbrotState state = kernel.initialState(300);
+                IterationFrame bruteForce = new IterationFrame(250, 200);
+                IterationFrame subdivided = new IterationFrame(250, 200);
+
+                calculator.calcMandelbrotFrame(bruteForce, state, 4.0, () -> false);
+                calculator.resetSubdivisionFillCount();
+                calculator.calcMandelbrotFrameSubdivided(subdivided, state, 4.0, () -> false);
+
+                assertArrayEquals(bruteForce.getPixels(), subdivided.getPixels(), kernel.getSpec());
+                assertEquals(kernels == filled, calculator.getSubdivisionFillCount() > 0, kernel.getSpec());
+            }
+        }
+    }
+
+    /*
+    * Tests for calcMandelbrotFrameResumed(): resuming saved orbits equals rendering at the higher cap from scratch.
+    */
+    @Test
+    public void testResumedOrbitsMatchFullRender() {
+        MandelbrotCalculator calculator = new MandelbrotCalculator();
+        calculator.setFloatPrecision(false);
+        MandelbrotState low = new MandelbrotState(-0.76, -0.72, 0.08, 0.12, 200);
+        MandelbrotState high = new MandelbrotState(-0.76, -0.72, 0.08, 0.12, 1500);
+        IterationFrame frame = new IterationFrame(97, 61);
+        OrbitBuffer orbits = new OrbitBuffer();
+
+        calculator.calcMandelbrotFrame(frame, low, 4.0, () -> false, orbits);
+        int unescapedAtLowCap = orbits.size();
+        assertEquals(low, orbits.getState());
+        calculator.calcMandelbrotFrameResumed(frame, orbits, high, 4.0, () -> false);
+
+        assertArrayEquals(calculator.calcMandelbrotSet(97, 61, -0.76, -0.72, 0.08, 0.12, 1500, 4.0), frame.toArray());
+        assertEquals(high, orbits.getState());
+        assertTrue(orbits.size() < unescapedAtLowCap); // orbits that escaped in the extra iterations are dropped
+    }
+
+    /*
+    * Tests for calcMandelbrotFrame() with orbits: a render cancelled part way through leaves nothing behind for the next capture.
+    */
+    @Test
+    public void testCancelledCaptureDoesNotLeakIntoNextCapture() {
+        // One thread, so that the cancelled tile and the next capture share its staging area
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            MandelbrotCalculator calculator = new MandelbrotCalculator(pool);
+            calculator.setFloatPrecision(false);
+            MandelbrotState cancelledView = new MandelbrotState(-0.2, 0.2, -0.2, 0.2, 200); // inside the set
+            int[] rows = {0};
+            assertThrows(CancellationException.class, () -> calculator.calcMandelbrotFrame(
+                    new IterationFrame(97, 61), cancelledView, 4.0, () -> ++rows[0] > 20, new OrbitBuffer()));
+
+            MandelbrotState low = new MandelbrotState(-0.76, -0.72, 0.08, 0.12, 200);
+            MandelbrotState high = new MandelbrotState(-0.76, -0.72, 0.08, 0.12, 1500);
+            IterationFrame frame = new IterationFrame(97, 61);
+            OrbitBuffer orbits = new OrbitBuffer();
+            calculator.calcMandelbrotFrame(frame, low, 4.0, () -> false, orbits);
+            int unescaped = 0;
+            for (int count : frame.getPixels()) {
+                if (count == 200) {
+                    unescaped++;
+                }
+            }
+            assertEquals(unescaped, orbits.size());
+            calculator.calcMandelbrotFrameResumed(frame, orbits, high, 4.0, () -> false);
+
+            assertArrayEquals(calculator.calcMandelbrotSet(97, 61, -0.76, -0.72, 0.08, 0.12, 1500, 4.0), frame.toArray());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /*
+    * Tests for getIterationCount(): shortcuts answer points without iterating, so their iterations are not counted.
+    */
+    @Test
+    public void testIterationCountExcludesShortcuts() {
+        MandelbrotCalculator calculator = new MandelbrotCalculator();
+        calculator.setFloatPrecision(false);
+        calculator.setInteriorCheck(false);
+        int[][] data = calculator.calcMandelbrotSet(64, 48, -2.0, 0.7, -1.25, 1.25, 200, 4.0);
+        long total = 0;
+        for (int[] row : data) {
+            for (int count : row) {
+                total += count;
+            }
+        }
+        assertEquals(total, calculator.getIterationCount());
+
+        calculator.resetIterationCount();
+        calculator.setInteriorCheck(true);
+        calculator.setWorkerCpuTiming(true);
+        calculator.calcMandelbrotSetParallel(64, 48, -2.0, 0.7, -1.25, 1.25, 200, 4.0);
+        assertEquals(total - 200 * calculator.getInteriorShortcutCount(), calculator.getIterationCount());
+        long cpu = 0;
+        for (long nanos : calculator.getWorkerCpuNanos().values()) {
+            cpu += nanos;
+        }
+        assertTrue(cpu > 0);
+
+        calculator.resetIterationCount();
+        calculator.setInteriorCheck(false);
+        calculator.setPeriodicityChecking(true);
+        calculator.calcMandelbrotSetParallel(64, 48, -2.0, 0.7, -1.25, 1.25, 200, 4.0);
+        assertTrue(calculator.getIterationCount() < total);
+    }
+
+    /*
+    * Tests for escape fractions: every renderer records the same ones, and they make the count continuous.
+    */
+    @Test
+    public void testFractionsAgreeAcrossRenderersAndSmoothCounts() {
+        MandelbrotCalculator calculator = new MandelbrotCalculator();
+        MandelbrotState state = new MandelbrotState(-0.8, -0.7, 0.05, 0.15, 400);
+        IterationFrame lanes = new IterationFrame(70, 50);
+        lanes.enableFractions();
+        calculator.calcMandelbrotFrame(lanes, state, 1e6, () -> false);
+
+        IterationFrame other = new IterationFrame(70, 50);
+        other.enableFractions();
+        calculator.setInterleavedKernel(false);
+        calculator.calcMandelbrotFrameSequential(other, state, 1e6, () -> false);
+        assertArrayEquals(lanes.getPixels(), other.getPixels());
+        assertArrayEquals(lanes.getFractions(), other.getFractions());
+        calculator.calcMandelbrotFrameSubdivided(other, state, 1e6, () -> false);
+        assertArrayEquals(lanes.getPixels(), other.getPixels());
+        assertArrayEquals(lanes.getFractions(), other.getFractions());
+
+        // Neighbouring continuous counts differ less than the whole counts do (exactly so for a large bailout)
+        double countSteps = 0;
+        double smoothSteps = 0;
+        for (int i = 1; i < lanes.getPixels().length; i++) {
+            int a = lanes.getPixels()[i - 1];
+            int b = lanes.getPixels()[i];
+            if (i % 70 == 0 || a == 400 || b == 400) {
+                continue;
+            }
+            assertTrue(lanes.getFractions()[i] >= 0 && lanes.getFractions()[i] <= 1);
+            countSteps += Math.abs(a - b);
+            smoothSteps += Math.abs((a - lanes.getFractions()[i - 1]) - (b - lanes.getFractions()[i]));
+        }
+        assertTrue(smoothSteps < countSteps, smoothSteps + " vs " + countSteps);
+    }
+
+    /*
+    * Tests for calcEdgeSamples(): only pixels unlike a neighbour are refined, and their middle sample is the pixel.
+    */
+    @Test
+    public void testEdgeSamplesRefineOnlyEdgePixels() {
+        MandelbrotCalculator calculator = new MandelbrotCalculator();
+        calculator.setFloatPrecision(false);
+        MandelbrotState state = new MandelbrotState(-2.0, 0.6, -1.3, 1.3, 100);
+        IterationFrame frame = new IterationFrame(200, 200);
+        calculator.calcMandelbrotFrame(frame, state, 4.0, () -> false);
+        EdgeSamples edges = calculator.calcEdgeSamples(frame, state, 4.0, 3, () -> false);
+
+        int[] pixels = frame.getPixels();
+        boolean[] refined = new boolean[pixels.length];
+        int[] samples = edges.getSamples().getPixels();
+        for (int k = 0; k < edges.size(); k++) {
+            int i = edges.getPixels()[k];
+            refined[i] = true;
+            assertEquals(pixels[i], samples[k * 9 + 4]);
+        }
+        for (int y = 0; y < 200; y++) {
+            for (int x = 0; x < 200; x++) {
+                int i = y * 200 + x;
+                boolean edge = (x > 0 && pixels[i - 1] != pixels[i]) || (x < 199 && pixels[i + 1] != pixels[i])
+                        || (y > 0 && pixels[i - 200] != pixels[i]) || (y < 199 && pixels[i + 200] != pixels[i]);
+                assertEquals(edge, refined[i], "pixel " + x + "," + y);
+            }
+        }
+        assertTrue(edges.size() > 0 && edges.size() < pixels.length / 2, edges.size() + " edge pixels");
+    }
+
+    /*
+    * Tests for fractal kernels: every renderer draws exactly what the kernel's own loop computes.
+    */
+    @Test
+    public void testKernelsMatchTheirOwnLoopOnEveryRenderer() {
+        MandelbrotCalculator calculator = new MandelbrotCalculator();
+        FractalKernel[] kernels = {new JuliaKernel(-0.8, 0.156), new MultibrotKernel(3), FractalKernel.BURNING_SHIP};
+        for (FractalKernel kernel : kernels) {
+            MandelbrotState state = kernel.initialState(150);
+            MandelbrotState low = kernel.initialState(60);
+            int[] expected = new int[90 * 70];
+            double realStep = (state.maxReal - state.minReal) / 90;
+            double imaginaryStep = (state.maxImag - state.minImag) / 70;
+            for (int y = 0; y < 70; y++) {
+                for (int x = 0; x < 90; x++) {
+                    expected[y * 90 + x] = kernel.escape(state.minReal + x * realStep,
+                            state.minImag + y * imaginaryStep, 150, 4.0);
+                }
+            }
+            IterationFrame frame = new IterationFrame(90, 70);
+            calculator.calcMandelbrotFrame(frame, state, 4.0, () -> false);
+            assertArrayEquals(expected, frame.getPixels(), kernel.getName());
+            calculator.calcMandelbrotFrameSequential(frame, state, 4.0, () -> false);
+            assertArrayEquals(expected, frame.getPixels(), kernel.getName());
+            calculator.calcMandelbrotFrameProgressive(frame, new IterationFrame(90, 70), state, 4.0, () -> false,
+                    pass -> { });
+            assertArrayEquals(expected, frame.getPixels(), kernel.getName());
+
+            // Orbits saved at a lower cap resume to the same counts, with fractions
+            OrbitBuffer orbits = new OrbitBuffer();
+            frame.enableFractions();
+            calculator.calcMandelbrotFrame(frame, low, 4.0, () -> false, orbits);
+            calculator.calcMandelbrotFrameResumed(frame, orbits, state, 4.0, () -> false);
+            assertArrayEquals(expected, frame.getPixels(), kernel.getName());
+            IterationFrame fresh = new IterationFrame(90, 70);
+            fresh.enableFractions();
+            calculator.calcMandelbrotFrame(fresh, state, 4.0, () -> false);
+            assertArrayEquals(fresh.getFractions(), frame.getFractions(), kernel.getName());
+
+            assertEquals(kernel, FractalKernel.parse(kernel.getSpec()));
+        }
+        assertSame(FractalKernel.MANDELBROT, FractalKernel.parse(" Mandelbrot "));
+        assertThrows(IllegalArgumentException.class, () -> FractalKernel.parse("julia:1"));
+        assertThrows(IllegalArgumentException.class, () -> FractalKernel.parse("multibrot:1"));
+    }
+}
@@ -0,0 +1,85 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CancellationException;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests that exercise {@link MappedIterationFile}.
+ */
+public class MappedIterationFileTest {
+
+    private static final MandelbrotState VIEW = new MandelbrotState(-2.0, 0.7, -1.25, 1.25, 150);
+
+    /*
+    * Tests for render(): tiles written through the mapping read back as the in-memory render.
+    */
+    @Test
+    public void testRenderedFileMatchesInMemoryRender() throws IOException {
+        Path path = Files.createTempFile("mandelbrot", ".iter");
+        try (MappedIterationFile file = MappedIterationFile.create(path, 150, 110, 32, VIEW, 4.0)) {
+            assertEquals(5 * 4, file.getTileCount()); // edge tiles are partial
+            file.render(new MandelbrotCalculator(), () -> false);
+            assertTrue(file.isComplete());
+            assertRowsMatch(file);
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    /*
+    * Tests for resuming: an interrupted render keeps its finished tiles and completes after reopening.
+    */
+    @Test
+    public void testInterruptedRenderResumesFromFile() throws IOException {
+        Path path = Files.createTempFile("mandelbrot", ".iter");
+        try {
+            try (MappedIterationFile file = MappedIterationFile.create(path, 150, 110, 32, VIEW, 4.0)) {
+                // Give up once the first row of tiles is on disk
+                assertThrows(CancellationException.class, () -> file.render(new MandelbrotCalculator(),
+                        () -> file.getCompletedTileCount() > 0));
+            }
+
+            try (MappedIterationFile file = MappedIterationFile.open(path)) {
+                assertEquals(VIEW, file.getState());
+                assertEquals(4.0, file.getRadiusSquared());
+                int completed = file.getCompletedTileCount();
+                assertTrue(completed > 0 && completed < file.getTileCount(), "completed tiles: " + completed);
+
+                file.render(new MandelbrotCalculator(), () -> false);
+                assertTrue(file.isComplete());
+                assertRowsMatch(file);
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    /*
+    * Tests for open(): files that are not iteration files are rejected.
+    */
+    @Test
+    public void testOpenRejectsOtherFiles() throws IOException {
+        Path path = Files.createTempFile("mandelbrot", ".iter");
+        try {
+            Files.write(path, new byte[] {1, 2, 3});
+            assertThrows(IOException.class, () -> MappedIterationFile.open(path));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    private static void assertRowsMatch(MappedIterationFile file) throws IOException {
+        IterationFrame frame = new IterationFrame(150, 110);
+        new MandelbrotCalculator().calcMandelbrotFrame(frame, VIEW, 4.0, () -> false);
+        int[][] expected = frame.toArray();
+        int[] row = new int[150];
+        for (int y = 0; y < 110; y++) {
+            file.readRow(y, row);
+            assertArrayEquals(expected[y], row, "row " + y);
+        }
+    }
+}
@@ -4,14 +4,21 @@ import model.ModelMandelbrot;
 import model.MandelbrotCalculator;
 import model.ModelListener;
 
+import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Unit tests that exercise {@link ModelMandelbrot}.
@@ -241,4 +248,404 @@ public class ModelMandelbrotTest {
         model.reset();
         assertEquals(4, listener.count); // count + 1 = 4
     }
+
+    private static MandelbrotState requestedState(ModelMandelbrot model) {
+        return new MandelbrotState(model.getMinReal(), model.getMaxReal(), model.getMinImag(), model.getMaxImag(),
+                model.getMaxIterations(), model.getKernel());
+    }
+
+    /*
+    * Tests for asynchronous recalculation: superseded renders are dropped and only the latest view is published.
+    */
+    @Test
+    public void testAsyncRecalculationPublishesLatestView() throws Exception {
+        ModelMandelbrot model = new ModelMandelbrot(160, 120);
+        model.setFloatPrecision(false);
+        List<MandelbrotState> published = Collections.synchronizedList(new ArrayList<>());
+        model.addListener(() -> published.add(model.getFrameState()));
+        model.setAsynchronousRendering(true);
+
+        List<MandelbrotState> requested = new ArrayList<>();
+        model.setMaxIterations(2000);
+        requested.add(requestedState(model));
+        model.setViewWindow(-1.0, 0.5, -0.5, 0.5);
+        requested.add(requestedState(model));
+        model.pan(0.1, 0.05);
+        requested.add(requestedState(model));
+        model.recalculateAsync().get(); // latest request; earlier ones are cancelled or discarded
+
+        assertFalse(model.isRenderPending());
+        assertEquals(requested.get(2), model.getFrameState());
+        assertFalse(published.isEmpty());
+        assertEquals(requested.get(2), published.get(published.size() - 1));
+        // Superseded views may be published before a newer one, never after it
+        int last = -1;
+        for (MandelbrotState state : published) {
+            int order = requested.indexOf(state);
+            assertTrue(order >= last, "view " + order + " published after view " + last);
+            last = order;
+        }
+        assertEquals(2000, model.getFrameIterations());
+
+        int[][] expected = new MandelbrotCalculator().calcMandelbrotSet(160, 120,
+                model.getMinReal(), model.getMaxReal(), model.getMinImag(), model.getMaxImag(),
+                model.getMaxIterations(), model.getRadiusSquared());
+        assertArrayEquals(expected, model.getData());
+    }
+
+    /*
+    * Tests for double buffering: renders alternate between two frames and getData() mirrors the front one.
+    */
+    @Test
+    public void testFramesAreDoubleBuffered() {
+        ModelMandelbrot model = new ModelMandelbrot(80, 60);
+        IterationFrame first = model.getFrame();
+
+        model.setMaxIterations(120);
+        IterationFrame second = model.getFrame();
+        model.setMaxIterations(140);
+
+        assertNotSame(first, second);
+        assertSame(first, model.getFrame()); // the old front frame is recycled
+        assertArrayEquals(model.getFrame().toArray(), model.getData());
+        assertEquals(80, model.getFrame().getWidth());
+        assertEquals(60, model.getFrame().getHeight());
+    }
+
+    /*
+    * Tests for the render cache: undo, redo and reset reuse frames instead of recomputing them.
+    */
+    @Test
+    public void testUndoRedoAndResetHitRenderCache() {
+        ModelMandelbrot model = new ModelMandelbrot(90, 70);
+        RenderCache cache = model.getRenderCache();
+        int[][] initial = model.getData();
+        assertEquals(1, cache.getMissCount());
+
+        model.setViewWindow(-1.0, 0.0, -0.5, 0.5);
+        int[][] zoomed = model.getData();
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0, cache.getHitCount());
+
+        model.undo();
+        assertArrayEquals(initial, model.getData());
+        model.redo();
+        assertArrayEquals(zoomed, model.getData());
+        model.reset();
+        assertArrayEquals(initial, model.getData());
+
+        assertEquals(3, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, cache.size());
+        assertEquals(2L * 4 * 90 * 70, cache.getSizeBytes());
+    }
+
+    @Test
+    public void testRenderCacheEvictsLeastRecentlyUsedWithinBudget() {
+        RenderCache cache = new RenderCache(3L * 4 * 10 * 10); // room for three 10x10 frames
+        IterationFrame frame = new IterationFrame(10, 10);
+        MandelbrotState a = new MandelbrotState(-2, 1, -1, 1, 50);
+        MandelbrotState b = new MandelbrotState(-1, 1, -1, 1, 50);
+        MandelbrotState c = new MandelbrotState(-1, 0, -1, 1, 50);
+        MandelbrotState d = new MandelbrotState(-1, 0, -1, 1, 60);
+
+        cache.store(a, frame);
+        cache.store(b, frame);
+        cache.store(c, frame);
+        assertTrue(cache.lookup(a, frame)); // a becomes most recently used
+        cache.store(d, frame);
+
+        assertEquals(3, cache.size());
+        assertFalse(cache.lookup(b, frame)); // b was the least recently used
+        assertTrue(cache.lookup(new MandelbrotState(-2, 1, -1, 1, 50), frame));
+        assertFalse(cache.lookup(a, new IterationFrame(20, 5))); // different frame size never matches
+        assertFalse(cache.lookup(a, RenderCache.Mode.SUBDIVIDED, frame)); // nor does another render mode
+    }
+
+    /*
+    * Tests for the render mode in the cache: frames rendered by subdivision do not answer for exact renders.
+    */
+    @Test
+    public void testRenderCacheSeparatesRenderModes() {
+        ModelMandelbrot model = new ModelMandelbrot(90, 70);
+        RenderCache cache = model.getRenderCache();
+        int[][] initial = model.getData();
+
+        model.setSubdivisionRendering(true);
+        model.setViewWindow(-1.0, 0.0, -0.5, 0.5);
+        model.undo(); // the initial view was rendered exactly, so subdivision renders it again
+        assertEquals(0, cache.getHitCount());
+        assertEquals(3, cache.size());
+
+        model.setSubdivisionRendering(false);
+        model.redo();
+        assertEquals(0, cache.getHitCount());
+        model.undo();
+        assertEquals(1, cache.getHitCount());
+        assertArrayEquals(initial, model.getData());
+    }
+
+    /*
+    * Tests for the render cache: frames produced before the deep zoom threshold or periodicity checking changed are not reused.
+    */
+    @Test
+    public void testRenderCacheForgetsFramesOfOtherEngines() {
+        ModelMandelbrot model = new ModelMandelbrot(64, 48);
+        RenderCache cache = model.getRenderCache();
+        model.setDeepZoomMagnification(1e6);
+        model.setViewWindow(-0.7436438870 - 1.5e-7, -0.7436438870 + 1.5e-7,
+                0.1318259042 - 1.1e-7, 0.1318259042 + 1.1e-7); // magnification 1e7, rendered by perturbation
+        assertTrue(model.isDeepZoomActive());
+        model.setMaxIterations(500);
+
+        model.setDeepZoomMagnification(1e13);
+        assertFalse(model.isDeepZoomActive());
+        assertEquals(0, cache.size());
+        model.undo(); // same window at the old cap, now rendered in doubles
+        model.redo(); // the front frame came from perturbation, so the cap change is not a clamp
+        assertEquals(0, cache.getHitCount());
+        int[][] doubles = new MandelbrotCalculator().calcMandelbrotSet(64, 48, model.getMinReal(),
+                model.getMaxReal(), model.getMinImag(), model.getMaxImag(), 500, model.getRadiusSquared());
+        assertArrayEquals(doubles, model.getData());
+
+        model.setPeriodicityChecking(true);
+        assertTrue(model.isPeriodicityChecking());
+        assertEquals(0, cache.size());
+        model.undo();
+        assertEquals(0, cache.getHitCount());
+    }
+
+    /*
+    * Tests for incremental panning: a pixel-aligned pan shifts the old frame and renders only the exposed strips.
+    */
+    @Test
+    public void testPixelAlignedPanReusesPreviousFrame() {
+        ModelMandelbrot model = new ModelMandelbrot(100, 80);
+        model.setRenderCache(null);
+        model.setMaxIterations(300);
+        int[][] before = model.getData();
+        double realPerPixel = (model.getMaxReal() - model.getMinReal()) / 100;
+        double imagPerPixel = (model.getMaxImag() - model.getMinImag()) / 80;
+
+        model.pan(12 * realPerPixel, -7 * imagPerPixel); // view moves 12 pixels right and 7 up
+        int[][] after = model.getData();
+        int[][] fresh = new MandelbrotCalculator().calcMandelbrotSet(100, 80,
+                model.getMinReal(), model.getMaxReal(), model.getMinImag(), model.getMaxImag(), 300, 4.0);
+
+        for (int y = 0; y < 80; y++) {
+            for (int x = 0; x < 100; x++) {
+                if (y >= 7 && x < 88) {
+                    assertEquals(before[y - 7][x + 12], after[y][x]); // reused from the old frame
+                } else {
+                    assertEquals(fresh[y][x], after[y][x]); // newly exposed strip
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testUnalignedPanFallsBackToFullRender() {
+        ModelMandelbrot model = new ModelMandelbrot(100, 80);
+        model.setFloatPrecision(false);
+        model.pan(0.0123456, 0.0333);
+
+        int[][] fresh = new MandelbrotCalculator().calcMandelbrotSet(100, 80,
+                model.getMinReal(), model.getMaxReal(), model.getMinImag(), model.getMaxImag(),
+                model.getMaxIterations(), 4.0);
+        assertArrayEquals(fresh, model.getData());
+    }
+
+    /*
+    * Tests for iteration cap changes on the same view: raising resumes orbits, lowering clamps, both stay exact.
+    */
+    @Test
+    public void testIterationCapChangesMatchFullRenders() {
+        ModelMandelbrot model = new ModelMandelbrot(90, 70);
+        model.setFloatPrecision(false); // a view this coarse would otherwise be rendered in floats, without orbits
+        model.setRenderCache(null);
+        model.setViewWindow(-0.8, -0.7, 0.05, 0.15);
+        MandelbrotCalculator reference = new MandelbrotCalculator();
+
+        for (int cap : new int[] {100, 700, 2500, 300, 900}) {
+            model.setMaxIterations(cap);
+            assertArrayEquals(reference.calcMandelbrotSet(90, 70, -0.8, -0.7, 0.05, 0.15, cap, 4.0),
+                    model.getData(), "cap " + cap);
+        }
+    }
+
+    /*
+    * Tests for float precision in the model: coarse views match the calculator's float render at every cap,
+    * raising the cap renders them again, and switching floats off gives the double render.
+    */
+    @Test
+    public void testFloatViewsMatchFloatRendersAtEveryCap() {
+        ModelMandelbrot model = new ModelMandelbrot(90, 70);
+        model.setRenderCache(null);
+        model.setViewWindow(-0.8, -0.7, 0.05, 0.15);
+        MandelbrotCalculator reference = new MandelbrotCalculator();
+        Assumptions.assumeTrue(reference.usesFloatPrecision(new MandelbrotState(-0.8, -0.7, 0.05, 0.15, 100), 90, 70, 4.0),
+                "no float lanes on this JVM");
+        assertTrue(model.isFloatPrecision());
+
+        IterationFrame expected = new IterationFrame(90, 70);
+        for (int cap : new int[] {100, 700, 2500, 300, 900}) {
+            model.setMaxIterations(cap);
+            reference.calcMandelbrotFrame(expected, new MandelbrotState(-0.8, -0.7, 0.05, 0.15, cap), 4.0, () -> false);
+            assertArrayEquals(expected.toArray(), model.getData(), "cap " + cap);
+        }
+
+        model.setFloatPrecision(false);
+        model.recalculate();
+        assertArrayEquals(reference.calcMandelbrotSet(90, 70, -0.8, -0.7, 0.05, 0.15, 900, 4.0), model.getData());
+    }
+
+    /*
+    * Tests for render metrics: every published render is measured, and reused pixels are reported as skipped.
+    */
+    @Test
+    public void testMetricsListenerReceivesEachRender() throws Exception {
+        ModelMandelbrot model = new ModelMandelbrot(80, 60);
+        List<RenderMetrics> renders = new ArrayList<>();
+        model.addMetricsListener(renders::add);
+        RenderStatistics statistics = RenderStatistics.register(model);
+
+        model.setViewWindow(-0.8, -0.7, 0.05, 0.15);
+        RenderMetrics full = renders.get(0);
+        assertEquals(RenderMetrics.RenderPath.PARALLEL, full.getPath());
+        long pixels = 0;
+        long iterations = 0;
+        for (int count = 0; count <= full.getState().maxIterations; count++) {
+            pixels += full.getPixelCount(count);
+            iterations += (long) count * full.getPixelCount(count);
+        }
+        assertEquals(80 * 60, pixels);
+        assertEquals(iterations - (long) full.getState().maxIterations * full.getShortcutPixels(), full.getIterations());
+        assertTrue(full.getWallNanos() > 0);
+
+        model.undo(); // cached view: nothing is computed
+        RenderMetrics cached = renders.get(1);
+        assertEquals(RenderMetrics.RenderPath.CACHE, cached.getPath());
+        assertEquals(0, cached.getIterations());
+        assertEquals(80 * 60, cached.getSkippedPixels());
+
+        assertEquals(2L, ManagementFactory.getPlatformMBeanServer()
+                .getAttribute(statistics.getObjectName(), "RenderCount"));
+        assertEquals(full.getIterations(), statistics.getTotalIterations());
+        statistics.unregister();
+        model.redo();
+        assertEquals(2, statistics.getRenderCount());
+        assertEquals(3, renders.size());
+    }
+
+    /*
+    * Tests for fractional counts: frames reused after cap changes and pans keep fractions matching a fresh render.
+    */
+    @Test
+    public void testFractionalCountsSurviveFrameReuse() {
+        ModelMandelbrot model = new ModelMandelbrot(60, 40);
+        model.setViewWindow(-0.8, -0.7, 0.05, 0.15);
+        model.setFractionalCounts(true);
+        MandelbrotCalculator reference = new MandelbrotCalculator();
+
+        for (int cap : new int[] {200, 900, 300}) {
+            model.setMaxIterations(cap);
+            IterationFrame fresh = new IterationFrame(60, 40);
+            fresh.enableFractions();
+            reference.calcMandelbrotFrame(fresh, new MandelbrotState(-0.8, -0.7, 0.05, 0.15, cap), 4.0, () -> false);
+            assertArrayEquals(fresh.getPixels(), model.getFrame().getPixels(), "cap " + cap);
+            assertArrayEquals(fresh.getFractions(), model.getFrame().getFractions(), "cap " + cap);
+        }
+    }
+
+    /*
+    * Tests for setKernel(): the view switches fractal, is saved with it, and undo returns to the Mandelbrot set.
+    */
+    @Test
+    public void testKernelIsPartOfTheViewState() throws Exception {
+        ModelMandelbrot model = new ModelMandelbrot(60, 40);
+        int[] mandelbrot = model.getFrame().getPixels().clone();
+        JuliaKernel julia = new JuliaKernel(-0.4, 0.6);
+        model.setKernel(julia);
+        assertSame(julia, model.getKernel());
+
+        MandelbrotState state = julia.initialState(model.getMaxIterations());
+        assertEquals(state.minReal, model.getMinReal(), EPSILON);
+        IterationFrame expected = new IterationFrame(60, 40);
+        new MandelbrotCalculator().calcMandelbrotFrame(expected, state, model.getRadiusSquared(), () -> false);
+        assertArrayEquals(expected.getPixels(), model.getFrame().getPixels());
+
+        // Raising the cap resumes Julia orbits, not Mandelbrot ones
+        model.setMaxIterations(model.getMaxIterations() + 100);
+        new MandelbrotCalculator().calcMandelbrotFrame(expected, julia.initialState(model.getMaxIterations()),
+                model.getRadiusSquared(), () -> false);
+        assertArrayEquals(expected.getPixels(), model.getFrame().getPixels());
+
+        Path tempFile = Files.createTempFile("mandelbrot-kernel", ".props");
+        try {
+            model.saveToFile(tempFile.toFile());
+            ModelMandelbrot reloaded = new ModelMandelbrot(60, 40);
+            reloaded.loadFromFile(tempFile.toFile());
+            assertEquals(julia, reloaded.getKernel());
+            assertArrayEquals(model.getFrame().getPixels(), reloaded.getFrame().getPixels());
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+
+        model.undo();
+        model.undo();
+        assertSame(FractalKernel.MANDELBROT, model.getKernel());
+        assertArrayEquals(mandelbrot, model.getFrame().getPixels());
+    }
+
+    /*
+    * Tests for zoomToPixels() past the precision of doubles: the window is kept by its exact centre, rendered by
+    * perturbation around it, panned, saved and loaded without losing it.
+    */
+    @Test
+    public void testZoomPastDoublePrecisionKeepsTheExactCentre() throws Exception {
+        ModelMandelbrot model = new ModelMandelbrot(64, 48);
+        model.setMaxIterations(500);
+        model.setViewWindow(-0.1, 0.1, 0.925, 1.075); // around c = i, on the boundary at every depth
+        int zooms = 0;
+        while (model.getMagnification() < 1e17) {
+            model.zoomToPixels(24, 18, 16, 12); // the middle quarter of each axis
+            zooms++;
+            assertTrue(zooms < 40);
+        }
+        assertTrue(model.isDeepZoomActive());
+        assertEquals(0, BigDecimal.ONE.compareTo(model.getCentreImag()));
+        // The double bounds of the imaginary axis have collapsed; the span has not
+        assertEquals(model.getMinImag(), model.getMaxImag());
+        assertTrue(model.getImagSpan() > 0);
+
+        int[] pixels = model.getFrame().getPixels();
+        assertTrue(Arrays.stream(pixels).distinct().count() > 1);
+        MandelbrotState state = new MandelbrotState(model.getCentreReal(), model.getCentreImag(),
+                model.getRealSpan(), model.getImagSpan(), model.getMaxIterations(), FractalKernel.MANDELBROT);
+        IterationFrame expected = new IterationFrame(64, 48);
+        new DeepZoomCalculator().calcMandelbrotFrame(expected, state, model.getRadiusSquared(), () -> false);
+        assertArrayEquals(expected.getPixels(), pixels);
+
+        double realPerPixel = model.getRealSpan() / 64;
+        model.pan(-3 * realPerPixel, 0);
+        assertEquals(0, new BigDecimal(-3 * realPerPixel).compareTo(model.getCentreReal()));
+
+        Path tempFile = Files.createTempFile("mandelbrot-deep", ".props");
+        try {
+            model.saveToFile(tempFile.toFile());
+            ModelMandelbrot reloaded = new ModelMandelbrot(64, 48);
+            reloaded.loadFromFile(tempFile.toFile());
+            assertEquals(0, model.getCentreReal().compareTo(reloaded.getCentreReal()));
+            assertEquals(0, model.getCentreImag().compareTo(reloaded.getCentreImag()));
+            assertEquals(model.getRealSpan(), reloaded.getRealSpan());
+            assertEquals(model.getImagSpan(), reloaded.getImagSpan());
+            assertArrayEquals(model.getFrame().getPixels(), reloaded.getFrame().getPixels());
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+
+        model.undo();
+        assertEquals(0, BigDecimal.ZERO.compareTo(model.getCentreReal()));
+        assertArrayEquals(pixels, model.getFrame().getPixels());
+    }
 }
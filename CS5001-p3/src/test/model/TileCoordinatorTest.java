@@ -0,0 +1,207 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Unit tests that exercise {@link TileCoordinator} with {@link TileWorker}s on localhost.
+ */
+public class TileCoordinatorTest {
+
+    private static InetSocketAddress local(int port) {
+        return new InetSocketAddress("localhost", port);
+    }
+
+    /*
+    * Tests that tiles rendered by several workers reassemble into the image the calculator renders locally.
+    */
+    @Test
+    public void testWorkersRenderTheSameImageAsTheCalculator() throws IOException {
+        MandelbrotState state = new MandelbrotState(-1.8, 0.6, -1.1, 1.1, 300);
+        IterationFrame expected = new IterationFrame(203, 157);
+        expected.enableFractions();
+        new MandelbrotCalculator().calcMandelbrotFrame(expected, state, 4.0, () -> false);
+
+        List<TileWorker> workers = new ArrayList<>();
+        try {
+            List<InetSocketAddress> addresses = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                TileWorker worker = new TileWorker(0).start();
+                workers.add(worker);
+                addresses.add(local(worker.getPort()));
+            }
+            TileCoordinator coordinator = new TileCoordinator(addresses);
+            coordinator.setTileSize(32); // tiles at the right and bottom edges are partial
+
+            IterationFrame frame = new IterationFrame(203, 157);
+            frame.enableFractions();
+            coordinator.render(frame, state, 4.0, () -> false);
+
+            assertArrayEquals(expected.getPixels(), frame.getPixels());
+            assertArrayEquals(expected.getFractions(), frame.getFractions());
+            long tiles = coordinator.getTilesPerWorker().values().stream().mapToLong(Long::longValue).sum();
+            assertEquals(7 * 5, tiles);
+            assertEquals(tiles, workers.stream().mapToLong(TileWorker::getTilesRendered).sum());
+            assertEquals(0, coordinator.getRetriedTileCount());
+
+            // Part of an image, e.g. one stripe of a poster
+            IterationFrame stripe = new IterationFrame(203, 40);
+            coordinator.renderTile(stripe, 0, 100, 203, 157, state, 4.0, () -> false);
+            for (int y = 0; y < 40; y++) {
+                for (int x = 0; x < 203; x++) {
+                    assertEquals(expected.get(x, 100 + y), stripe.get(x, y));
+                }
+            }
+        } finally {
+            workers.forEach(TileWorker::close);
+        }
+    }
+
+    /*
+    * Tests that the tiles of a worker that dies mid-render, and of one that cannot be reached, are rendered by the others.
+    */
+    @Test
+    public void testTilesOfLostWorkersAreRetried() throws IOException {
+        MandelbrotState state = new MandelbrotState(-2.0, 0.7, -1.25, 1.25, 100);
+        IterationFrame expected = new IterationFrame(120, 90);
+        new MandelbrotCalculator().calcMandelbrotFrame(expected, state, 4.0, () -> false);
+
+        int unreachable;
+        try (ServerSocket closed = new ServerSocket(0)) {
+            unreachable = closed.getLocalPort();
+        }
+        // Accepts a connection, reads the start of a request and hangs up
+        ServerSocket dying = new ServerSocket(0);
+        Thread dier = new Thread(() -> {
+            try (Socket socket = dying.accept()) {
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                in.readInt();
+                in.readInt();
+            } catch (IOException e) {
+                // Test over
+            }
+        });
+        dier.setDaemon(true);
+        dier.start();
+
+        try (TileWorker worker = new TileWorker(0).start()) {
+            TileCoordinator coordinator = new TileCoordinator(
+                    List.of(local(unreachable), local(dying.getLocalPort()), local(worker.getPort())));
+            coordinator.setTileSize(16);
+            coordinator.setTimeoutMillis(5_000);
+
+            IterationFrame frame = new IterationFrame(120, 90);
+            coordinator.render(frame, state, 4.0, () -> false);
+
+            assertArrayEquals(expected.getPixels(), frame.getPixels());
+            assertEquals(2, coordinator.getLostWorkerCount());
+            assertTrue(coordinator.getRetriedTileCount() >= 1);
+            assertEquals(8 * 6, coordinator.getTilesPerWorker().get(local(worker.getPort())));
+        } finally {
+            dying.close();
+        }
+    }
+
+    /*
+    * Tests that a worker whose tile takes longer than the timeout is kept alive by its heartbeats.
+    */
+    @Test
+    public void testSlowTilesOutlastTheTimeout() throws IOException {
+        MandelbrotState state = new MandelbrotState(-2.0, 0.7, -1.25, 1.25, 100);
+        IterationFrame expected = new IterationFrame(60, 45);
+        new MandelbrotCalculator().calcMandelbrotFrame(expected, state, 4.0, () -> false);
+
+        MandelbrotCalculator slow = new MandelbrotCalculator() {
+            @Override
+            public void calcMandelbrotTile(IterationFrame tile, int firstColumn, int firstRow, int imageWidth,
+                                           int imageHeight, MandelbrotState state, double radiusSquared,
+                                           BooleanSupplier cancelled) {
+                try {
+                    Thread.sleep(2_500);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.calcMandelbrotTile(tile, firstColumn, firstRow, imageWidth, imageHeight, state,
+                        radiusSquared, cancelled);
+            }
+        };
+        try (TileWorker worker = new TileWorker(0, slow).start()) {
+            TileCoordinator coordinator = new TileCoordinator(List.of(local(worker.getPort())));
+            coordinator.setTimeoutMillis(1_000);
+
+            IterationFrame frame = new IterationFrame(60, 45);
+            coordinator.render(frame, state, 4.0, () -> false);
+
+            assertArrayEquals(expected.getPixels(), frame.getPixels());
+            assertEquals(0, coordinator.getLostWorkerCount());
+            assertEquals(0, coordinator.getRetriedTileCount());
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> new TileCoordinator(List.of(local(1))).setTimeoutMillis(TileProtocol.HEARTBEAT_MILLIS));
+    }
+
+    /** Kernel whose specification workers cannot parse. */
+    private static final class UnknownKernel implements FractalKernel {
+        @Override
+        public String getName() {
+            return "Unknown";
+        }
+
+        @Override
+        public String getSpec() {
+            return "multibrot:99";
+        }
+
+        @Override
+        public int escape(double x, double y, int maxIterations, double radiusSquared) {
+            return FractalKernel.MANDELBROT.escape(x, y, maxIterations, radiusSquared);
+        }
+
+        @Override
+        public int resume(double x, double y, double zr, double zi, int iterations, int maxIterations,
+                          double radiusSquared, double[] z) {
+            return FractalKernel.MANDELBROT.resume(x, y, zr, zi, iterations, maxIterations, radiusSquared, z);
+        }
+
+        @Override
+        public MandelbrotState initialState(int maxIterations) {
+            return FractalKernel.MANDELBROT.initialState(maxIterations);
+        }
+    }
+
+    /*
+    * Tests that a render fails once every worker is lost, and that workers reject views they cannot render.
+    */
+    @Test
+    public void testRenderFailsWithoutWorkers() throws IOException {
+        MandelbrotState state = new MandelbrotState(-2.0, 0.7, -1.25, 1.25, 100);
+        int unreachable;
+        try (ServerSocket closed = new ServerSocket(0)) {
+            unreachable = closed.getLocalPort();
+        }
+        TileCoordinator nobody = new TileCoordinator(List.of(local(unreachable)));
+        assertThrows(IOException.class, () -> nobody.render(new IterationFrame(40, 30), state, 4.0, () -> false));
+
+        try (TileWorker worker = new TileWorker(0).start()) {
+            TileCoordinator coordinator = new TileCoordinator(List.of(local(worker.getPort())));
+            MandelbrotState invalid = new MandelbrotState(-2.0, 0.7, -1.25, 1.25, 100, new UnknownKernel());
+            IOException rejected = assertThrows(IOException.class,
+                    () -> coordinator.render(new IterationFrame(40, 30), invalid, 4.0, () -> false));
+            assertTrue(rejected.getMessage().contains("rejected"), rejected.getMessage());
+        }
+
+        assertEquals(List.of(InetSocketAddress.createUnresolved("node1", 7878),
+                        InetSocketAddress.createUnresolved("node2", 7879)),
+                TileCoordinator.parseWorkers("node1:7878, node2:7879"));
+        assertThrows(IllegalArgumentException.class, () -> TileCoordinator.parseWorkers("node1"));
+    }
+}
@@ -0,0 +1,91 @@
+package model;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests that exercise {@link ZoomAnimation}.
+ */
+public class ZoomAnimationTest {
+
+    private static final MandelbrotState START = new MandelbrotState(-2.0, 0.7, -1.25, 1.25, 50);
+    private static final MandelbrotState END = new MandelbrotState(-0.75, -0.73, 0.1, 0.12, 450);
+
+    /*
+    * Tests for interpolate(): keyframes at both ends and a geometric zoom in between.
+    */
+    @Test
+    public void testInterpolationIsGeometric() {
+        assertEquals(START, ZoomAnimation.interpolate(START, END, ZoomAnimation.Easing.LINEAR, 0));
+        assertEquals(END, ZoomAnimation.interpolate(START, END, ZoomAnimation.Easing.SMOOTH, 1));
+
+        MandelbrotState middle = ZoomAnimation.interpolate(START, END, ZoomAnimation.Easing.LINEAR, 0.5);
+        assertEquals(Math.sqrt(2.7 * 0.02), middle.maxReal - middle.minReal, 1e-12);
+        assertEquals(250, middle.maxIterations);
+        // Smoothstep is slower than linear in the first half
+        MandelbrotState eased = ZoomAnimation.interpolate(START, END, ZoomAnimation.Easing.SMOOTH, 0.25);
+        MandelbrotState linear = ZoomAnimation.interpolate(START, END, ZoomAnimation.Easing.LINEAR, 0.25);
+        assertTrue(eased.maxReal - eased.minReal > linear.maxReal - linear.minReal);
+    }
+
+    /*
+    * Tests for render(): frames arrive in order, match single renders, and later waves get previews first.
+    */
+    @Test
+    public void testFramesMatchSingleRendersWithPreviews() {
+        MandelbrotCalculator calculator = new MandelbrotCalculator();
+        calculator.setFloatPrecision(false);
+        ForkJoinPool pool = new ForkJoinPool(3);
+        List<Integer> frames = new ArrayList<>();
+        List<Integer> previews = new ArrayList<>();
+        try {
+            ZoomAnimation.Stats stats = new ZoomAnimation(calculator, pool).render(START, END,
+                    ZoomAnimation.Easing.LINEAR, 7, 40, 30, 4.0, new ZoomAnimation.FrameSink() {
+                        @Override
+                        public void preview(int index, MandelbrotState state, IterationFrame preview) {
+                            assertFalse(frames.contains(index));
+                            previews.add(index);
+                        }
+
+                        @Override
+                        public void frame(int index, MandelbrotState state, IterationFrame frame) {
+                            assertEquals(ZoomAnimation.interpolate(START, END, ZoomAnimation.Easing.LINEAR, index / 6.0), state);
+                            assertArrayEquals(calculator.calcMandelbrotSet(40, 30, state.minReal, state.maxReal,
+                                    state.minImag, state.maxImag, state.maxIterations, 4.0), frame.toArray());
+                            frames.add(index);
+                        }
+                    }, () -> false);
+
+            assertEquals(List.of(0, 1, 2, 3, 4, 5, 6), frames);
+            assertEquals(List.of(3, 4, 5, 6), previews); // waves of three: the first has nothing to resample
+            assertEquals(7, stats.getFrames());
+            assertTrue(stats.getFramesPerSecond() > 0);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /*
+    * Tests for resample(): the same view is copied exactly, a zoomed view repeats source pixels.
+    */
+    @Test
+    public void testResampleSharedRegion() {
+        MandelbrotCalculator calculator = new MandelbrotCalculator();
+        IterationFrame source = new IterationFrame(40, 40);
+        calculator.calcMandelbrotFrame(source, START, 4.0, () -> false);
+        IterationFrame target = new IterationFrame(40, 40);
+
+        ZoomAnimation.resample(source, START, target, START);
+        assertArrayEquals(source.getPixels(), target.getPixels());
+
+        // Left half of the real range, full imaginary range: target columns land on every other source column
+        MandelbrotState half = new MandelbrotState(-2.0, -0.65, -1.25, 1.25, 50);
+        ZoomAnimation.resample(source, START, target, half);
+        assertEquals(source.get(10, 17), target.get(20, 17));
+        assertEquals(source.get(11, 17), target.get(22, 17));
+        assertEquals(source.get(19, 3), target.get(38, 3));
+    }
+}
@@ -3,12 +3,32 @@ package view;
 import org.junit.jupiter.api.Test;
 
 import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Properties;
+import java.util.zip.Deflater;
+import javax.imageio.ImageIO;
 
+import model.DeepZoomCalculator;
+import model.IterationFrame;
+import model.MandelbrotCalculator;
+import model.MandelbrotState;
+import model.ModelMandelbrot;
+import model.TileCoordinator;
+import model.TileWorker;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
- * View unit tests for {@link BlueColourMap}.
+ * View unit tests for {@link BlueColourMap} and {@link MandelbrotPanel}.
  */
 public class ViewMandelbrotTest {
 
@@ -38,4 +58,258 @@ public class ViewMandelbrotTest {
         assertEquals(Color.BLACK, map.map(0, 0));
         assertEquals(Color.BLACK, map.map(10, 0));
     }
+
+    /**
+     * Checks the panel's cached image matches the colour map and is only rebuilt when needed.
+     */
+    @Test
+    public void panelImageFollowsColourMapAndModel() {
+        ModelMandelbrot model = new ModelMandelbrot(60, 40);
+        MandelbrotPanel panel = new MandelbrotPanel(model);
+        BlueColourMap blue = new BlueColourMap();
+        panel.setColourMap(blue);
+
+        BufferedImage image = panel.renderedImage();
+        int iterations = model.getFrame().get(5, 7);
+        assertEquals(blue.map(iterations, model.getMaxIterations()).getRGB(), image.getRGB(5, 7));
+        assertSame(image, panel.renderedImage()); // Nothing changed, so the same image is reused
+
+        model.setMaxIterations(80);
+        iterations = model.getFrame().get(5, 7);
+        assertEquals(blue.map(iterations, 80).getRGB(), panel.renderedImage().getRGB(5, 7));
+
+        panel.setColourMap(new BlackWhiteColourMap());
+        assertEquals(Color.BLACK.getRGB(), panel.renderedImage().getRGB(45, 20)); // inside the set
+    }
+
+    /**
+     * Verifies palettes are cached per iteration cap and agree with map().
+     */
+    @Test
+    public void paletteIsCachedAndMatchesMap() {
+        BlueColourMap map = new BlueColourMap();
+        int[] palette = map.getPalette(100);
+
+        assertEquals(101, palette.length);
+        assertSame(palette, map.getPalette(100)); // Second request for the same cap hits the cache
+        assertEquals(map.map(37, 100).getRGB(), palette[37]);
+        assertEquals(Color.BLACK.getRGB(), palette[100]);
+        assertEquals(Color.getHSBColor(0.66f - 0.66f * 0.37f, 0.9f, 1.0f), map.map(37, 100));
+        assertNotEquals(palette[37], map.getPalette(200)[37]); // Different caps get different palettes
+    }
+
+    /**
+     * Checks the streaming PNG encoder writes an image standard decoders read back unchanged.
+     */
+    @Test
+    public void streamingPngRoundTrips() throws IOException {
+        int[] pixels = new int[7 * 5];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = (i * 0x3A5F17) & 0xFFFFFF;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (StreamingPngWriter png = new StreamingPngWriter(bytes, 7, 5, Deflater.BEST_SPEED)) {
+            for (int y = 0; y < 5; y++) {
+                png.writeRow(pixels, y * 7);
+            }
+        }
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(7, image.getWidth());
+        assertEquals(5, image.getHeight());
+        for (int y = 0; y < 5; y++) {
+            for (int x = 0; x < 7; x++) {
+                assertEquals(pixels[y * 7 + x], image.getRGB(x, y) & 0xFFFFFF);
+            }
+        }
+    }
+
+    /**
+     * Renders a saved settings file in stripes and checks every pixel against a single full render.
+     */
+    @Test
+    public void batchRendererMatchesFullRender() throws IOException {
+        ModelMandelbrot model = new ModelMandelbrot(10, 10);
+        model.setViewWindow(-0.8, -0.6, 0.0, 0.2);
+        model.setMaxIterations(300);
+        File settings = File.createTempFile("mandelbrot", ".properties");
+        settings.deleteOnExit();
+        model.saveToFile(settings);
+
+        MandelbrotState state = ModelMandelbrot.readSettings(ModelMandelbrot.readProperties(settings));
+        ColourMap blue = BatchRenderer.colourMapNamed("blue");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new BatchRenderer(70, 45, 8).render(state, blue, bytes); // 8-row stripes do not divide 45 rows
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(bytes.toByteArray()));
+        IterationFrame frame = new IterationFrame(70, 45);
+        new MandelbrotCalculator().calcMandelbrotFrame(frame, state, 4.0, () -> false);
+        int[][] data = frame.toArray();
+        int[] palette = blue.getPalette(300);
+        for (int y = 0; y < 45; y++) {
+            for (int x = 0; x < 70; x++) {
+                assertEquals(palette[data[y][x]] & 0xFFFFFF, image.getRGB(x, y) & 0xFFFFFF, "pixel " + x + "," + y);
+            }
+        }
+    }
+
+    /**
+     * Renders saved settings deeper than doubles resolve in stripes and checks every pixel against a single
+     * perturbation render of the whole view.
+     */
+    @Test
+    public void batchRendererRendersDeepSettingsByPerturbation() throws IOException {
+        ModelMandelbrot model = new ModelMandelbrot(16, 12);
+        model.setMaxIterations(300);
+        model.setViewCentre(BigDecimal.ZERO, BigDecimal.ONE, 3e-17, 3e-17); // around c = i, on the boundary
+        File settings = File.createTempFile("mandelbrot", ".properties");
+        settings.deleteOnExit();
+        model.saveToFile(settings);
+
+        MandelbrotState state = ModelMandelbrot.readSettings(ModelMandelbrot.readProperties(settings));
+        assertEquals(state.minImag, state.maxImag); // collapsed in doubles
+        ColourMap blue = BatchRenderer.colourMapNamed("blue");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new BatchRenderer(70, 45, 8).render(state, blue, bytes);
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(bytes.toByteArray()));
+        IterationFrame frame = new IterationFrame(70, 45);
+        new DeepZoomCalculator().calcMandelbrotFrame(frame, state, 4.0, () -> false);
+        assertNotEquals(frame.getPixels()[0], frame.getPixels()[70 * 45 - 1]);
+        int[][] data = frame.toArray();
+        int[] palette = blue.getPalette(300);
+        for (int y = 0; y < 45; y++) {
+            for (int x = 0; x < 70; x++) {
+                assertEquals(palette[data[y][x]] & 0xFFFFFF, image.getRGB(x, y) & 0xFFFFFF, "pixel " + x + "," + y);
+            }
+        }
+    }
+
+    /**
+     * Renders a settings file saved with the equalised map in stripes and checks every pixel against the
+     * map colouring a single full render.
+     */
+    @Test
+    public void batchRendererEqualisesOverTheWholeImage() throws IOException {
+        ModelMandelbrot model = new ModelMandelbrot(10, 10);
+        model.setViewWindow(-0.8, -0.6, 0.0, 0.2);
+        model.setMaxIterations(300);
+        EqualisedColourMap equalised = new EqualisedColourMap(new BlueColourMap());
+        model.setColorMapName(equalised.getName());
+        File settings = File.createTempFile("mandelbrot", ".properties");
+        settings.deleteOnExit();
+        model.saveToFile(settings);
+
+        Properties props = ModelMandelbrot.readProperties(settings);
+        MandelbrotState state = ModelMandelbrot.readSettings(props);
+        ColourMap colourMap = BatchRenderer.colourMapNamed(ModelMandelbrot.readColourMapName(props));
+        assertTrue(colourMap.usesHistogram());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new BatchRenderer(70, 45, 8).render(state, colourMap, bytes);
+
+        BufferedImage image = ImageIO.read(new ByteArrayInputStream(bytes.toByteArray()));
+        IterationFrame frame = new IterationFrame(70, 45);
+        new MandelbrotCalculator().calcMandelbrotFrame(frame, state, 4.0, () -> false);
+        int[] argb = new int[70 * 45];
+        equalised.colour(frame, 300, argb);
+        for (int y = 0; y < 45; y++) {
+            for (int x = 0; x < 70; x++) {
+                assertEquals(argb[y * 70 + x] & 0xFFFFFF, image.getRGB(x, y) & 0xFFFFFF, "pixel " + x + "," + y);
+            }
+        }
+    }
+
+    /**
+     * Anti-aliases an image rendered in stripes and checks that only pixels on edges of the whole image change.
+     */
+    @Test
+    public void batchAntialiasingChangesOnlyEdgePixels() throws IOException {
+        MandelbrotState state = new MandelbrotState(-0.8, -0.6, 0.0, 0.2, 300);
+        ColourMap blue = BatchRenderer.colourMapNamed("blue");
+        ByteArrayOutputStream plainBytes = new ByteArrayOutputStream();
+        new BatchRenderer(70, 45, 8).render(state, blue, plainBytes);
+        BatchRenderer antialiased = new BatchRenderer(70, 45, 8);
+        antialiased.setAntialiasing(3);
+        ByteArrayOutputStream smoothBytes = new ByteArrayOutputStream();
+        antialiased.render(state, blue, smoothBytes);
+
+        BufferedImage plain = ImageIO.read(new ByteArrayInputStream(plainBytes.toByteArray()));
+        BufferedImage smooth = ImageIO.read(new ByteArrayInputStream(smoothBytes.toByteArray()));
+        MandelbrotCalculator calculator = new MandelbrotCalculator();
+        IterationFrame frame = new IterationFrame(70, 45);
+        calculator.calcMandelbrotFrame(frame, state, 4.0, () -> false);
+        boolean[] edge = new boolean[70 * 45];
+        for (int i : calculator.calcEdgeSamples(frame, state, 4.0, 3, () -> false).getPixels()) {
+            edge[i] = true;
+        }
+        int changed = 0;
+        for (int y = 0; y < 45; y++) {
+            for (int x = 0; x < 70; x++) {
+                if (plain.getRGB(x, y) != smooth.getRGB(x, y)) {
+                    assertTrue(edge[y * 70 + x], "pixel " + x + "," + y);
+                    changed++;
+                }
+            }
+        }
+        assertTrue(changed > 0);
+    }
+
+    /**
+     * Checks a batch render on tile workers writes the same image as a local one, smooth colours included.
+     */
+    @Test
+    public void batchOnTileWorkersMatchesLocalRender() throws IOException {
+        MandelbrotState state = new MandelbrotState(-0.8, -0.6, 0.0, 0.2, 300);
+        ColourMap smooth = BatchRenderer.colourMapNamed("blue (smooth)");
+        ByteArrayOutputStream localBytes = new ByteArrayOutputStream();
+        new BatchRenderer(70, 45, 8).render(state, smooth, localBytes);
+
+        try (TileWorker first = new TileWorker(0).start(); TileWorker second = new TileWorker(0).start()) {
+            BatchRenderer distributed = new BatchRenderer(70, 45, 8);
+            TileCoordinator coordinator = new TileCoordinator(TileCoordinator.parseWorkers(
+                    "localhost:" + first.getPort() + ",localhost:" + second.getPort()));
+            coordinator.setTileSize(16);
+            distributed.setTileCoordinator(coordinator);
+            ByteArrayOutputStream distributedBytes = new ByteArrayOutputStream();
+            distributed.render(state, smooth, distributedBytes);
+
+            assertArrayEquals(localBytes.toByteArray(), distributedBytes.toByteArray());
+            assertTrue(first.getTilesRendered() + second.getTilesRendered() > 0);
+        }
+    }
+
+    /**
+     * Checks smooth colouring blends towards the previous count by the fraction, and equalisation
+     * spreads the palette by the share of pixels below each count.
+     */
+    @Test
+    public void smoothAndEqualisedMapsColourWholeFrames() {
+        BlueColourMap blue = new BlueColourMap();
+        int[] palette = blue.getPalette(10);
+        IterationFrame frame = new IterationFrame(4, 1);
+        frame.getPixels()[0] = 3;
+        frame.getPixels()[1] = 3;
+        frame.getPixels()[2] = 5;
+        frame.getPixels()[3] = 10;
+        int[] argb = new int[4];
+
+        SmoothColourMap smooth = new SmoothColourMap(blue);
+        assertTrue(smooth.usesFractions());
+        smooth.colour(frame, 10, argb); // no fractions yet: plain palette colours
+        assertEquals(palette[3], argb[0]);
+        frame.enableFractions();
+        frame.getFractions()[1] = 1f;
+        frame.getFractions()[2] = 0.5f;
+        smooth.colour(frame, 10, argb);
+        assertEquals(palette[3], argb[0]);
+        assertEquals(palette[2], argb[1]); // a whole iteration earlier
+        assertEquals(SmoothColourMap.blend(palette[5], palette[4], 0.5f), argb[2]);
+        assertEquals(palette[10], argb[3]);
+
+        new EqualisedColourMap(blue).colour(frame, 10, argb);
+        // Two thirds of the escaped pixels have count 3 or less, all of them count 5 or less
+        assertEquals(palette[6], argb[0]);
+        assertEquals(palette[9], argb[2]);
+        assertEquals(palette[10], argb[3]);
+    }
 }
@@ -0,0 +1,72 @@
+package model;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Float version of {@link VectorLaneKernel}: one lane of a {@link FloatVector} of the host's preferred width per
+ * point, twice as many as in doubles, e.g. sixteen on AVX-512. The points are rounded to floats and iterated with
+ * the arithmetic of calcMandel in floats, so the counts are those of a float render, not of the double loop; the
+ * calculator only uses it where {@link MandelbrotCalculator#isFloatPrecisionSufficient} holds.
+ *
+ * Like VectorLaneKernel it is compiled and loaded only where the module jdk.incubator.vector is present.
+ */
+final class VectorFloatLaneKernel implements LaneKernel {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    // Doubles of the same shape fill half the float lanes each
+    private static final VectorSpecies<Double> HALF = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorMask<Float> LOWER_HALF = SPECIES.indexInRange(0, HALF.length());
+
+    @Override
+    public int lanes() {
+        return SPECIES.length();
+    }
+
+    @Override
+    public void iterate(double[] cReal, double cImaginary, int maxIterations, double radiusSquared, int[] result,
+                        double[] laneZ) {
+        FloatVector lower = (FloatVector) DoubleVector.fromArray(HALF, cReal, 0)
+                .convertShape(VectorOperators.D2F, SPECIES, 0);
+        FloatVector upper = (FloatVector) DoubleVector.fromArray(HALF, cReal, HALF.length())
+                .convertShape(VectorOperators.D2F, SPECIES, -1);
+        FloatVector cr = upper.blend(lower, LOWER_HALF);
+        FloatVector ci = FloatVector.broadcast(SPECIES, (float) cImaginary);
+        FloatVector one = FloatVector.broadcast(SPECIES, 1f);
+        float radius = (float) radiusSquared;
+        FloatVector zr = FloatVector.zero(SPECIES);
+        FloatVector zi = FloatVector.zero(SPECIES);
+        // Iterations of each lane, exact as long as the cap is below 2^24, and |z|^2 when it escaped
+        FloatVector counts = FloatVector.zero(SPECIES);
+        FloatVector escapeMagnitudes = FloatVector.zero(SPECIES);
+        VectorMask<Float> active = SPECIES.maskAll(true);
+        for (int iterations = 0; iterations < maxIterations && active.anyTrue(); iterations++) {
+            FloatVector zr2 = zr.mul(zr);
+            FloatVector zi2 = zi.mul(zi);
+            FloatVector magnitudes = zr2.add(zi2);
+            FloatVector nzi = zr.mul(2f).mul(zi).add(ci);
+            zr = zr2.sub(zi2).add(cr);
+            zi = nzi;
+            counts = counts.add(one, active);
+            VectorMask<Float> escaped = magnitudes.compare(VectorOperators.GT, radius).and(active);
+            escapeMagnitudes = escapeMagnitudes.blend(magnitudes, escaped);
+            active = active.andNot(escaped);
+        }
+        for (int lane = 0; lane < SPECIES.length(); lane++) {
+            result[lane] = (int) counts.lane(lane);
+            if (laneZ == null) {
+                continue;
+            }
+            if (active.laneIsSet(lane)) {
+                laneZ[2 * lane] = zr.lane(lane);
+                laneZ[2 * lane + 1] = zi.lane(lane);
+            } else {
+                laneZ[2 * lane] = Double.POSITIVE_INFINITY; // escaped, possibly on the last iteration
+                laneZ[2 * lane + 1] = escapeMagnitudes.lane(lane);
+            }
+        }
+    }
+}
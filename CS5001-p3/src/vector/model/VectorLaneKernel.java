@@ -0,0 +1,65 @@
+package model;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Lane kernel on the Vector API: one lane of a {@link DoubleVector} of the host's preferred width per point,
+ * e.g. eight on AVX-512. Lanes are masked off as they escape and the loop ends once every lane has escaped.
+ * The multiplications and additions are the ones of calcMandel, in the same order and without fused
+ * multiply-adds, so every lane rounds exactly as the scalar loop does.
+ *
+ * This class needs the incubating module jdk.incubator.vector to compile and to run, so it is kept out of the
+ * main sources: the makefile compiles it only on JDKs that ship the module, and {@link MandelbrotCalculator}
+ * loads it only if the module was added at start-up. Otherwise the interleaved scalar kernel is used.
+ */
+final class VectorLaneKernel implements LaneKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public int lanes() {
+        return SPECIES.length();
+    }
+
+    @Override
+    public void iterate(double[] cReal, double cImaginary, int maxIterations, double radiusSquared, int[] result,
+                        double[] laneZ) {
+        DoubleVector cr = DoubleVector.fromArray(SPECIES, cReal, 0);
+        DoubleVector ci = DoubleVector.broadcast(SPECIES, cImaginary);
+        DoubleVector one = DoubleVector.broadcast(SPECIES, 1);
+        DoubleVector zr = DoubleVector.zero(SPECIES);
+        DoubleVector zi = DoubleVector.zero(SPECIES);
+        // Iterations of each lane, and |z|^2 when it escaped
+        DoubleVector counts = DoubleVector.zero(SPECIES);
+        DoubleVector escapeMagnitudes = DoubleVector.zero(SPECIES);
+        VectorMask<Double> active = SPECIES.maskAll(true);
+        for (int iterations = 0; iterations < maxIterations && active.anyTrue(); iterations++) {
+            DoubleVector zr2 = zr.mul(zr);
+            DoubleVector zi2 = zi.mul(zi);
+            DoubleVector magnitudes = zr2.add(zi2);
+            DoubleVector nzi = zr.mul(2).mul(zi).add(ci);
+            zr = zr2.sub(zi2).add(cr);
+            zi = nzi;
+            counts = counts.add(one, active);
+            VectorMask<Double> escaped = magnitudes.compare(VectorOperators.GT, radiusSquared).and(active);
+            escapeMagnitudes = escapeMagnitudes.blend(magnitudes, escaped);
+            active = active.andNot(escaped);
+        }
+        for (int lane = 0; lane < SPECIES.length(); lane++) {
+            result[lane] = (int) counts.lane(lane);
+            if (laneZ == null) {
+                continue;
+            }
+            if (active.laneIsSet(lane)) {
+                laneZ[2 * lane] = zr.lane(lane);
+                laneZ[2 * lane + 1] = zi.lane(lane);
+            } else {
+                laneZ[2 * lane] = Double.POSITIVE_INFINITY; // escaped, possibly on the last iteration
+                laneZ[2 * lane + 1] = escapeMagnitudes.lane(lane);
+            }
+        }
+    }
+}
@@ -0,0 +1,465 @@
+package view;
+
+import model.DeepZoomCalculator;
+import model.EdgeSamples;
+import model.FractalKernel;
+import model.IterationFrame;
+import model.MandelbrotCalculator;
+import model.MandelbrotState;
+import model.ModelMandelbrot;
+import model.TileCoordinator;
+import model.ZoomAnimation;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.Deflater;
+
+/**
+ * Headless renderer turning settings files saved by {@link ModelMandelbrot#saveToFile} into PNG images,
+ * for jobs that run without a display.
+ *
+ * The image is rendered in horizontal stripes on the parallel path and each stripe is encoded
+ * as soon as it is ready, while the next one renders, so memory use depends on the image width
+ * only: a 16384 x 16384 poster needs two stripes of a few megabytes, not the whole image.
+ *
+ * Maps that colour by the distribution of counts over the whole image, such as the equalised one, need
+ * the histogram of the image before its first row can be coloured, so the image is rendered twice: once
+ * stripe by stripe to count the pixels, then again to colour and encode them.
+ *
+ * With {@code --antialias=N}, pixels whose count differs from a neighbour's are supersampled N x N times
+ * and coloured with the mean of their samples; every stripe is rendered with one row of its neighbours
+ * above and below so that edges across stripe boundaries are found too.
+ *
+ * With {@code --workers=HOST:PORT,...}, the iteration counts of still images are rendered by
+ * {@link model.TileWorker}s through a {@link TileCoordinator}, stripe by stripe; anti-aliasing and
+ * encoding stay on this machine.
+ *
+ * Mandelbrot views from {@link ModelMandelbrot#DEEP_ZOOM_MAGNIFICATION} on are rendered as the viewer renders
+ * them, by perturbation around their exact centre, each stripe on this machine and without anti-aliasing,
+ * which samples in doubles.
+ *
+ * With {@code --animate-to}, each settings file is instead the first keyframe of a zoom animation
+ * ending at the given settings, written as numbered PNGs and rendered with {@link ZoomAnimation}.
+ *
+ * Usage: {@code java -cp bin view.BatchRenderer [--width=N] [--height=N] [--colour-map=NAME]
+ * [--output-dir=DIR] [--antialias=N] [--workers=HOST:PORT,...] [--animate-to=END --frames=N --easing=linear|smooth]
+ * settings.properties...}
+ */
+public class BatchRenderer {
+
+    /** Default image width in pixels. */
+    public static final int DEFAULT_WIDTH = 1600;
+    /** Default image height in pixels. */
+    public static final int DEFAULT_HEIGHT = 1600;
+    /** Default number of frames of an animation. */
+    public static final int DEFAULT_FRAMES = 120;
+    /** Pixels rendered per stripe; the stripe height is derived from the image width. */
+    protected static final int STRIPE_PIXELS = 1 << 20;
+    /** Squared bailout radius; settings files do not store one, so this is the viewer's default. */
+    private static final double RADIUS_SQUARED = 4.0;
+
+    private static final List<ColourMap> COLOUR_MAPS = Arrays.asList(new BlackWhiteColourMap(), new BlueColourMap(),
+            new SmoothColourMap(new BlueColourMap()), new EqualisedColourMap(new BlueColourMap()));
+
+    private final int width;
+    private final int height;
+    private final int stripeRows;
+    private final MandelbrotCalculator calculator = new MandelbrotCalculator();
+    private final DeepZoomCalculator deepZoomCalculator = new DeepZoomCalculator();
+    private int antialiasGrid = 1;
+    private TileCoordinator coordinator;
+
+    /**
+     * Creates a renderer for images of the given size.
+     *
+     * @param width image width in pixels
+     * @param height image height in pixels
+     */
+    public BatchRenderer(int width, int height) {
+        this(width, height, Math.max(1, STRIPE_PIXELS / Math.max(1, width)));
+    }
+
+    /**
+     * Creates a renderer for images of the given size, rendering the given number of rows at a time.
+     *
+     * @param width image width in pixels
+     * @param height image height in pixels
+     * @param stripeRows rows rendered and encoded together
+     */
+    public BatchRenderer(int width, int height, int stripeRows) {
+        if (width <= 0 || height <= 0 || stripeRows <= 0) {
+            throw new IllegalArgumentException("Image dimensions and stripe height must be positive");
+        }
+        this.width = width;
+        this.height = height;
+        this.stripeRows = Math.min(stripeRows, height);
+    }
+
+    /**
+     * Sets adaptive anti-aliasing for still images: edge pixels are sampled grid x grid times.
+     *
+     * @param grid sub-samples per pixel along each axis; 1 turns anti-aliasing off
+     */
+    public void setAntialiasing(int grid) {
+        if (grid < 1) {
+            throw new IllegalArgumentException("Anti-aliasing grid must be positive");
+        }
+        this.antialiasGrid = grid;
+    }
+
+    /**
+     * @return sub-samples per edge pixel along each axis; 1 if anti-aliasing is off
+     */
+    public int getAntialiasing() {
+        return antialiasGrid;
+    }
+
+    /**
+     * Renders the iteration counts of still images on remote workers instead of on this machine.
+     *
+     * @param coordinator coordinator of the workers, or null to render locally
+     */
+    public void setTileCoordinator(TileCoordinator coordinator) {
+        this.coordinator = coordinator;
+    }
+
+    /**
+     * @return coordinator of the workers rendering still images, or null if they are rendered locally
+     */
+    public TileCoordinator getTileCoordinator() {
+        return coordinator;
+    }
+
+    /**
+     * Renders a view and writes it to out as a PNG.
+     *
+     * @param state view window and iteration cap
+     * @param colourMap colours used for iteration counts
+     * @param out destination stream; closed when the image is complete
+     * @throws IOException if writing fails or the render fails
+     */
+    public void render(MandelbrotState state, ColourMap colourMap, OutputStream out) throws IOException {
+        // Two stripes: one being encoded while the next renders; anti-aliasing adds a row above and below
+        int halo = antialiasGrid > 1 ? 1 : 0;
+        int frameRows = stripeRows + 2 * halo;
+        IterationFrame[] stripes = {new IterationFrame(width, frameRows), new IterationFrame(width, frameRows)};
+        if (colourMap.usesFractions()) {
+            stripes[0].enableFractions();
+            stripes[1].enableFractions();
+        }
+        AtomicBoolean abandoned = new AtomicBoolean();
+        ExecutorService renderThread = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "mandelbrot-batch-render");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (StreamingPngWriter png = new StreamingPngWriter(out, width, height, Deflater.DEFAULT_COMPRESSION)) {
+            ColourMap colours = colourMap.usesHistogram()
+                    ? colourMap.forHistogram(histogram(state, abandoned)) : colourMap;
+            Future<Stripe> next = renderThread.submit(() -> renderStripe(stripes[0], 0, halo, state, abandoned));
+            int[] rgb = new int[width * frameRows];
+            for (int firstRow = 0, index = 0; firstRow < height; firstRow += stripeRows, index++) {
+                Stripe stripe = await(next);
+                int nextRow = firstRow + stripeRows;
+                if (nextRow < height) {
+                    IterationFrame spare = stripes[(index + 1) % 2];
+                    next = renderThread.submit(() -> renderStripe(spare, nextRow, halo, state, abandoned));
+                }
+                colours.colour(stripe.frame, state.maxIterations, rgb);
+                if (stripe.edges != null) {
+                    colours.colourEdges(stripe.edges, state.maxIterations, rgb);
+                }
+                for (int y = 0; y < stripe.rows; y++) {
+                    png.writeRow(rgb, (stripe.top + y) * width);
+                }
+            }
+        } finally {
+            // Stops a stripe still rendering if encoding failed
+            abandoned.set(true);
+            renderThread.shutdownNow();
+        }
+    }
+
+    /**
+     * Renders the image stripe by stripe, without halo rows or edge samples, and counts its pixels.
+     *
+     * @return histogram of the whole image, as from {@link IterationFrame#histogram}
+     */
+    private long[] histogram(MandelbrotState state, AtomicBoolean abandoned) throws IOException {
+        long[] histogram = new long[state.maxIterations + 1];
+        IterationFrame stripe = new IterationFrame(width, stripeRows);
+        for (int firstRow = 0; firstRow < height; firstRow += stripeRows) {
+            int rows = Math.min(stripeRows, height - firstRow);
+            IterationFrame target = rows == stripe.getHeight() ? stripe : new IterationFrame(width, rows);
+            renderCounts(target, firstRow, state, abandoned);
+            long[] counts = target.histogram(state.maxIterations);
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] += counts[i];
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * A rendered stripe: rows [top, top + rows) of the frame belong to it, the others are halo rows
+     * of the neighbouring stripes.
+     */
+    private static final class Stripe {
+        final IterationFrame frame;
+        final int top;
+        final int rows;
+        final EdgeSamples edges;
+
+        Stripe(IterationFrame frame, int top, int rows, EdgeSamples edges) {
+            this.frame = frame;
+            this.top = top;
+            this.rows = rows;
+            this.edges = edges;
+        }
+    }
+
+    /**
+     * Renders the stripe starting at firstRow with up to halo rows of its neighbours on either side, and
+     * supersamples its edges if anti-aliasing is on; stripes at the image borders use only part of the frame.
+     */
+    private Stripe renderStripe(IterationFrame frame, int firstRow, int halo, MandelbrotState state,
+                                AtomicBoolean abandoned) throws IOException {
+        int rows = Math.min(stripeRows, height - firstRow);
+        int from = Math.max(0, firstRow - halo);
+        int to = Math.min(height, firstRow + rows + halo);
+        IterationFrame target = frame;
+        if (to - from != frame.getHeight()) {
+            target = new IterationFrame(width, to - from);
+            if (frame.getFractions() != null) {
+                target.enableFractions();
+            }
+        }
+        renderCounts(target, from, state, abandoned);
+        EdgeSamples edges = antialiasGrid > 1 && !isDeepZoom(state)
+                ? calculator.calcEdgeSamples(target, 0, from, width, height, state, RADIUS_SQUARED, antialiasGrid,
+                        abandoned::get)
+                : null;
+        return new Stripe(target, firstRow - from, rows, edges);
+    }
+
+    private void renderCounts(IterationFrame target, int firstRow, MandelbrotState state, AtomicBoolean abandoned)
+            throws IOException {
+        TileCoordinator workers = coordinator;
+        if (isDeepZoom(state)) {
+            // The stripe is rendered around its own centre, on the pixel grid of the whole image
+            double imaginaryStep = state.imagSpan / height;
+            BigDecimal offset = new BigDecimal((firstRow + target.getHeight() / 2.0 - height / 2.0) * imaginaryStep);
+            deepZoomCalculator.calcMandelbrotFrame(target, state.centreReal, state.centreImag.add(offset),
+                    state.realSpan / width, imaginaryStep, state.maxIterations, RADIUS_SQUARED, abandoned::get);
+        } else if (workers != null) {
+            workers.renderTile(target, 0, firstRow, width, height, state, RADIUS_SQUARED, abandoned::get);
+        } else {
+            calculator.calcMandelbrotStripe(target, firstRow, height, state, RADIUS_SQUARED, abandoned::get);
+        }
+    }
+
+    private static boolean isDeepZoom(MandelbrotState state) {
+        double initialWidth = FractalKernel.MANDELBROT.initialState(state.maxIterations).realSpan;
+        return state.kernel == FractalKernel.MANDELBROT
+                && initialWidth / state.realSpan >= ModelMandelbrot.DEEP_ZOOM_MAGNIFICATION;
+    }
+
+    private static Stripe await(Future<Stripe> stripe) throws IOException {
+        try {
+            return stripe.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while rendering", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Render failed: " + e.getCause(), e.getCause());
+        }
+    }
+
+    /**
+     * Renders a zoom animation and writes each frame as a numbered PNG.
+     *
+     * @param start first keyframe
+     * @param end last keyframe
+     * @param easing timing curve
+     * @param frames number of frames
+     * @param colourMap colours used for iteration counts
+     * @param outputDir directory receiving the frames
+     * @param baseName file name prefix of the frames
+     * @return timing of the render, including encoding
+     * @throws IOException if writing a frame fails
+     */
+    public ZoomAnimation.Stats renderAnimation(MandelbrotState start, MandelbrotState end, ZoomAnimation.Easing easing,
+                                               int frames, ColourMap colourMap, File outputDir, String baseName)
+            throws IOException {
+        try {
+            ZoomAnimation animation = new ZoomAnimation(calculator);
+            animation.setFractionalCounts(colourMap.usesFractions());
+            return animation.render(start, end, easing, frames, width, height, RADIUS_SQUARED,
+                    (index, state, frame) -> {
+                        File output = new File(outputDir, String.format("%s_%04d.png", baseName, index));
+                        try {
+                            writePng(frame, state.maxIterations, colourMap,
+                                    new BufferedOutputStream(new FileOutputStream(output)));
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }, () -> false);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Writes a rendered frame as a PNG.
+     *
+     * @param frame iteration counts
+     * @param maxIterations iteration cap the frame was rendered with
+     * @param colourMap colours used for iteration counts
+     * @param out destination stream; closed when the image is complete
+     * @throws IOException if writing fails
+     */
+    public static void writePng(IterationFrame frame, int maxIterations, ColourMap colourMap, OutputStream out)
+            throws IOException {
+        int width = frame.getWidth();
+        int[] rgb = new int[frame.getPixels().length];
+        colourMap.colour(frame, maxIterations, rgb);
+        try (StreamingPngWriter png = new StreamingPngWriter(out, width, frame.getHeight(), Deflater.DEFAULT_COMPRESSION)) {
+            for (int y = 0; y < frame.getHeight(); y++) {
+                png.writeRow(rgb, y * width);
+            }
+        }
+    }
+
+    /**
+     * @param name colour map name as shown in the UI, case-insensitive
+     * @return the matching colour map
+     * @throws IllegalArgumentException if no colour map has that name
+     */
+    public static ColourMap colourMapNamed(String name) {
+        for (ColourMap map : COLOUR_MAPS) {
+            if (map.getName().equalsIgnoreCase(name.trim())) {
+                return map;
+            }
+        }
+        throw new IllegalArgumentException("Unknown colour map: " + name);
+    }
+
+    /**
+     * Renders each settings file given on the command line to a PNG with the same base name.
+     *
+     * @param args options followed by settings files
+     */
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int width = DEFAULT_WIDTH;
+        int height = DEFAULT_HEIGHT;
+        String colourMapName = null;
+        File outputDir = null;
+        File animateTo = null;
+        int frames = DEFAULT_FRAMES;
+        ZoomAnimation.Easing easing = ZoomAnimation.Easing.SMOOTH;
+        int failures = 0;
+        int files = 0;
+        int antialias = 1;
+        String workers = null;
+        BatchRenderer renderer = null;
+        try {
+            for (String arg : args) {
+                if (arg.startsWith("--width=")) {
+                    width = Integer.parseInt(arg.substring("--width=".length()));
+                } else if (arg.startsWith("--height=")) {
+                    height = Integer.parseInt(arg.substring("--height=".length()));
+                } else if (arg.startsWith("--colour-map=")) {
+                    colourMapName = arg.substring("--colour-map=".length());
+                    colourMapNamed(colourMapName);
+                } else if (arg.startsWith("--output-dir=")) {
+                    outputDir = new File(arg.substring("--output-dir=".length()));
+                } else if (arg.startsWith("--antialias=")) {
+                    antialias = Integer.parseInt(arg.substring("--antialias=".length()));
+                } else if (arg.startsWith("--workers=")) {
+                    workers = arg.substring("--workers=".length());
+                } else if (arg.startsWith("--animate-to=")) {
+                    animateTo = new File(arg.substring("--animate-to=".length()));
+                } else if (arg.startsWith("--frames=")) {
+                    frames = Integer.parseInt(arg.substring("--frames=".length()));
+                } else if (arg.equals("--easing=linear")) {
+                    easing = ZoomAnimation.Easing.LINEAR;
+                } else if (arg.equals("--easing=smooth")) {
+                    easing = ZoomAnimation.Easing.SMOOTH;
+                } else if (arg.startsWith("--")) {
+                    throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+            renderer = new BatchRenderer(width, height);
+            renderer.setAntialiasing(antialias);
+            if (workers != null) {
+                renderer.setTileCoordinator(new TileCoordinator(TileCoordinator.parseWorkers(workers)));
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            printUsage();
+            System.exit(2);
+        }
+
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                continue;
+            }
+            files++;
+            File settings = new File(arg);
+            File directory = outputDir != null ? outputDir : settings.getAbsoluteFile().getParentFile();
+            File output = new File(directory, baseName(settings) + ".png");
+            try {
+                Properties props = ModelMandelbrot.readProperties(settings);
+                MandelbrotState state = ModelMandelbrot.readSettings(props);
+                ColourMap colourMap = colourMapNamed(colourMapName != null
+                        ? colourMapName : ModelMandelbrot.readColourMapName(props));
+                if (animateTo != null) {
+                    MandelbrotState end = ModelMandelbrot.readSettings(ModelMandelbrot.readProperties(animateTo));
+                    ZoomAnimation.Stats stats = renderer.renderAnimation(state, end, easing, frames, colourMap,
+                            directory, baseName(settings));
+                    System.out.printf("%s -> %s_*.png (%d frames, %d x %d, %.2f frames/s)%n", settings,
+                            new File(directory, baseName(settings)), stats.getFrames(), width, height,
+                            stats.getFramesPerSecond());
+                    continue;
+                }
+                long start = System.nanoTime();
+                renderer.render(state, colourMap, new BufferedOutputStream(new FileOutputStream(output)));
+                System.out.printf("%s -> %s (%d x %d, %.1f s)%n", settings, output, width, height,
+                        (System.nanoTime() - start) / 1e9);
+            } catch (IOException | IllegalArgumentException e) {
+                failures++;
+                System.err.println(settings + ": " + e.getMessage());
+            }
+        }
+        if (files == 0) {
+            printUsage();
+            System.exit(2);
+        }
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private static String baseName(File file) {
+        String name = file.getName();
+        int dot = name.lastIndexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: java -cp bin view.BatchRenderer [--width=N] [--height=N] [--colour-map=NAME]"
+                + " [--output-dir=DIR] [--antialias=N] [--workers=HOST:PORT,...] [--animate-to=END --frames=N --easing=linear|smooth] settings.properties...");
+    }
+}
@@ -5,7 +5,7 @@ import java.awt.Color;
 /**
  * Maps points to a simple black-and-white palette.
  */
-public class BlackWhiteColourMap implements ColourMap {
+public class BlackWhiteColourMap extends PaletteColourMap {
 
     @Override
     public String getName() {
@@ -13,7 +13,7 @@ public class BlackWhiteColourMap implements ColourMap {
     }
 
     @Override
-    public Color map(int iterations, int maxIterations) {
-        return (iterations >= maxIterations) ? Color.BLACK : Color.WHITE;
+    protected int argb(int iterations, int maxIterations) {
+        return (iterations >= maxIterations) ? Color.BLACK.getRGB() : Color.WHITE.getRGB();
     }
 }
@@ -5,7 +5,7 @@ import java.awt.Color;
 /**
  * Produces a blue-tinted gradient for Mandelbrot iterations.
  */
-public class BlueColourMap implements ColourMap {
+public class BlueColourMap extends PaletteColourMap {
 
     @Override
     public String getName() {
@@ -13,12 +13,12 @@ public class BlueColourMap implements ColourMap {
     }
 
     @Override
-    public Color map(int iterations, int maxIterations) {
+    protected int argb(int iterations, int maxIterations) {
         if (iterations >= maxIterations) {
-            return Color.BLACK;
+            return Color.BLACK.getRGB();
         }
         float ratio = (maxIterations == 0) ? 0f : (float) iterations / maxIterations;
         float hue = 0.66f - (0.66f * ratio); // retain rainbow gradient but label as blue
-        return Color.getHSBColor(hue, 0.9f, 1.0f);
+        return Color.HSBtoRGB(hue, 0.9f, 1.0f);
     }
 }
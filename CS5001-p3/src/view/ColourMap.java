@@ -1,6 +1,8 @@
 package view;
 
 import java.awt.Color;
+import model.EdgeSamples;
+import model.IterationFrame;
 
 /**
  * Strategy interface for converting iteration counts into colors.
@@ -20,4 +22,100 @@ public interface ColourMap {
      * @return color representing the point
      */
     Color map(int iterations, int maxIterations);
+
+    /**
+     * Packed ARGB colours for every iteration count from 0 to maxIterations inclusive,
+     * so that colouring a pixel is a single array lookup. The array must not be modified.
+     * The default builds a fresh palette from {@link #map}; implementations should cache it.
+     *
+     * @param maxIterations current maximum iterations configured
+     * @return palette indexed by iteration count
+     */
+    default int[] getPalette(int maxIterations) {
+        int[] palette = new int[maxIterations + 1];
+        for (int i = 0; i <= maxIterations; i++) {
+            palette[i] = map(i, maxIterations).getRGB();
+        }
+        return palette;
+    }
+
+    /**
+     * Whether the map colours by the continuous iteration count, so frames should record
+     * fractions (see {@link IterationFrame}). Frames without them are coloured by their counts.
+     *
+     * @return true if the map reads fractions
+     */
+    default boolean usesFractions() {
+        return false;
+    }
+
+    /**
+     * Whether the colours depend on the distribution of counts over the whole frame, so an image coloured
+     * in parts must be coloured by the map returned by {@link #forHistogram} instead.
+     *
+     * @return true if the map reads the histogram of the frame
+     */
+    default boolean usesHistogram() {
+        return false;
+    }
+
+    /**
+     * Returns a map colouring every part of an image as this map colours the whole image, given the
+     * histogram of the whole image. Maps that do not use the histogram return themselves.
+     *
+     * @param histogram pixels per count over the whole image, as from {@link IterationFrame#histogram}
+     * @return map for the parts of that image
+     */
+    default ColourMap forHistogram(long[] histogram) {
+        return this;
+    }
+
+    /**
+     * Colours a whole frame, the path used for display and export. The default looks every count
+     * up in {@link #getPalette}; maps that use fractions or the distribution of counts over the
+     * frame override it, so colouring never needs the set to be calculated again.
+     *
+     * @param frame iteration counts to colour
+     * @param maxIterations current maximum iterations configured; larger counts are treated as this
+     * @param argb receives a packed colour per pixel, row-major like the frame
+     */
+    default void colour(IterationFrame frame, int maxIterations, int[] argb) {
+        int[] palette = getPalette(maxIterations);
+        int[] pixels = frame.getPixels();
+        for (int i = 0; i < pixels.length; i++) {
+            argb[i] = palette[Math.min(pixels[i], maxIterations)];
+        }
+    }
+
+    /**
+     * Anti-aliases the edge pixels of a coloured frame: the sub-samples of each refined pixel are coloured
+     * with {@link #colour} as a frame of their own and the pixel gets their mean, channel by channel.
+     * Pixels that were not refined keep their colour.
+     *
+     * @param edges sub-samples of the edge pixels of the frame
+     * @param maxIterations current maximum iterations configured; larger counts are treated as this
+     * @param argb colours of the frame, as filled by {@link #colour}; refined pixels are overwritten
+     */
+    default void colourEdges(EdgeSamples edges, int maxIterations, int[] argb) {
+        IterationFrame samples = edges.getSamples();
+        if (samples == null) {
+            return;
+        }
+        int[] sampleArgb = new int[samples.getPixels().length];
+        colour(samples, maxIterations, sampleArgb);
+        int[] pixels = edges.getPixels();
+        int perPixel = samples.getWidth();
+        for (int k = 0; k < pixels.length; k++) {
+            int first = k * perPixel;
+            int mean = 0;
+            for (int shift = 0; shift < 32; shift += 8) {
+                int sum = 0;
+                for (int s = first; s < first + perPixel; s++) {
+                    sum += (sampleArgb[s] >>> shift) & 0xFF;
+                }
+                mean |= ((sum + perPixel / 2) / perPixel) << shift;
+            }
+            argb[pixels[k]] = mean;
+        }
+    }
 }
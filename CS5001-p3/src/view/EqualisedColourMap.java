@@ -0,0 +1,117 @@
+package view;
+
+import java.awt.Color;
+import java.util.stream.IntStream;
+import model.IterationFrame;
+
+/**
+ * Histogram-equalised colouring: each escape count gets the colour at its rank among the escaped
+ * pixels of the frame, so every colour of the base palette covers about the same area whatever the
+ * iteration cap. The counts are tallied in one parallel pass over the frame and the palette is
+ * rebuilt from them on every call; pixels that did not escape keep the base colour for the cap.
+ * Images coloured stripe by stripe use {@link #forHistogram} with the histogram of the whole image.
+ */
+public class EqualisedColourMap implements ColourMap {
+
+    /** Pixels coloured by one parallel task. */
+    private static final int BAND_PIXELS = 1 << 16;
+
+    private final ColourMap base;
+
+    /**
+     * @param base map whose palette is redistributed
+     */
+    public EqualisedColourMap(ColourMap base) {
+        this.base = base;
+    }
+
+    @Override
+    public String getName() {
+        return base.getName() + " (equalised)";
+    }
+
+    @Override
+    public Color map(int iterations, int maxIterations) {
+        return base.map(iterations, maxIterations);
+    }
+
+    @Override
+    public int[] getPalette(int maxIterations) {
+        return base.getPalette(maxIterations);
+    }
+
+    @Override
+    public boolean usesHistogram() {
+        return true;
+    }
+
+    @Override
+    public ColourMap forHistogram(long[] histogram) {
+        int maxIterations = histogram.length - 1;
+        int[] palette = equalisedPalette(histogram, base.getPalette(maxIterations));
+        return new ColourMap() {
+            @Override
+            public String getName() {
+                return EqualisedColourMap.this.getName();
+            }
+
+            @Override
+            public Color map(int iterations, int cap) {
+                return base.map(iterations, cap);
+            }
+
+            @Override
+            public int[] getPalette(int cap) {
+                return cap == maxIterations ? palette : base.getPalette(cap);
+            }
+
+            @Override
+            public void colour(IterationFrame frame, int cap, int[] argb) {
+                colourWith(cap == maxIterations ? palette : base.getPalette(cap), frame, cap, argb);
+            }
+        };
+    }
+
+    @Override
+    public void colour(IterationFrame frame, int maxIterations, int[] argb) {
+        colourWith(equalisedPalette(frame.histogram(maxIterations), base.getPalette(maxIterations)),
+                frame, maxIterations, argb);
+    }
+
+    private static void colourWith(int[] palette, IterationFrame frame, int maxIterations, int[] argb) {
+        int[] pixels = frame.getPixels();
+        int bands = Math.max(1, pixels.length / BAND_PIXELS);
+        IntStream.range(0, bands).parallel().forEach(band -> {
+            int end = (int) ((long) pixels.length * (band + 1) / bands);
+            for (int i = (int) ((long) pixels.length * band / bands); i < end; i++) {
+                argb[i] = palette[Math.min(pixels[i], maxIterations)];
+            }
+        });
+    }
+
+    /**
+     * Maps every escape count to the base colour at the share of escaped pixels with that count or less.
+     *
+     * @param histogram pixels per count; the last entry counts pixels that did not escape
+     * @param basePalette colours of the base map for the same cap
+     * @return palette indexed by iteration count
+     */
+    static int[] equalisedPalette(long[] histogram, int[] basePalette) {
+        int maxIterations = histogram.length - 1;
+        long escaped = 0;
+        for (int i = 0; i < maxIterations; i++) {
+            escaped += histogram[i];
+        }
+        if (escaped == 0) {
+            return basePalette;
+        }
+        int[] palette = new int[histogram.length];
+        long below = 0;
+        for (int i = 0; i < maxIterations; i++) {
+            below += histogram[i];
+            palette[i] = basePalette[(int) ((maxIterations - 1) * below / escaped)];
+        }
+        palette[maxIterations] = basePalette[maxIterations];
+        return palette;
+    }
+}
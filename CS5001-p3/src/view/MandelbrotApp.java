@@ -1,7 +1,9 @@
 package view;
 
 import javax.swing.*;
+import model.JuliaPreview;
 import model.ModelMandelbrot;
+import model.RenderStatistics;
 import controller.ControllerMandelbrot;
 import java.awt.BorderLayout;
 
@@ -21,6 +23,16 @@ public class MandelbrotApp {
         SwingUtilities.invokeLater(() -> {
 
             ModelMandelbrot model = new ModelMandelbrot(800, 800);
+            // Render off the EDT and hand results back to it
+            model.setNotificationExecutor(SwingUtilities::invokeLater);
+            model.setAsynchronousRendering(true);
+            model.setProgressiveRendering(true);
+            try {
+                // Render timings for JConsole and other JMX clients
+                RenderStatistics.register(model);
+            } catch (javax.management.JMException ex) {
+                System.err.println("Render statistics unavailable over JMX: " + ex.getMessage());
+            }
             MandelbrotPanel mandelbrotPanel = new MandelbrotPanel(model);
 
             // Create control panel
@@ -29,7 +41,7 @@ public class MandelbrotApp {
 
 
             // Create controller with panel + controls
-            new ControllerMandelbrot(
+            ControllerMandelbrot controller = new ControllerMandelbrot(
                     model,
                     mandelbrotPanel,
                     controlPanel.getIterationSpinner(),
@@ -41,6 +53,12 @@ public class MandelbrotApp {
                     controlPanel.getColourMapCombo()
                 );
 
+            // Julia set of the point under the mouse, rendered on its own thread
+            JuliaPreview juliaPreview = new JuliaPreview();
+            juliaPreview.setNotificationExecutor(SwingUtilities::invokeLater);
+            mandelbrotPanel.setJuliaPreview(juliaPreview);
+            controller.setJuliaPreview(juliaPreview);
+
             JFrame frame = new JFrame("Mandelbrot Explorer");
             frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
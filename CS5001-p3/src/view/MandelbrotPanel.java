@@ -2,6 +2,10 @@ package view;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import model.IterationFrame;
+import model.JuliaPreview;
 import model.ModelListener;
 import model.ModelMandelbrot;
 
@@ -11,6 +15,9 @@ import model.ModelMandelbrot;
  */
 public class MandelbrotPanel extends JPanel implements ModelListener {
 
+    /** Distance of the Julia preview inset from the panel's edges. */
+    private static final int INSET_MARGIN = 10;
+
     /** Backing model supplying Mandelbrot pixel data. */
     private final ModelMandelbrot model;
     /** Initial point of a drag gesture used for zoom selection. */
@@ -19,6 +26,24 @@ public class MandelbrotPanel extends JPanel implements ModelListener {
     private Point dragEnd;
     /** Colour mapping strategy applied when rendering the set. */
     private ColourMap colourMap = new BlackWhiteColourMap();
+    /** Cached rendering of the current frame, blitted on every repaint. */
+    private BufferedImage image;
+    /** Set when the frame or colour map changed since the image was last built. */
+    private boolean imageStale = true;
+    /** Julia set preview shown as an inset in the top right corner, or null for none. */
+    private JuliaPreview juliaPreview;
+    /** Cached rendering of the preview. */
+    private BufferedImage previewImage;
+    /** Set when the preview or colour map changed since the preview image was last built. */
+    private boolean previewStale = true;
+    /** Repaints just the inset when a new preview is published. */
+    private final ModelListener previewListener = () -> {
+        previewStale = true;
+        Rectangle r = previewBounds();
+        if (r != null) {
+            repaint(r.x - 1, r.y - 1, r.width + 2, r.height + 2);
+        }
+    };
 
     /**
      * Creates a panel bound to the given model and registers as a listener.
@@ -38,7 +63,9 @@ public class MandelbrotPanel extends JPanel implements ModelListener {
      * @param p starting point in panel coordinates
      */
     public void setDragStart(Point p) {
+        repaintOverlay();
         this.dragStart = p; 
+        repaintOverlay();
     }
 
     /**
@@ -47,46 +74,154 @@ public class MandelbrotPanel extends JPanel implements ModelListener {
      * @param p current drag end in panel coordinates
      */
     public void setDragEnd(Point p) { 
+        repaintOverlay();
         this.dragEnd = p;
+        repaintOverlay();
+    }
+
+    /**
+     * Schedules a repaint of just the area covered by the zoom rectangle, so that
+     * dragging only redraws the strip around the old and new outlines.
+     */
+    private void repaintOverlay() {
+        Rectangle r = overlayBounds();
+        if (r != null) {
+            repaint(r.x, r.y, r.width + 1, r.height + 1);
+        }
+    }
+
+    private Rectangle overlayBounds() {
+        if (dragStart == null || dragEnd == null) {
+            return null;
+        }
+        int x = Math.min(dragStart.x, dragEnd.x);
+        int y = Math.min(dragStart.y, dragEnd.y);
+        int w = Math.abs(dragStart.x - dragEnd.x);
+        int h = Math.abs(dragStart.y - dragEnd.y);
+        return new Rectangle(x, y, w, h);
+    }
+
+    /**
+     * Shows a Julia set preview as an inset, repainting it whenever the preview changes.
+     *
+     * @param juliaPreview preview to show, or null to show none
+     */
+    public void setJuliaPreview(JuliaPreview juliaPreview) {
+        if (this.juliaPreview != null) {
+            this.juliaPreview.removeListener(previewListener);
+        }
+        this.juliaPreview = juliaPreview;
+        if (juliaPreview != null) {
+            juliaPreview.addListener(previewListener);
+        }
+        previewStale = true;
+        repaint();
+    }
+
+    /**
+     * @return the Julia set preview shown as an inset, or null
+     */
+    public JuliaPreview getJuliaPreview() {
+        return juliaPreview;
+    }
+
+    private Rectangle previewBounds() {
+        JuliaPreview preview = juliaPreview;
+        if (preview == null) {
+            return null;
+        }
+        return new Rectangle(getWidth() - preview.getWidth() - INSET_MARGIN, INSET_MARGIN,
+                preview.getWidth(), preview.getHeight());
     }
 
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
 
-        int[][] data = model.getData();
-        if (data == null) {
+        BufferedImage rendered = renderedImage();
+        if (rendered == null) {
             return;
         }
+        g.drawImage(rendered, 0, 0, null);
 
-        int height = data.length;
-        int width = data[0].length;
-        int maxIter = model.getMaxIterations();
+        // Draw zoom rectangle if the user is dragging
+        Rectangle r = overlayBounds();
+        if (r != null) {
+            Graphics2D g2d = (Graphics2D) g;
+            g2d.setColor(Color.GREEN);
+            g2d.drawRect(r.x, r.y, r.width, r.height);
+        }
+
+        BufferedImage preview = renderedPreview();
+        if (preview != null) {
+            Rectangle inset = previewBounds();
+            g.drawImage(preview, inset.x, inset.y, null);
+            g.setColor(Color.WHITE);
+            g.drawRect(inset.x - 1, inset.y - 1, inset.width + 1, inset.height + 1);
+        }
 
+    }
 
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int iter = data[y][x];
-                g.setColor(colourMap.map(iter, maxIter));
-                g.fillRect(x, y, 1, 1);
-            }
+    /**
+     * Returns the cached image of the current frame, rebuilding it first if the
+     * frame or colour map has changed.
+     *
+     * @return image of the current frame, or null if the model has no data yet
+     */
+    BufferedImage renderedImage() {
+        IterationFrame frame = model.getFrame();
+        if (frame == null) {
+            return null;
+        }
+        if (imageStale || image == null
+                || image.getWidth() != frame.getWidth() || image.getHeight() != frame.getHeight()) {
+            rebuildImage(frame);
+            imageStale = false;
         }
+        return image;
+    }
 
-        // Draw zoom rectangle if the user is dragging
-        if (dragStart != null && dragEnd != null) {
-            Graphics2D g2d = (Graphics2D) g;
-            g2d.setColor(Color.GREEN);
-            int x = Math.min(dragStart.x, dragEnd.x);
-            int y = Math.min(dragStart.y, dragEnd.y);
-            int w = Math.abs(dragStart.x - dragEnd.x);
-            int h = Math.abs(dragStart.y - dragEnd.y);
-            g2d.drawRect(x, y, w, h);
+    /**
+     * Returns the cached image of the Julia set preview, colouring the preview's front frame first
+     * if it or the colour map has changed.
+     *
+     * @return image of the preview, or null if none is shown
+     */
+    BufferedImage renderedPreview() {
+        JuliaPreview preview = juliaPreview;
+        if (preview == null) {
+            return null;
         }
+        if (!previewStale) {
+            return preview.getKernel() == null ? null : previewImage;
+        }
+        if (previewImage == null || previewImage.getWidth() != preview.getWidth()
+                || previewImage.getHeight() != preview.getHeight()) {
+            previewImage = new BufferedImage(preview.getWidth(), preview.getHeight(), BufferedImage.TYPE_INT_RGB);
+        }
+        int[] raster = ((DataBufferInt) previewImage.getRaster().getDataBuffer()).getData();
+        boolean shown = preview.readFrame(frame -> colourMap.colour(frame, preview.getShownIterations(), raster));
+        previewStale = false;
+        return shown ? previewImage : null;
+    }
 
+    /**
+     * Has the colour map write the colour of every pixel straight into the image raster.
+     */
+    private void rebuildImage(IterationFrame frame) {
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        }
+        int[] raster = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        // The cap may have changed since the frame was rendered; colour with the one it was rendered at
+        colourMap.colour(frame, model.getFrameIterations(), raster);
     }
 
     @Override
     public void modelChanged() {
+        imageStale = true;
         repaint();
     }
 
@@ -97,6 +232,8 @@ public class MandelbrotPanel extends JPanel implements ModelListener {
      */
     public void setColourMap(ColourMap colourMap) {
         this.colourMap = colourMap;
+        imageStale = true;
+        previewStale = true;
         repaint();
     }
 
@@ -0,0 +1,56 @@
+package view;
+
+import java.awt.Color;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Base class for colour maps defined by a packed ARGB value per iteration count.
+ * Palettes are built once per iteration cap and cached, keeping the most recently used caps.
+ */
+public abstract class PaletteColourMap implements ColourMap {
+
+    /** Number of iteration caps whose palettes are kept. */
+    private static final int CACHED_PALETTES = 16;
+
+    /** Palettes keyed by iteration cap, in least-recently-used order. */
+    private final Map<Integer, int[]> palettes =
+            new LinkedHashMap<Integer, int[]>(CACHED_PALETTES, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, int[]> eldest) {
+                    return size() > CACHED_PALETTES;
+                }
+            };
+
+    /**
+     * Computes the colour of a single iteration count.
+     *
+     * @param iterations iterations needed for the point to escape
+     * @param maxIterations current maximum iterations configured
+     * @return packed ARGB colour
+     */
+    protected abstract int argb(int iterations, int maxIterations);
+
+    @Override
+    public Color map(int iterations, int maxIterations) {
+        if (iterations < 0 || iterations > maxIterations) {
+            return new Color(argb(iterations, maxIterations), true);
+        }
+        return new Color(getPalette(maxIterations)[iterations], true);
+    }
+
+    @Override
+    public int[] getPalette(int maxIterations) {
+        synchronized (palettes) {
+            int[] palette = palettes.get(maxIterations);
+            if (palette == null) {
+                palette = new int[maxIterations + 1];
+                for (int i = 0; i <= maxIterations; i++) {
+                    palette[i] = argb(i, maxIterations);
+                }
+                palettes.put(maxIterations, palette);
+            }
+            return palette;
+        }
+    }
+}
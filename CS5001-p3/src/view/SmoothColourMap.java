@@ -0,0 +1,85 @@
+package view;
+
+import java.awt.Color;
+import java.util.stream.IntStream;
+import model.IterationFrame;
+
+/**
+ * Colours by the continuous iteration count {@code count - fraction} instead of the whole count,
+ * which removes the bands between escape counts. The colour of a pixel is blended between the
+ * palette entries of the two counts it lies between, so any palette map can be made smooth.
+ */
+public class SmoothColourMap implements ColourMap {
+
+    /** Pixels coloured by one parallel task. */
+    private static final int BAND_PIXELS = 1 << 16;
+
+    private final ColourMap base;
+
+    /**
+     * @param base map whose palette is blended
+     */
+    public SmoothColourMap(ColourMap base) {
+        this.base = base;
+    }
+
+    @Override
+    public String getName() {
+        return base.getName() + " (smooth)";
+    }
+
+    @Override
+    public Color map(int iterations, int maxIterations) {
+        return base.map(iterations, maxIterations);
+    }
+
+    @Override
+    public int[] getPalette(int maxIterations) {
+        return base.getPalette(maxIterations);
+    }
+
+    @Override
+    public boolean usesFractions() {
+        return true;
+    }
+
+    @Override
+    public void colour(IterationFrame frame, int maxIterations, int[] argb) {
+        float[] fractions = frame.getFractions();
+        if (fractions == null) {
+            base.colour(frame, maxIterations, argb);
+            return;
+        }
+        int[] palette = base.getPalette(maxIterations);
+        int[] pixels = frame.getPixels();
+        int bands = Math.max(1, pixels.length / BAND_PIXELS);
+        IntStream.range(0, bands).parallel().forEach(band -> {
+            int end = (int) ((long) pixels.length * (band + 1) / bands);
+            for (int i = (int) ((long) pixels.length * band / bands); i < end; i++) {
+                int count = Math.min(pixels[i], maxIterations);
+                argb[i] = (count >= maxIterations || count == 0)
+                        ? palette[count]
+                        : blend(palette[count], palette[count - 1], fractions[i]);
+            }
+        });
+    }
+
+    /**
+     * Mixes two packed colours channel by channel.
+     *
+     * @param from colour at weight 0
+     * @param to colour at weight 1
+     * @param weight share of to, from 0 to 1
+     * @return the blended colour
+     */
+    static int blend(int from, int to, float weight) {
+        int scaled = (int) (weight * 256);
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            int a = (from >>> shift) & 0xFF;
+            int b = (to >>> shift) & 0xFF;
+            result |= (a + (((b - a) * scaled) >> 8)) << shift;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,180 @@
+package view;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes an 8-bit RGB PNG one row at a time, so that images of any size can be
+ * encoded without holding them in memory. Compressed data is emitted as a series
+ * of fixed-size IDAT chunks as soon as the deflater produces it.
+ */
+public class StreamingPngWriter implements Closeable {
+
+    private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    /** Size of the buffer collecting compressed data into one IDAT chunk. */
+    private static final int CHUNK_SIZE = 1 << 16;
+    /** PNG "Sub" row filter: each byte is stored as its difference from the same channel of the pixel to the left. */
+    private static final int FILTER_SUB = 1;
+
+    private final OutputStream out;
+    private final int width;
+    private final int height;
+    private final Deflater deflater;
+    private final DeflaterOutputStream compressed;
+    // Filter byte followed by the filtered RGB bytes of the current row
+    private final byte[] row;
+    private int rowsWritten;
+    private boolean closed;
+
+    /**
+     * Writes the PNG header for an image of the given size.
+     *
+     * @param out destination stream; closed by {@link #close()}
+     * @param width image width in pixels
+     * @param height image height in pixels
+     * @param compressionLevel deflate level from 0 to 9, or {@link Deflater#DEFAULT_COMPRESSION}
+     * @throws IOException if writing fails
+     */
+    public StreamingPngWriter(OutputStream out, int width, int height, int compressionLevel) throws IOException {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Image dimensions must be positive");
+        }
+        if ((long) width * 3 + 1 > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Image is too wide");
+        }
+        this.out = out;
+        this.width = width;
+        this.height = height;
+        this.row = new byte[width * 3 + 1];
+        this.deflater = new Deflater(compressionLevel);
+        this.compressed = new DeflaterOutputStream(new IdatStream(), deflater, CHUNK_SIZE);
+
+        out.write(SIGNATURE);
+        byte[] header = new byte[13];
+        putInt(header, 0, width);
+        putInt(header, 4, height);
+        header[8] = 8;  // bits per channel
+        header[9] = 2;  // colour type: RGB
+        header[10] = 0; // deflate compression
+        header[11] = 0; // adaptive filtering
+        header[12] = 0; // no interlace
+        writeChunk("IHDR", header, header.length);
+    }
+
+    /**
+     * Appends the next row of the image.
+     *
+     * @param rgb packed RGB (or ARGB, alpha ignored) pixels
+     * @param offset index in rgb of the first pixel of the row; width pixels are read
+     * @throws IOException if writing fails
+     */
+    public void writeRow(int[] rgb, int offset) throws IOException {
+        if (rowsWritten == height) {
+            throw new IllegalStateException("All " + height + " rows have already been written");
+        }
+        row[0] = FILTER_SUB;
+        int previous = 0;
+        for (int x = 0, i = 1; x < width; x++, i += 3) {
+            int pixel = rgb[offset + x];
+            row[i] = (byte) ((pixel >> 16) - (previous >> 16));
+            row[i + 1] = (byte) ((pixel >> 8) - (previous >> 8));
+            row[i + 2] = (byte) (pixel - previous);
+            previous = pixel;
+        }
+        compressed.write(row);
+        rowsWritten++;
+    }
+
+    /**
+     * Flushes the remaining compressed data, writes the end of the image and closes the stream.
+     *
+     * @throws IOException if writing fails or fewer rows than the image height were written
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            compressed.finish();
+            compressed.flush();
+            writeChunk("IEND", new byte[0], 0);
+            if (rowsWritten != height) {
+                throw new IOException("Image truncated: " + rowsWritten + " of " + height + " rows written");
+            }
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    private void writeChunk(String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        byte[] lengthBytes = new byte[4];
+        putInt(lengthBytes, 0, length);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        byte[] crcBytes = new byte[4];
+        putInt(crcBytes, 0, (int) crc.getValue());
+        out.write(lengthBytes);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        out.write(crcBytes);
+    }
+
+    private static void putInt(byte[] target, int offset, int value) {
+        target[offset] = (byte) (value >>> 24);
+        target[offset + 1] = (byte) (value >>> 16);
+        target[offset + 2] = (byte) (value >>> 8);
+        target[offset + 3] = (byte) value;
+    }
+
+    /** Receives deflater output and writes it out in IDAT chunks of at most CHUNK_SIZE bytes. */
+    private final class IdatStream extends OutputStream {
+
+        private final byte[] buffer = new byte[CHUNK_SIZE];
+        private int count;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                flushChunk();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] data, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (count == buffer.length) {
+                    flushChunk();
+                }
+                int n = Math.min(length, buffer.length - count);
+                System.arraycopy(data, offset, buffer, count, n);
+                count += n;
+                offset += n;
+                length -= n;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            flushChunk();
+            out.flush();
+        }
+
+        private void flushChunk() throws IOException {
+            if (count > 0) {
+                writeChunk("IDAT", buffer, count);
+                count = 0;
+            }
+        }
+    }
+}